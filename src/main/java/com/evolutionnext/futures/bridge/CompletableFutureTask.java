@@ -0,0 +1,56 @@
+package com.evolutionnext.futures.bridge;
+
+import java.util.concurrent.*;
+
+/**
+ * A {@link FutureTask} that completes a {@link CompletableFuture} from its
+ * {@link #done()} hook, so the result of a task handed to a plain
+ * {@link ExecutorService} can be composed without a thread blocking in
+ * {@code get()}.
+ * <p>
+ * Cancelling either side cancels the other; cancelling the
+ * {@code CompletableFuture} interrupts the task if it is running.
+ */
+public class CompletableFutureTask<T> extends FutureTask<T> {
+
+    private final CompletableFuture<T> completableFuture = new CompletableFuture<>();
+
+    public CompletableFutureTask(Callable<T> callable) {
+        super(callable);
+        propagateCancellation();
+    }
+
+    public CompletableFutureTask(Runnable runnable, T result) {
+        super(runnable, result);
+        propagateCancellation();
+    }
+
+    private void propagateCancellation() {
+        completableFuture.whenComplete((result, throwable) -> {
+            if (completableFuture.isCancelled()) {
+                cancel(true);
+            }
+        });
+    }
+
+    public CompletableFuture<T> toCompletableFuture() {
+        return completableFuture;
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            completableFuture.cancel(false);
+            return;
+        }
+        try {
+            completableFuture.complete(get());
+        } catch (ExecutionException e) {
+            completableFuture.completeExceptionally(e.getCause());
+        } catch (InterruptedException e) {
+            // get() on a done task does not wait, so this cannot happen.
+            Thread.currentThread().interrupt();
+            completableFuture.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.evolutionnext.futures.bridge;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
+
+/**
+ * Converts between futures and {@link Flow} streams.
+ * <p>
+ * A future becomes a publisher of its one result, delivered once the
+ * subscriber has requested it. A publisher is consumed into a
+ * {@link CompletableFuture} by a {@link Collector}, requesting
+ * {@code batchSize} items at a time, so a producer that honours
+ * backpressure never gets more than one batch ahead of the collector.
+ * With a collector that keeps a running result, such as
+ * {@code Collectors.counting()}, memory stays flat however long the
+ * stream is, unlike a {@code Future<Stream<String>>} of a whole body.
+ */
+public final class FlowBridges {
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private FlowBridges() {
+    }
+
+    /**
+     * A publisher of the stage's result, or of its failure. A
+     * {@code null} result completes the subscriber without an item. Each
+     * subscriber gets the same result; cancelling a subscription does not
+     * cancel the stage.
+     */
+    public static <T> Flow.Publisher<T> toPublisher(CompletionStage<T> stage) {
+        return subscriber -> subscriber.onSubscribe(new StageSubscription<>(stage, subscriber));
+    }
+
+    public static <T> Flow.Publisher<T> toPublisher(ListenableFuture<T> listenableFuture) {
+        return toPublisher(FutureBridges.toCompletableFuture(listenableFuture));
+    }
+
+    public static <T, A, R> CompletableFuture<R> collect(
+        Flow.Publisher<? extends T> publisher, Collector<? super T, A, R> collector) {
+        return collect(publisher, collector, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Subscribes and folds every item into the collector. Cancelling the
+     * returned future cancels the subscription.
+     */
+    public static <T, A, R> CompletableFuture<R> collect(
+        Flow.Publisher<? extends T> publisher, Collector<? super T, A, R> collector,
+        int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        CollectingSubscriber<T, A, R> subscriber = new CollectingSubscriber<>(collector, batchSize);
+        publisher.subscribe(subscriber);
+        return subscriber.result;
+    }
+
+    private static final class StageSubscription<T> implements Flow.Subscription {
+        private final CompletionStage<T> stage;
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicBoolean requested = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        private StageSubscription(CompletionStage<T> stage, Flow.Subscriber<? super T> subscriber) {
+            this.stage = stage;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (requested.compareAndSet(false, true)) {
+                    subscriber.onError(
+                        new IllegalArgumentException("request must be positive: " + n));
+                }
+                return;
+            }
+            if (requested.compareAndSet(false, true)) {
+                stage.whenComplete(this::deliver);
+            }
+        }
+
+        private void deliver(T result, Throwable throwable) {
+            if (cancelled) {
+                return;
+            }
+            if (throwable != null) {
+                subscriber.onError(throwable instanceof CompletionException &&
+                    throwable.getCause() != null ? throwable.getCause() : throwable);
+                return;
+            }
+            if (result != null) {
+                subscriber.onNext(result);
+            }
+            if (!cancelled) {
+                subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Requests another batch each time one has been received in full.
+     */
+    private static final class CollectingSubscriber<T, A, R> implements Flow.Subscriber<T> {
+        private final Collector<? super T, A, R> collector;
+        private final BiConsumer<A, ? super T> accumulator;
+        private final int batchSize;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private A container;
+        private int receivedInBatch;
+        private Flow.Subscription subscription;
+
+        private CollectingSubscriber(Collector<? super T, A, R> collector, int batchSize) {
+            this.collector = collector;
+            this.accumulator = collector.accumulator();
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            this.container = collector.supplier().get();
+            result.whenComplete((r, throwable) -> {
+                if (throwable instanceof CancellationException) {
+                    subscription.cancel();
+                }
+            });
+            subscription.request(batchSize);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                accumulator.accept(container, item);
+            } catch (RuntimeException e) {
+                subscription.cancel();
+                result.completeExceptionally(e);
+                return;
+            }
+            if (++receivedInBatch == batchSize) {
+                receivedInBatch = 0;
+                subscription.request(batchSize);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                result.complete(collector.finisher().apply(container));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
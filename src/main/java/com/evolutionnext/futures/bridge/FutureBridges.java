@@ -0,0 +1,116 @@
+package com.evolutionnext.futures.bridge;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.concurrent.*;
+
+/**
+ * Converts between {@link Future} flavours without a thread in between.
+ * <p>
+ * testFutureToCompletable bridges by blocking in {@code get()} inside
+ * {@code supplyAsync}, holding a pool thread for as long as the source
+ * runs, and testCastingDoesntWork shows a cast is no way out. These
+ * adapters instead complete the target from a completion callback of the
+ * source: a Guava listener on {@code directExecutor()}, a
+ * {@code whenComplete} on a {@link CompletionStage}, or the
+ * {@link FutureTask#done()} hook of a {@link CompletableFutureTask}. The
+ * callback runs on whichever thread completes the source.
+ * <p>
+ * Cancelling the returned future cancels the source, with interruption.
+ */
+public final class FutureBridges {
+
+    private FutureBridges() {
+    }
+
+    public static <T> CompletableFuture<T> toCompletableFuture(
+        ListenableFuture<T> listenableFuture) {
+        CompletableFuture<T> completableFuture = new CompletableFuture<>();
+        Futures.addCallback(listenableFuture, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                completableFuture.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                if (throwable instanceof CancellationException) {
+                    completableFuture.cancel(false);
+                } else {
+                    completableFuture.completeExceptionally(throwable);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        completableFuture.whenComplete((result, throwable) -> {
+            if (completableFuture.isCancelled()) {
+                listenableFuture.cancel(true);
+            }
+        });
+        return completableFuture;
+    }
+
+    /**
+     * The reverse direction. A failure is unwrapped from the
+     * {@link CompletionException} a dependent stage reports it in.
+     */
+    public static <T> ListenableFuture<T> toListenableFuture(CompletionStage<T> stage) {
+        SettableFuture<T> settableFuture = SettableFuture.create();
+        stage.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                settableFuture.set(result);
+            } else if (throwable instanceof CancellationException) {
+                settableFuture.cancel(false);
+            } else {
+                settableFuture.setException(throwable instanceof CompletionException &&
+                    throwable.getCause() != null ? throwable.getCause() : throwable);
+            }
+        });
+        settableFuture.addListener(() -> {
+            if (settableFuture.isCancelled()) {
+                stage.toCompletableFuture().cancel(true);
+            }
+        }, MoreExecutors.directExecutor());
+        return settableFuture;
+    }
+
+    /**
+     * Converts any future that can report its own completion: a
+     * {@link CompletionStage}, a {@link ListenableFuture} or a
+     * {@link CompletableFutureTask}.
+     *
+     * @throws IllegalArgumentException for a future with no completion hook,
+     *                                  such as the {@code FutureTask} an
+     *                                  {@code ExecutorService.submit} returns;
+     *                                  submit through {@link #submit} instead
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> toCompletableFuture(Future<T> future) {
+        if (future instanceof CompletionStage) {
+            return ((CompletionStage<T>) future).toCompletableFuture();
+        }
+        if (future instanceof CompletableFutureTask) {
+            return ((CompletableFutureTask<T>) future).toCompletableFuture();
+        }
+        if (future instanceof ListenableFuture) {
+            return toCompletableFuture((ListenableFuture<T>) future);
+        }
+        throw new IllegalArgumentException(future.getClass().getName() +
+            " cannot report its completion; submit it as a CompletableFutureTask");
+    }
+
+    /**
+     * Runs {@code callable} on {@code executor} as a
+     * {@link CompletableFutureTask}, whose result is available as a
+     * {@link CompletableFuture} as soon as the task finishes.
+     */
+    public static <T> CompletableFutureTask<T> submit(Executor executor,
+                                                      Callable<T> callable) {
+        CompletableFutureTask<T> task = new CompletableFutureTask<>(callable);
+        executor.execute(task);
+        return task;
+    }
+}
@@ -0,0 +1,226 @@
+package com.evolutionnext.futures.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Memoizes an asynchronous loader, such as
+ * {@code uri -> fetcher.fetch(uri, WordSink.toList())}, so repeated
+ * requests for the same key do not refetch it.
+ * <p>
+ * The cache stores the loading {@link CompletableFuture} itself, so
+ * concurrent callers of a key that is still loading share the one load
+ * instead of each starting their own. A load that fails is removed, and
+ * the next call tries again.
+ * <p>
+ * At most {@code maximumSize} keys are kept, evicted by a {@link TinyLfuPolicy}.
+ * An entry expires {@code expireAfterWrite} after its load completed. Once
+ * it is {@code refreshAfterWrite} old, the next call still gets the current
+ * value but starts a reload in the background, which replaces the entry if
+ * it succeeds; a hot key is then never seen missing. A duration of 0
+ * disables expiry or refresh.
+ * <p>
+ * Every call gets its own copy of the shared future, so a caller that
+ * cancels or completes it does not affect the others.
+ */
+public class AsyncLoadingCache<K, V> {
+
+    private final Function<? super K, ? extends CompletionStage<V>> loader;
+    private final long expireNanos;
+    private final long refreshNanos;
+    private final LongSupplier ticker;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final TinyLfuPolicy<K> policy;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AsyncLoadingCache(Function<? super K, ? extends CompletionStage<V>> loader,
+                             int maximumSize) {
+        this(loader, maximumSize, 0, 0, TimeUnit.NANOSECONDS);
+    }
+
+    public AsyncLoadingCache(Function<? super K, ? extends CompletionStage<V>> loader,
+                             int maximumSize, long expireAfterWrite,
+                             long refreshAfterWrite, TimeUnit unit) {
+        this(loader, maximumSize, expireAfterWrite, refreshAfterWrite, unit, System::nanoTime);
+    }
+
+    AsyncLoadingCache(Function<? super K, ? extends CompletionStage<V>> loader,
+                      int maximumSize, long expireAfterWrite, long refreshAfterWrite,
+                      TimeUnit unit, LongSupplier ticker) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException(
+                "maximumSize must be positive: " + maximumSize);
+        }
+        if (expireAfterWrite < 0 || refreshAfterWrite < 0) {
+            throw new IllegalArgumentException("Durations must not be negative");
+        }
+        this.loader = loader;
+        this.policy = new TinyLfuPolicy<>(maximumSize);
+        this.expireNanos = unit.toNanos(expireAfterWrite);
+        this.refreshNanos = unit.toNanos(refreshAfterWrite);
+        this.ticker = ticker;
+    }
+
+    /**
+     * The value for {@code key}, loading it unless it is cached or already
+     * loading.
+     */
+    public CompletableFuture<V> get(K key) {
+        long now = ticker.getAsLong();
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            synchronized (policy) {
+                if (isExpired(entry, now)) {
+                    if (entries.remove(key, entry)) {
+                        policy.recordRemoval(key);
+                    }
+                    entry = null;
+                } else if (entries.get(key) == entry) {
+                    policy.recordAccess(key);
+                }
+            }
+        }
+        if (entry == null) {
+            return load(key).copy();
+        }
+        hits.increment();
+        if (isDueForRefresh(entry, now) && entry.refreshing.compareAndSet(false, true)) {
+            refresh(key, entry);
+        }
+        return entry.future.copy();
+    }
+
+    /**
+     * The value if it is cached and loaded, without loading or refreshing.
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || !entry.isLoaded() || isExpired(entry, ticker.getAsLong())) {
+            return null;
+        }
+        return entry.future.join();
+    }
+
+    public void invalidate(K key) {
+        synchronized (policy) {
+            if (entries.remove(key) != null) {
+                policy.recordRemoval(key);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how many loads and refreshes have been started
+     */
+    public long loadCount() {
+        return loads.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private CompletableFuture<V> load(K key) {
+        Entry<V> created = new Entry<>(new CompletableFuture<>());
+        Entry<V> existing;
+        synchronized (policy) {
+            existing = entries.putIfAbsent(key, created);
+            if (existing == null) {
+                K evicted = policy.recordInsert(key);
+                if (evicted != null) {
+                    entries.remove(evicted);
+                    evictions.increment();
+                }
+            } else {
+                policy.recordAccess(key);
+            }
+        }
+        if (existing != null) {
+            hits.increment();
+            return existing.future;
+        }
+        startLoad(key).whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                remove(key, created);
+                created.future.completeExceptionally(throwable);
+            } else {
+                created.loadedNanos = ticker.getAsLong();
+                created.future.complete(value);
+            }
+        });
+        return created.future;
+    }
+
+    private void refresh(K key, Entry<V> stale) {
+        startLoad(key).whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                stale.refreshing.set(false);
+                return;
+            }
+            Entry<V> fresh = new Entry<>(CompletableFuture.completedFuture(value));
+            fresh.loadedNanos = ticker.getAsLong();
+            synchronized (policy) {
+                entries.replace(key, stale, fresh);
+            }
+        });
+    }
+
+    private CompletionStage<V> startLoad(K key) {
+        loads.increment();
+        try {
+            return loader.apply(key);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        synchronized (policy) {
+            if (entries.remove(key, entry)) {
+                policy.recordRemoval(key);
+            }
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return expireNanos > 0 && entry.isLoaded() && now - entry.loadedNanos >= expireNanos;
+    }
+
+    private boolean isDueForRefresh(Entry<V> entry, long now) {
+        return refreshNanos > 0 && entry.isLoaded() && now - entry.loadedNanos >= refreshNanos;
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> future;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long loadedNanos;
+
+        private Entry(CompletableFuture<V> future) {
+            this.future = future;
+        }
+
+        /**
+         * Loaded successfully; loadedNanos is set before the future completes.
+         */
+        private boolean isLoaded() {
+            return future.isDone() && !future.isCompletedExceptionally();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.evolutionnext.futures.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Size-based eviction for {@link AsyncLoadingCache}, a simplified
+ * W-TinyLFU: new keys enter a small LRU window of about 1% of the
+ * capacity. A key pushed out of the window only gets into the main LRU
+ * region if it has been used more often, as estimated by a count-min
+ * sketch, than the key it would evict from there. So a burst of one-off
+ * keys cannot flush the keys that are used over and over.
+ * <p>
+ * Not thread safe; the cache calls it under its lock.
+ */
+class TinyLfuPolicy<K> {
+
+    private final LinkedHashMap<K, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final int windowMax;
+    private final int mainMax;
+    private final FrequencySketch sketch;
+
+    TinyLfuPolicy(int maximumSize) {
+        this.windowMax = Math.max(1, maximumSize / 100);
+        this.mainMax = maximumSize - windowMax;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    void recordAccess(K key) {
+        sketch.increment(key);
+        if (window.get(key) == null) {
+            main.get(key);
+        }
+    }
+
+    /**
+     * Adds a key and returns the key to evict to stay within the maximum
+     * size, which may be the new key itself, or {@code null}.
+     */
+    K recordInsert(K key) {
+        sketch.increment(key);
+        window.put(key, Boolean.TRUE);
+        if (window.size() <= windowMax) {
+            return null;
+        }
+        K candidate = removeEldest(window);
+        if (main.size() < mainMax) {
+            main.put(candidate, Boolean.TRUE);
+            return null;
+        }
+        if (mainMax == 0) {
+            return candidate;
+        }
+        K victim = main.keySet().iterator().next();
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            main.remove(victim);
+            main.put(candidate, Boolean.TRUE);
+            return victim;
+        }
+        return candidate;
+    }
+
+    void recordRemoval(K key) {
+        if (window.remove(key) == null) {
+            main.remove(key);
+        }
+    }
+
+    private static <K> K removeEldest(LinkedHashMap<K, Boolean> map) {
+        Iterator<K> keys = map.keySet().iterator();
+        K eldest = keys.next();
+        keys.remove();
+        return eldest;
+    }
+
+    /**
+     * Four rows of counters capped at 15, all halved after ten times the
+     * capacity in increments so old popularity fades.
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xb8a9e4bd, 0x6d1a2f3b, 0xc2b2ae35};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] rows = new byte[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(
+                Math.max(256, Math.min(maximumSize, 1 << 24)) * 2 - 1);
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, maximumSize);
+        }
+
+        void increment(Object key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int i = 0; i < rows.length; i++) {
+                int index = index(hash, i);
+                if (rows[i][index] < MAX_COUNT) {
+                    rows[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < rows.length; i++) {
+                frequency = Math.min(frequency, rows[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package com.evolutionnext.futures.cancel;
+
+import com.evolutionnext.futures.bridge.CompletableFutureTask;
+import com.evolutionnext.futures.executor.ExecutorRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link CompletableFuture} whose cancellation reaches the work behind it.
+ * <p>
+ * {@code CompletableFuture.cancel(true)} only completes the future: the
+ * {@code Thread.sleep(3000)} inside a {@code supplyAsync} keeps its thread
+ * for the full three seconds, and cancelling a stage further down the chain
+ * does not even do that much for its inputs. Here the work started by
+ * {@link #supplyAsync} runs as a {@link CompletableFutureTask}, and the
+ * function of an async stage remembers the thread running it; cancelling
+ * the stage interrupts either.
+ * <p>
+ * Every stage built from a CancellableFuture is one too and counts as a
+ * dependent of its inputs until it completes, including both inputs of
+ * {@code thenCombine} and the like and the stage returned to
+ * {@code thenCompose}. When the last outstanding dependent of an unfinished
+ * input is cancelled, the input is cancelled in turn, so cancelling the end
+ * of a chain stops the work at its start unless another stage still wants
+ * it. A dependent that completes normally, such as an
+ * {@code applyToEither} won by its other input, just stops counting. A
+ * {@code whenComplete} that only logs is a dependent like any other, and
+ * callers waiting in {@code get()} or on {@code allOf} are not dependents.
+ * A stage drops its references to its inputs once it completes.
+ * <p>
+ * Every {@code *Async} stage that runs a function, including
+ * {@code handleAsync}, {@code whenCompleteAsync} and
+ * {@code exceptionallyAsync}, has its running thread interrupted when it is
+ * cancelled, except those of two-input stages and the functions of
+ * {@code thenComposeAsync}, which only return the stage to wait for.
+ */
+public class CancellableFuture<T> extends CompletableFuture<T> {
+
+    private List<CancellableFuture<?>> inputs = new ArrayList<>(1);
+    private boolean released;
+    private int dependents;
+    private boolean registeringSelf;
+    private volatile boolean interruptInputs = true;
+    private volatile Interrupter work;
+
+    public CancellableFuture() {
+        registeringSelf = true;
+        super.whenComplete((result, throwable) -> completed());
+        registeringSelf = false;
+    }
+
+    /**
+     * Runs {@code supplier} on the shared registry's CPU pool.
+     */
+    public static <T> CancellableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return supplyAsync(supplier, ExecutorRegistry.shared().cpu());
+    }
+
+    public static <T> CancellableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        CancellableFuture<T> future = new CancellableFuture<>();
+        CompletableFutureTask<T> task = new CompletableFutureTask<>(supplier::get);
+        future.work = task::cancel;
+        task.toCompletableFuture().whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(throwable);
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public static CancellableFuture<Void> runAsync(Runnable runnable) {
+        return runAsync(runnable, ExecutorRegistry.shared().cpu());
+    }
+
+    public static CancellableFuture<Void> runAsync(Runnable runnable, Executor executor) {
+        return supplyAsync(() -> {
+            runnable.run();
+            return null;
+        }, executor);
+    }
+
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        if (registeringSelf) {
+            // The constructor's own completion hook, not a dependent.
+            return new CompletableFuture<>();
+        }
+        if (isDone()) {
+            completed();
+        }
+        CancellableFuture<U> dependent = new CancellableFuture<>();
+        dependent.dependOn(this);
+        return dependent;
+    }
+
+    @Override
+    public Executor defaultExecutor() {
+        return ExecutorRegistry.shared().cpu();
+    }
+
+    /**
+     * Cancels this stage, interrupts its work if it is running and
+     * {@code mayInterruptIfRunning} is set, and withdraws it from its
+     * inputs.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (isDone()) {
+            return false;
+        }
+        interruptInputs = mayInterruptIfRunning;
+        Interrupter running = work;
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            if (running != null) {
+                running.cancel(mayInterruptIfRunning);
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * How many stages built from this one have not completed or been
+     * cancelled.
+     */
+    public synchronized int getDependents() {
+        return dependents;
+    }
+
+    /**
+     * Counts this stage as a dependent of {@code stage} until it completes.
+     * Nothing is counted if either is already done: a done input has
+     * nothing left to cancel, and a stage completed on the spot, as
+     * CompletableFuture does when its inputs are done, never runs its
+     * completion hook to withdraw again.
+     */
+    private void dependOn(CompletionStage<?> stage) {
+        if (isDone()) {
+            completed();
+            return;
+        }
+        if (!(stage instanceof CancellableFuture) || ((CancellableFuture<?>) stage).isDone()) {
+            return;
+        }
+        CancellableFuture<?> input = (CancellableFuture<?>) stage;
+        synchronized (input) {
+            input.dependents++;
+        }
+        synchronized (this) {
+            if (!released) {
+                inputs.add(input);
+                return;
+            }
+        }
+        input.withdraw(isCancelled(), interruptInputs);
+    }
+
+    /**
+     * Runs once this stage is done, from its completion hook or, if it was
+     * completed on the spot without one, when a stage is next built on it:
+     * withdraws from the inputs and lets go of them and of the work.
+     */
+    private void completed() {
+        List<CancellableFuture<?>> withdrawn;
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            released = true;
+            withdrawn = inputs;
+            inputs = null;
+        }
+        work = null;
+        boolean cancelled = isCancelled();
+        boolean mayInterruptIfRunning = interruptInputs;
+        for (CancellableFuture<?> input : withdrawn) {
+            input.withdraw(cancelled, mayInterruptIfRunning);
+        }
+    }
+
+    private void withdraw(boolean cancelled, boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (--dependents > 0) {
+                return;
+            }
+        }
+        if (cancelled) {
+            cancel(mayInterruptIfRunning);
+        }
+    }
+
+    private <U> CompletableFuture<U> alsoOn(CompletableFuture<U> dependent,
+                                            CompletionStage<?> other) {
+        ((CancellableFuture<U>) dependent).dependOn(other);
+        return dependent;
+    }
+
+    private <U> CompletableFuture<U> running(CompletableFuture<U> dependent, Runner runner) {
+        if (!dependent.isDone()) {
+            ((CancellableFuture<U>) dependent).work = runner;
+        }
+        return dependent;
+    }
+
+    private <U> Function<T, CompletionStage<U>> composing(
+        Function<? super T, ? extends CompletionStage<U>> fn, Composed composed) {
+        return value -> {
+            CompletionStage<U> stage = fn.apply(value);
+            composed.setInner(stage);
+            return stage;
+        };
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return thenApplyAsync(fn, defaultExecutor());
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn,
+                                                   Executor executor) {
+        Runner runner = new Runner();
+        return running(super.thenApplyAsync(value -> runner.call(() -> fn.apply(value)),
+            executor), runner);
+    }
+
+    @Override
+    public CompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return thenAcceptAsync(action, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action, Executor executor) {
+        Runner runner = new Runner();
+        return running(super.thenAcceptAsync(value -> runner.call(() -> {
+            action.accept(value);
+            return null;
+        }), executor), runner);
+    }
+
+    @Override
+    public CompletableFuture<Void> thenRunAsync(Runnable action) {
+        return thenRunAsync(action, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> thenRunAsync(Runnable action, Executor executor) {
+        Runner runner = new Runner();
+        return running(super.thenRunAsync(() -> runner.call(() -> {
+            action.run();
+            return null;
+        }), executor), runner);
+    }
+
+    @Override
+    public <U> CompletableFuture<U> handleAsync(
+        BiFunction<? super T, Throwable, ? extends U> fn) {
+        return handleAsync(fn, defaultExecutor());
+    }
+
+    @Override
+    public <U> CompletableFuture<U> handleAsync(
+        BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+        Runner runner = new Runner();
+        return running(super.handleAsync((value, throwable) ->
+            runner.call(() -> fn.apply(value, throwable)), executor), runner);
+    }
+
+    @Override
+    public CompletableFuture<T> whenCompleteAsync(
+        BiConsumer<? super T, ? super Throwable> action) {
+        return whenCompleteAsync(action, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<T> whenCompleteAsync(
+        BiConsumer<? super T, ? super Throwable> action, Executor executor) {
+        Runner runner = new Runner();
+        return running(super.whenCompleteAsync((value, throwable) -> runner.call(() -> {
+            action.accept(value, throwable);
+            return null;
+        }), executor), runner);
+    }
+
+    @Override
+    public CompletableFuture<T> exceptionallyAsync(Function<Throwable, ? extends T> fn) {
+        return exceptionallyAsync(fn, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<T> exceptionallyAsync(Function<Throwable, ? extends T> fn,
+                                                   Executor executor) {
+        Runner runner = new Runner();
+        return running(super.exceptionallyAsync(
+            throwable -> runner.call(() -> fn.apply(throwable)), executor), runner);
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenCompose(
+        Function<? super T, ? extends CompletionStage<U>> fn) {
+        Composed composed = new Composed();
+        return composed.setOuter(super.thenCompose(composing(fn, composed)));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenComposeAsync(
+        Function<? super T, ? extends CompletionStage<U>> fn) {
+        return thenComposeAsync(fn, defaultExecutor());
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenComposeAsync(
+        Function<? super T, ? extends CompletionStage<U>> fn, Executor executor) {
+        Composed composed = new Composed();
+        return composed.setOuter(super.thenComposeAsync(composing(fn, composed), executor));
+    }
+
+    @Override
+    public <U, V> CompletableFuture<V> thenCombine(
+        CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn) {
+        return alsoOn(super.thenCombine(other, fn), other);
+    }
+
+    @Override
+    public <U, V> CompletableFuture<V> thenCombineAsync(
+        CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn) {
+        return alsoOn(super.thenCombineAsync(other, fn), other);
+    }
+
+    @Override
+    public <U, V> CompletableFuture<V> thenCombineAsync(
+        CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn,
+        Executor executor) {
+        return alsoOn(super.thenCombineAsync(other, fn, executor), other);
+    }
+
+    @Override
+    public <U> CompletableFuture<Void> thenAcceptBoth(
+        CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action) {
+        return alsoOn(super.thenAcceptBoth(other, action), other);
+    }
+
+    @Override
+    public <U> CompletableFuture<Void> thenAcceptBothAsync(
+        CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action) {
+        return alsoOn(super.thenAcceptBothAsync(other, action), other);
+    }
+
+    @Override
+    public <U> CompletableFuture<Void> thenAcceptBothAsync(
+        CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action,
+        Executor executor) {
+        return alsoOn(super.thenAcceptBothAsync(other, action, executor), other);
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterBoth(CompletionStage<?> other, Runnable action) {
+        return alsoOn(super.runAfterBoth(other, action), other);
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action) {
+        return alsoOn(super.runAfterBothAsync(other, action), other);
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action,
+                                                     Executor executor) {
+        return alsoOn(super.runAfterBothAsync(other, action, executor), other);
+    }
+
+    @Override
+    public <U> CompletableFuture<U> applyToEither(
+        CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return alsoOn(super.applyToEither(other, fn), other);
+    }
+
+    @Override
+    public <U> CompletableFuture<U> applyToEitherAsync(
+        CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return alsoOn(super.applyToEitherAsync(other, fn), other);
+    }
+
+    @Override
+    public <U> CompletableFuture<U> applyToEitherAsync(
+        CompletionStage<? extends T> other, Function<? super T, U> fn, Executor executor) {
+        return alsoOn(super.applyToEitherAsync(other, fn, executor), other);
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptEither(
+        CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return alsoOn(super.acceptEither(other, action), other);
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptEitherAsync(
+        CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return alsoOn(super.acceptEitherAsync(other, action), other);
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptEitherAsync(
+        CompletionStage<? extends T> other, Consumer<? super T> action, Executor executor) {
+        return alsoOn(super.acceptEitherAsync(other, action, executor), other);
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterEither(CompletionStage<?> other, Runnable action) {
+        return alsoOn(super.runAfterEither(other, action), other);
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other,
+                                                       Runnable action) {
+        return alsoOn(super.runAfterEitherAsync(other, action), other);
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action,
+                                                       Executor executor) {
+        return alsoOn(super.runAfterEitherAsync(other, action, executor), other);
+    }
+
+    private interface Interrupter {
+        void cancel(boolean mayInterruptIfRunning);
+    }
+
+    /**
+     * The thread running an async stage's function, if any, so that
+     * cancelling the stage can interrupt it. An interrupt sent this way is
+     * cleared before the thread goes back to its pool.
+     */
+    private static final class Runner implements Interrupter {
+        private Thread thread;
+        private boolean cancelled;
+        private boolean interrupted;
+
+        <R> R call(Supplier<R> body) {
+            synchronized (this) {
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+                thread = Thread.currentThread();
+            }
+            try {
+                return body.get();
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                    if (interrupted) {
+                        Thread.interrupted();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public synchronized void cancel(boolean mayInterruptIfRunning) {
+            cancelled = true;
+            if (thread != null && mayInterruptIfRunning) {
+                interrupted = true;
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Links a {@code thenCompose} stage to the stage its function returns,
+     * whichever of the two turns up first.
+     */
+    private static final class Composed {
+        private CancellableFuture<?> outer;
+        private CompletionStage<?> inner;
+
+        <U> CompletableFuture<U> setOuter(CompletableFuture<U> stage) {
+            CompletionStage<?> returned;
+            synchronized (this) {
+                outer = (CancellableFuture<?>) stage;
+                returned = inner;
+            }
+            if (returned != null) {
+                outer.dependOn(returned);
+            }
+            return stage;
+        }
+
+        void setInner(CompletionStage<?> stage) {
+            CancellableFuture<?> composed;
+            synchronized (this) {
+                inner = stage;
+                composed = outer;
+            }
+            if (composed != null) {
+                composed.dependOn(stage);
+            }
+        }
+    }
+}
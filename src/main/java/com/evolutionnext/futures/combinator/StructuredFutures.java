@@ -0,0 +1,187 @@
+package com.evolutionnext.futures.combinator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Typed alternatives to {@code anyOf} and {@code allOf} that stop the work
+ * nobody is waiting for any more.
+ * <p>
+ * {@code anyOf} lets the losers run to completion, {@code allOf} waits for
+ * every input even after one has failed, and both hand back an
+ * {@code Object} or {@code Void}. Here, as soon as the outcome is decided,
+ * every input still running is cancelled with {@code cancel(true)}. A
+ * {@code supplyAsync} task that has not started yet is then skipped by its
+ * executor. One that is already running keeps going, because a
+ * {@code CompletableFuture} cannot interrupt it; use a
+ * {@link com.evolutionnext.futures.bridge.CompletableFutureTask} for work
+ * that should be interrupted.
+ * <p>
+ * Cancelling the returned future cancels every input.
+ */
+public final class StructuredFutures {
+
+    private StructuredFutures() {
+    }
+
+    /**
+     * The first successful result; the rest are cancelled. Fails only when
+     * every input fails, with the first failure as the cause and the others
+     * suppressed.
+     */
+    public static <T> CompletableFuture<T> race(
+        List<? extends CompletableFuture<? extends T>> futures) {
+        requireNonEmpty(futures);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (CompletableFuture<? extends T> future : futures) {
+            future.whenComplete((value, throwable) -> {
+                if (throwable == null) {
+                    result.complete(value);
+                } else {
+                    errors.add(unwrap(throwable));
+                    if (failures.incrementAndGet() == futures.size()) {
+                        result.completeExceptionally(combine(errors));
+                    }
+                }
+            });
+        }
+        cancelAllWhenDone(result, futures);
+        return result;
+    }
+
+    /**
+     * Every result in input order, or the first failure, at which point the
+     * siblings are cancelled.
+     */
+    public static <T> CompletableFuture<List<T>> allOrFailFast(
+        List<? extends CompletableFuture<? extends T>> futures) {
+        return quorum(futures.size(), futures, true);
+    }
+
+    /**
+     * The first {@code k} successful results in the order they completed.
+     * The rest are cancelled once {@code k} have succeeded, or once so many
+     * have failed that {@code k} successes are no longer possible, which
+     * fails the quorum with the first failure as the cause and the others
+     * suppressed.
+     */
+    public static <T> CompletableFuture<List<T>> quorum(
+        int k, List<? extends CompletableFuture<? extends T>> futures) {
+        return quorum(k, futures, false);
+    }
+
+    private static <T> CompletableFuture<List<T>> quorum(
+        int k, List<? extends CompletableFuture<? extends T>> futures,
+        boolean inputOrder) {
+        requireNonEmpty(futures);
+        if (k <= 0 || k > futures.size()) {
+            throw new IllegalArgumentException(
+                "k must be between 1 and " + futures.size() + ": " + k);
+        }
+        int n = futures.size();
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        Successes<T> successes = new Successes<>(k, inputOrder ? n : k);
+        AtomicInteger failures = new AtomicInteger();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < n; i++) {
+            int index = i;
+            futures.get(i).whenComplete((value, throwable) -> {
+                if (throwable == null) {
+                    List<T> values = successes.add(inputOrder ? index : -1, value);
+                    if (values != null) {
+                        result.complete(values);
+                    }
+                } else {
+                    errors.add(unwrap(throwable));
+                    if (failures.incrementAndGet() == n - k + 1) {
+                        result.completeExceptionally(combine(errors));
+                    }
+                }
+            });
+        }
+        cancelAllWhenDone(result, futures);
+        return result;
+    }
+
+    /**
+     * The successful values, stored and counted under one lock so the
+     * success that reaches {@code k} sees every value before it.
+     */
+    private static final class Successes<T> {
+        private final int k;
+        private final Object[] values;
+        private int count;
+
+        private Successes(int k, int size) {
+            this.k = k;
+            this.values = new Object[size];
+        }
+
+        /**
+         * @param index the slot for the value, or -1 for the next one in
+         *              completion order
+         * @return every value once this is the k-th success, else null
+         */
+        @SuppressWarnings("unchecked")
+        synchronized List<T> add(int index, T value) {
+            if (count >= k) {
+                return null;
+            }
+            values[index < 0 ? count : index] = value;
+            if (++count < k) {
+                return null;
+            }
+            List<T> list = new ArrayList<>(values.length);
+            for (Object stored : values) {
+                list.add((T) stored);
+            }
+            return list;
+        }
+    }
+
+    private static void cancelAllWhenDone(CompletableFuture<?> result,
+                                          List<? extends CompletableFuture<?>> futures) {
+        result.whenComplete((value, throwable) -> {
+            for (CompletableFuture<?> future : futures) {
+                future.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * Wraps the first failure in a new {@link CompletionException} carrying
+     * the others as suppressed, leaving the inputs' own exceptions, which
+     * other pipelines may share, untouched.
+     */
+    private static Throwable combine(List<Throwable> errors) {
+        synchronized (errors) {
+            Throwable first = errors.get(0);
+            CompletionException combined = new CompletionException(first);
+            for (int i = 1; i < errors.size(); i++) {
+                Throwable other = errors.get(i);
+                if (other != first && !(other instanceof CancellationException)) {
+                    combined.addSuppressed(other);
+                }
+            }
+            return combined;
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ?
+            throwable.getCause() : throwable;
+    }
+
+    private static void requireNonEmpty(List<?> futures) {
+        if (futures.isEmpty()) {
+            throw new IllegalArgumentException("At least one future is needed");
+        }
+    }
+}
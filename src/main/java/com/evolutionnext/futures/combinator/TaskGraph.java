@@ -0,0 +1,350 @@
+package com.evolutionnext.futures.combinator;
+
+import com.evolutionnext.futures.executor.ExecutorRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A workflow of many dependent steps, declared once and run as futures.
+ * <p>
+ * testComposeByAddingIntegerFuture1andIntegerFuture2 and completableCombine
+ * wire two inputs by hand. With dozens of steps, hand wiring tends to wait
+ * on whole groups of inputs, or to build a shared step once for each step
+ * that uses it. Here each node names its inputs, and {@link #run} starts a
+ * node on the executor as soon as its last input completes, so independent
+ * branches run side by side. A node is computed once per run however many
+ * nodes use it, and declaring a node under a name that is already taken,
+ * with the same inputs, returns the node already there, so helpers that
+ * build the same subgraph twice share it.
+ * <p>
+ * A node can only use nodes declared before it, so a graph has no cycles.
+ * If a node fails, the nodes that use it fail with the same exception and
+ * do not run. Declaring nodes is not thread-safe; running is.
+ */
+public final class TaskGraph {
+
+    private final List<Node<?>> nodes = new ArrayList<>();
+    private final Map<String, Node<?>> byName = new HashMap<>();
+    private List<Node<?>> planned;
+    private int[][] dependents;
+
+    public <T> Node<T> node(String name, Supplier<? extends T> body) {
+        return declare(name, Collections.emptyList(), values -> body.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <A, T> Node<T> node(String name, Node<A> a, Function<? super A, ? extends T> body) {
+        return declare(name, Collections.singletonList(a), values -> body.apply((A) values[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <A, B, T> Node<T> node(String name, Node<A> a, Node<B> b,
+                                  BiFunction<? super A, ? super B, ? extends T> body) {
+        return declare(name, Arrays.asList(a, b),
+            values -> body.apply((A) values[0], (B) values[1]));
+    }
+
+    /**
+     * A node over any number of inputs of one type, given to {@code body} in
+     * the order listed.
+     */
+    @SuppressWarnings("unchecked")
+    public <A, T> Node<T> node(String name, List<Node<A>> inputs,
+                               Function<? super List<A>, ? extends T> body) {
+        return declare(name, new ArrayList<>(inputs),
+            values -> body.apply((List<A>) Arrays.asList(values)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Node<T> declare(String name, List<Node<?>> inputs,
+                                Function<Object[], ? extends T> body) {
+        Node<?> existing = byName.get(name);
+        if (existing != null) {
+            if (!existing.inputs.equals(inputs)) {
+                throw new IllegalArgumentException(
+                    "Node " + name + " is already declared with inputs " + existing.inputs);
+            }
+            return (Node<T>) existing;
+        }
+        for (Node<?> input : inputs) {
+            if (input.graph != this) {
+                throw new IllegalArgumentException("Node " + input + " belongs to another graph");
+            }
+        }
+        Node<T> node = new Node<>(this, nodes.size(), name, inputs, body);
+        nodes.add(node);
+        byName.put(name, node);
+        planned = null;
+        return node;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Runs every node on the shared registry's CPU pool.
+     */
+    public Run run() {
+        return run(ExecutorRegistry.shared().cpu());
+    }
+
+    /**
+     * Runs every node on {@code executor}, starting with the nodes that
+     * have no inputs.
+     */
+    public Run run(Executor executor) {
+        if (planned == null) {
+            planned = new ArrayList<>(nodes);
+            dependents = new int[nodes.size()][];
+            for (Node<?> node : nodes) {
+                dependents[node.index] = node.dependents.stream()
+                                                        .mapToInt(dependent -> dependent.index)
+                                                        .toArray();
+            }
+        }
+        Run run = new Run(planned, dependents, executor);
+        run.start();
+        return run;
+    }
+
+    public static final class Node<T> {
+        private final TaskGraph graph;
+        private final int index;
+        private final String name;
+        private final List<Node<?>> inputs;
+        private final Function<Object[], ? extends T> body;
+        private final List<Node<?>> dependents = new ArrayList<>();
+
+        private Node(TaskGraph graph, int index, String name, List<Node<?>> inputs,
+                     Function<Object[], ? extends T> body) {
+            this.graph = graph;
+            this.index = index;
+            this.name = name;
+            this.inputs = Collections.unmodifiableList(inputs);
+            this.body = body;
+            for (Node<?> input : inputs) {
+                input.dependents.add(this);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Node<?>> getInputs() {
+            return inputs;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * One run of a graph: a future per node, and when each node ran.
+     */
+    public static final class Run {
+        private final List<Node<?>> nodes;
+        private final Executor executor;
+        private final CompletableFuture<?>[] results;
+        private final int[][] dependents;
+        private final AtomicIntegerArray pendingInputs;
+        private final boolean[] ran;
+        private final long[] startNanos;
+        private final long[] endNanos;
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private long runStartNanos;
+
+        private Run(List<Node<?>> nodes, int[][] dependents, Executor executor) {
+            this.nodes = nodes;
+            this.dependents = dependents;
+            this.executor = executor;
+            int n = nodes.size();
+            this.results = new CompletableFuture<?>[n];
+            this.pendingInputs = new AtomicIntegerArray(n);
+            this.ran = new boolean[n];
+            this.startNanos = new long[n];
+            this.endNanos = new long[n];
+            this.remaining = new AtomicInteger(n);
+            for (Node<?> node : nodes) {
+                results[node.index] = new CompletableFuture<>();
+                pendingInputs.set(node.index, node.inputs.size());
+            }
+        }
+
+        private void start() {
+            runStartNanos = System.nanoTime();
+            if (nodes.isEmpty()) {
+                done.complete(null);
+                return;
+            }
+            for (Node<?> node : nodes) {
+                results[node.index].whenComplete((value, throwable) -> settled(node, throwable));
+            }
+            for (Node<?> node : nodes) {
+                if (node.inputs.isEmpty()) {
+                    submit(node);
+                }
+            }
+        }
+
+        private void settled(Node<?> node, Throwable throwable) {
+            for (int dependent : dependents[node.index]) {
+                if (throwable != null) {
+                    results[dependent].completeExceptionally(unwrap(throwable));
+                } else if (pendingInputs.decrementAndGet(dependent) == 0) {
+                    submit(nodes.get(dependent));
+                }
+            }
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+
+        private void submit(Node<?> node) {
+            CompletableFuture<?> result = results[node.index];
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                executor.execute(() -> compute(node));
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> void compute(Node<T> node) {
+            CompletableFuture<T> result = (CompletableFuture<T>) results[node.index];
+            if (result.isDone()) {
+                return;
+            }
+            Object[] values = new Object[node.inputs.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = results[node.inputs.get(i).index].join();
+            }
+            ran[node.index] = true;
+            startNanos[node.index] = System.nanoTime();
+            try {
+                T value = node.body.apply(values);
+                endNanos[node.index] = System.nanoTime();
+                result.complete(value);
+            } catch (Throwable t) {
+                endNanos[node.index] = System.nanoTime();
+                result.completeExceptionally(t);
+            }
+        }
+
+        /**
+         * The future for {@code node}'s value in this run.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<T> get(Node<T> node) {
+            if (node.index >= results.length || nodes.get(node.index) != node) {
+                throw new IllegalArgumentException("Node " + node + " is not part of this run");
+            }
+            return (CompletableFuture<T>) results[node.index];
+        }
+
+        /**
+         * Completes once every node has completed, whether or not they
+         * succeeded.
+         */
+        public CompletableFuture<Void> whenDone() {
+            return done;
+        }
+
+        /**
+         * Cancels every node that has not completed yet; nodes already
+         * running finish but their values are dropped.
+         */
+        public void cancel() {
+            for (CompletableFuture<?> result : results) {
+                result.cancel(true);
+            }
+        }
+
+        /**
+         * The chain of nodes that decided how long the run took: the node
+         * that finished last, the input it waited on longest, that node's
+         * slowest input, and so on back to a node without inputs. Speeding
+         * up any other node does not shorten the run. Nodes that did not run
+         * are left out.
+         *
+         * @throws IllegalStateException if the run is not done
+         */
+        public List<Node<?>> criticalPath() {
+            if (!done.isDone()) {
+                throw new IllegalStateException("The run is not done yet");
+            }
+            List<Node<?>> path = new ArrayList<>();
+            Node<?> node = latest(nodes);
+            while (node != null) {
+                path.add(node);
+                node = latest(node.inputs);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+
+        private Node<?> latest(List<Node<?>> candidates) {
+            Node<?> latest = null;
+            for (Node<?> candidate : candidates) {
+                if (!ran[candidate.index]) {
+                    continue;
+                }
+                if (latest == null || endNanos[candidate.index] - endNanos[latest.index] > 0) {
+                    latest = candidate;
+                }
+            }
+            return latest;
+        }
+
+        /**
+         * How long {@code node}'s body ran, or 0 if it did not run.
+         */
+        public long runningTime(Node<?> node, TimeUnit unit) {
+            get(node);
+            if (!ran[node.index]) {
+                return 0;
+            }
+            return unit.convert(endNanos[node.index] - startNanos[node.index],
+                TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * From the start of the run until the last node finished.
+         */
+        public long elapsed(TimeUnit unit) {
+            if (!done.isDone()) {
+                throw new IllegalStateException("The run is not done yet");
+            }
+            Node<?> last = latest(nodes);
+            long end = last == null ? runStartNanos : endNanos[last.index];
+            return unit.convert(end - runStartNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ?
+            throwable.getCause() : throwable;
+    }
+}
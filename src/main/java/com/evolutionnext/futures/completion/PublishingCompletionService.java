@@ -0,0 +1,192 @@
+package com.evolutionnext.futures.completion;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A completion service that pushes finished tasks to a {@link Flow.Subscriber}
+ * in completion order instead of making a consumer park on
+ * {@link CompletionService#take()}.
+ * <p>
+ * Like {@code take()}, every element is the completed {@link Future}, so a
+ * failed task shows up as a future whose {@code get()} throws rather than
+ * terminating the stream. Results are only delivered as the subscriber
+ * {@link Flow.Subscription#request(long) requests} them, and at most
+ * {@code maxInFlight} tasks may be submitted but not yet delivered:
+ * {@link #submit(Callable)} blocks the producer once that limit is reached,
+ * so a slow subscriber slows down submission instead of buffering without
+ * bound. There is no dedicated consumer thread; delivery happens on whichever
+ * thread completes a task or requests more.
+ * <p>
+ * A single subscriber is supported. {@link #close()} stops accepting work;
+ * the subscriber gets {@code onComplete} once everything submitted before
+ * it has been delivered.
+ */
+public class PublishingCompletionService<T>
+    implements Flow.Publisher<Future<T>>, AutoCloseable {
+
+    private final Executor executor;
+    private final Semaphore inFlight;
+    private final Queue<Future<T>> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicReference<Flow.Subscriber<? super Future<T>>> subscriber =
+        new AtomicReference<>();
+
+    private volatile boolean closed;
+    private volatile boolean cancelled;
+    private volatile Throwable requestError;
+    private boolean terminated;
+
+    public PublishingCompletionService(Executor executor, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException(
+                "maxInFlight must be positive: " + maxInFlight);
+        }
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Submits a task, waiting for an in-flight slot if {@code maxInFlight}
+     * tasks are already pending delivery.
+     *
+     * @throws RejectedExecutionException if the service has been closed or
+     *                                    the executor rejects the task
+     */
+    public Future<T> submit(Callable<T> task) throws InterruptedException {
+        inFlight.acquire();
+        outstanding.incrementAndGet();
+        if (closed) {
+            release();
+            drain();
+            throw new RejectedExecutionException("Completion service is closed");
+        }
+        FutureTask<T> futureTask = new FutureTask<>(task) {
+            @Override
+            protected void done() {
+                completed.offer(this);
+                drain();
+            }
+        };
+        try {
+            executor.execute(futureTask);
+        } catch (RejectedExecutionException e) {
+            release();
+            drain();
+            throw e;
+        }
+        return futureTask;
+    }
+
+    /**
+     * @return the number of tasks submitted but not yet delivered
+     */
+    public long outstanding() {
+        return outstanding.get();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Future<T>> subscriber) {
+        if (this.subscriber.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new CompletionSubscription());
+            drain();
+        } else {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException(
+                "PublishingCompletionService allows a single subscriber"));
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        drain();
+    }
+
+    private void release() {
+        outstanding.decrementAndGet();
+        inFlight.release();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            if (cancelled) {
+                while (completed.poll() != null) {
+                    release();
+                }
+            } else {
+                Flow.Subscriber<? super Future<T>> s = subscriber.get();
+                if (s != null && !terminated) {
+                    emit(s);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit(Flow.Subscriber<? super Future<T>> s) {
+        if (requestError != null) {
+            terminated = true;
+            cancelled = true;
+            s.onError(requestError);
+            return;
+        }
+        long r = requested.get();
+        long emitted = 0;
+        while (emitted != r && !cancelled) {
+            Future<T> future = completed.poll();
+            if (future == null) {
+                break;
+            }
+            release();
+            s.onNext(future);
+            emitted++;
+        }
+        if (emitted != 0 && r != Long.MAX_VALUE) {
+            requested.addAndGet(-emitted);
+        }
+        if (closed && !cancelled && outstanding.get() == 0 && completed.isEmpty()) {
+            terminated = true;
+            s.onComplete();
+        }
+    }
+
+    private class CompletionSubscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                requestError = new IllegalArgumentException(
+                    "request must be positive: " + n);
+            } else {
+                requested.getAndUpdate(r -> {
+                    long sum = r + n;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+    }
+}
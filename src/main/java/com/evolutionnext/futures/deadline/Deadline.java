@@ -0,0 +1,159 @@
+package com.evolutionnext.futures.deadline;
+
+import com.evolutionnext.futures.timer.HashedWheelScheduledExecutorService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * An end-to-end time budget shared by every stage of a future pipeline.
+ * <p>
+ * Futures are {@link #bind(Future) bound} to a deadline. When it expires,
+ * every bound future that is still running is completed with a
+ * {@link DeadlineExceededException} (a plain {@link Future} is cancelled
+ * with interruption instead), so nothing downstream keeps waiting. Failing
+ * a {@code CompletableFuture} does not stop the work that would have
+ * completed it; start that work with {@link DeadlineStage#supplyAsync} to
+ * have it interrupted as well. A deadline holds at most one entry in a
+ * shared hashed-wheel timer, armed while something is bound and disarmed
+ * when the last bound future completes. There is no per-future timeout task
+ * and no thread hop.
+ * <p>
+ * A budget is split across stages with {@link #slice(double)}: the slice
+ * expires after its share of the time remaining when it is taken. Budgets
+ * beyond about 146 years are treated as 146 years, as
+ * {@code ScheduledThreadPoolExecutor} treats delays.
+ * <p>
+ * Dependents of an expired stage run on the timer thread when they are
+ * synchronous, so attach anything heavy with an {@code *Async} method.
+ */
+public final class Deadline {
+
+    private static final class SharedTimer {
+        private static final ScheduledExecutorService TIMER =
+            new HashedWheelScheduledExecutorService(1, TimeUnit.MILLISECONDS,
+                Runnable::run);
+    }
+
+    private static final long MAX_BUDGET_NANOS = Long.MAX_VALUE >> 1;
+
+    private final long deadlineNanos;
+    private final ScheduledExecutorService timer;
+    private final Set<Future<?>> bound = ConcurrentHashMap.newKeySet();
+    private ScheduledFuture<?> timeout;
+    private volatile boolean expired;
+
+    private Deadline(long deadlineNanos, ScheduledExecutorService timer) {
+        this.deadlineNanos = deadlineNanos;
+        this.timer = timer;
+    }
+
+    /**
+     * A deadline enforced by the process-wide timer.
+     */
+    public static Deadline after(long budget, TimeUnit unit) {
+        return after(budget, unit, SharedTimer.TIMER);
+    }
+
+    public static Deadline after(long budget, TimeUnit unit,
+                                 ScheduledExecutorService timer) {
+        long budgetNanos = Math.max(0, Math.min(unit.toNanos(budget), MAX_BUDGET_NANOS));
+        return new Deadline(System.nanoTime() + budgetNanos, timer);
+    }
+
+    public long remaining(TimeUnit unit) {
+        return unit.convert(Math.max(0, deadlineNanos - System.nanoTime()),
+            TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return expired || deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * A child deadline with {@code fraction} of the time remaining now. It
+     * can only expire earlier than this one, never later.
+     */
+    public Deadline slice(double fraction) {
+        if (fraction <= 0 || fraction > 1) {
+            throw new IllegalArgumentException("fraction must be in (0, 1]: " + fraction);
+        }
+        long now = System.nanoTime();
+        long remainingNanos = Math.max(0, deadlineNanos - now);
+        return new Deadline(now + (long) (remainingNanos * fraction), timer);
+    }
+
+    /**
+     * The earlier of the two deadlines.
+     */
+    public Deadline min(Deadline other) {
+        return deadlineNanos - other.deadlineNanos <= 0 ? this : other;
+    }
+
+    /**
+     * Expires {@code future} along with this deadline, and returns it.
+     */
+    public <F extends Future<?>> F bind(F future) {
+        if (future.isDone()) {
+            return future;
+        }
+        boolean expireNow;
+        synchronized (this) {
+            expireNow = expired || deadlineNanos - System.nanoTime() <= 0;
+            if (!expireNow) {
+                bound.add(future);
+                if (timeout == null) {
+                    timeout = timer.schedule(this::expire,
+                        deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+        if (expireNow) {
+            fail(future);
+        } else if (future instanceof CompletionStage) {
+            ((CompletionStage<?>) future).whenComplete((r, t) -> unbind(future));
+        }
+        return future;
+    }
+
+    private void unbind(Future<?> future) {
+        synchronized (this) {
+            if (bound.remove(future) && bound.isEmpty() && timeout != null) {
+                timeout.cancel(false);
+                timeout = null;
+            }
+        }
+    }
+
+    private void expire() {
+        List<Future<?>> expiredFutures;
+        synchronized (this) {
+            if (expired) {
+                return;
+            }
+            expired = true;
+            timeout = null;
+            expiredFutures = new ArrayList<>(bound);
+            bound.clear();
+        }
+        for (Future<?> future : expiredFutures) {
+            fail(future);
+        }
+    }
+
+    private void fail(Future<?> future) {
+        if (future instanceof CompletableFuture) {
+            ((CompletableFuture<?>) future).completeExceptionally(
+                new DeadlineExceededException("Deadline exceeded"));
+        } else {
+            future.cancel(true);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{remainingMillis=" + remaining(TimeUnit.MILLISECONDS) + '}';
+    }
+}
@@ -0,0 +1,16 @@
+package com.evolutionnext.futures.deadline;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The exception a stage completes with when its {@link Deadline} expires
+ * before it does.
+ */
+public class DeadlineExceededException extends TimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
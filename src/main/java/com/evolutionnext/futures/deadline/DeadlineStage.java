@@ -0,0 +1,154 @@
+package com.evolutionnext.futures.deadline;
+
+import com.evolutionnext.futures.bridge.CompletableFutureTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a {@link CompletableFuture} to carry its pipeline's {@link Deadline}
+ * through {@code thenApply}, {@code thenCompose} and {@code thenCombine}.
+ * <p>
+ * Only stages that can wait on something outside the chain are bound to
+ * the deadline: the source, the futures returned into
+ * {@link #thenCompose(BiFunction)}, async hops and combinations. A plain
+ * {@link #thenApply(Function)} simply inherits the failure of its input.
+ * When the deadline expires, the whole chain fails with a
+ * {@link DeadlineExceededException} at once and bound upstream futures are
+ * completed, so a hung dependency cannot hold up its dependents. Work
+ * started by {@link #supplyAsync} is interrupted as well; the work behind a
+ * future passed to {@link #of} is not, as a {@code CompletableFuture} has
+ * no way to reach it.
+ */
+public final class DeadlineStage<T> {
+
+    private final CompletableFuture<T> future;
+    private final Deadline deadline;
+
+    private DeadlineStage(CompletableFuture<T> future, Deadline deadline) {
+        this.future = future;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Starts a pipeline from an existing future, which is completed
+     * exceptionally if the deadline expires first.
+     */
+    public static <T> DeadlineStage<T> of(CompletableFuture<T> source,
+                                          Deadline deadline) {
+        return new DeadlineStage<>(deadline.bind(source), deadline);
+    }
+
+    /**
+     * Runs {@code supplier} as a {@link CompletableFutureTask}, interrupted
+     * if the deadline expires while it runs and skipped if it expires first.
+     */
+    public static <T> DeadlineStage<T> supplyAsync(Supplier<T> supplier,
+                                                   Executor executor,
+                                                   Deadline deadline) {
+        CompletableFutureTask<T> task = new CompletableFutureTask<>(supplier::get);
+        CompletableFuture<T> source = task.toCompletableFuture();
+        source.whenComplete((result, throwable) -> {
+            if (throwable instanceof DeadlineExceededException) {
+                task.cancel(true);
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            source.completeExceptionally(e);
+        }
+        return of(source, deadline);
+    }
+
+    public Deadline deadline() {
+        return deadline;
+    }
+
+    public <U> DeadlineStage<U> thenApply(Function<? super T, ? extends U> fn) {
+        return new DeadlineStage<>(future.thenApply(fn), deadline);
+    }
+
+    public <U> DeadlineStage<U> thenApplyAsync(Function<? super T, ? extends U> fn,
+                                               Executor executor) {
+        return new DeadlineStage<>(
+            deadline.bind(future.thenApplyAsync(fn, executor)), deadline);
+    }
+
+    /**
+     * The function receives the remaining deadline so it can pass the
+     * budget (or a {@link Deadline#slice(double) slice} of it) on to the
+     * call it makes.
+     */
+    public <U> DeadlineStage<U> thenCompose(
+        BiFunction<? super T, Deadline, ? extends CompletionStage<U>> fn) {
+        CompletableFuture<U> composed = future.thenCompose(t -> {
+            CompletionStage<U> inner = fn.apply(t, deadline);
+            deadline.bind(inner.toCompletableFuture());
+            return inner;
+        });
+        return new DeadlineStage<>(deadline.bind(composed), deadline);
+    }
+
+    public <U> DeadlineStage<U> thenCompose(
+        Function<? super T, ? extends CompletionStage<U>> fn) {
+        return thenCompose((t, ignored) -> fn.apply(t));
+    }
+
+    /**
+     * Combines with another stage under the earlier of the two deadlines.
+     * Only the combination is bound to it; {@code other} keeps its own.
+     */
+    public <U, V> DeadlineStage<V> thenCombine(
+        DeadlineStage<? extends U> other,
+        BiFunction<? super T, ? super U, ? extends V> fn) {
+        Deadline earlier = deadline.min(other.deadline);
+        return new DeadlineStage<>(
+            earlier.bind(future.thenCombine(other.future, fn)), earlier);
+    }
+
+    public DeadlineStage<Void> thenAccept(Consumer<? super T> action) {
+        return new DeadlineStage<>(future.thenAccept(action), deadline);
+    }
+
+    public DeadlineStage<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        return new DeadlineStage<>(future.exceptionally(fn), deadline);
+    }
+
+    /**
+     * Every stage's result, in order, or the first failure. Fails at the
+     * earliest of their deadlines; each stage keeps its own.
+     */
+    @SafeVarargs
+    public static <T> DeadlineStage<List<T>> allOf(DeadlineStage<? extends T>... stages) {
+        if (stages.length == 0) {
+            throw new IllegalArgumentException("allOf needs at least one stage");
+        }
+        Deadline earliest = stages[0].deadline;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            earliest = earliest.min(stages[i].deadline);
+            futures[i] = stages[i].future;
+        }
+        CompletableFuture<List<T>> all = CompletableFuture.allOf(futures).thenApply(v -> {
+            List<T> results = new ArrayList<>(stages.length);
+            for (DeadlineStage<? extends T> stage : stages) {
+                results.add(stage.future.join());
+            }
+            return results;
+        });
+        return new DeadlineStage<>(earliest.bind(all), earliest);
+    }
+
+    public CompletableFuture<T> toCompletableFuture() {
+        return future;
+    }
+}
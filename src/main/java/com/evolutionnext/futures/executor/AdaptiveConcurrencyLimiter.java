@@ -0,0 +1,208 @@
+package com.evolutionnext.futures.executor;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how many tasks may run at once on a delegate executor, and adapts
+ * the cap to the latency the tasks see, TCP Vegas style.
+ * <p>
+ * The lowest task run time observed is taken as the no-load latency. Once
+ * per window of {@code limit} completions the limit is compared with the
+ * window's average run time: {@code limit * (1 - noLoad / average)} is how
+ * many tasks are queueing somewhere downstream instead of being served.
+ * While that estimate is small the limit grows, and once it exceeds a
+ * threshold that scales with {@code log10(limit)} the limit shrinks. So
+ * the limit settles just above what the downstream can serve at once,
+ * whatever the size of the pool underneath.
+ * <p>
+ * Work over the limit waits in a queue of at most {@code maxQueued} tasks;
+ * beyond that it is shed with a {@link RejectedExecutionException}, so
+ * latency stays flat under overload instead of growing with an unbounded
+ * queue. The delegate should have at least {@code maxLimit} threads, since
+ * its own queueing is not measured. A queued task has already been
+ * accepted, so if the delegate rejects it when its turn comes it runs on
+ * the thread whose task freed the slot instead.
+ */
+public class AdaptiveConcurrencyLimiter implements Executor {
+
+    private final Executor delegate;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueued;
+    private final Queue<LimitedTask> queued = new ArrayDeque<>();
+    private final LongAdder shed = new LongAdder();
+
+    private double limit;
+    private int inFlight;
+    private long noLoadNanos = Long.MAX_VALUE;
+    private long windowNanos;
+    private int windowSamples;
+    private int windowPeakInFlight;
+
+    public AdaptiveConcurrencyLimiter(Executor delegate, int initialLimit,
+                                      int minLimit, int maxLimit, int maxQueued) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 0 < minLimit <= initialLimit <= " +
+                "maxLimit but was " + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued must not be negative: " + maxQueued);
+        }
+        this.delegate = delegate;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Runs {@code command} now if under the limit, otherwise queues it.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    @Override
+    public void execute(Runnable command) {
+        LimitedTask task = new LimitedTask(command);
+        synchronized (this) {
+            if (inFlight >= (int) limit) {
+                if (queued.size() >= maxQueued) {
+                    shed.increment();
+                    throw new RejectedExecutionException(
+                        "Over the concurrency limit of " + (int) limit);
+                }
+                queued.add(task);
+                return;
+            }
+            inFlight++;
+        }
+        dispatch(task);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queued.size();
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            delegate.execute(task);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                inFlight--;
+            }
+            throw e;
+        }
+    }
+
+    private void completed(long runNanos) {
+        LimitedTask next;
+        synchronized (this) {
+            sample(runNanos);
+            inFlight--;
+            next = pollIfUnderLimit();
+        }
+        while (next != null) {
+            try {
+                delegate.execute(next);
+                synchronized (this) {
+                    next = pollIfUnderLimit();
+                }
+            } catch (RejectedExecutionException e) {
+                long ranNanos = next.runHere();
+                synchronized (this) {
+                    sample(ranNanos);
+                    inFlight--;
+                    next = pollIfUnderLimit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Must hold the lock. Takes a queued task and counts it as in flight.
+     */
+    private LimitedTask pollIfUnderLimit() {
+        if (inFlight >= (int) limit || queued.isEmpty()) {
+            return null;
+        }
+        inFlight++;
+        return queued.poll();
+    }
+
+    /**
+     * Must hold the lock.
+     */
+    private void sample(long runNanos) {
+        noLoadNanos = Math.min(noLoadNanos, Math.max(1, runNanos));
+        windowNanos += runNanos;
+        windowSamples++;
+        windowPeakInFlight = Math.max(windowPeakInFlight, inFlight);
+        if (windowSamples < (int) limit) {
+            return;
+        }
+        double averageNanos = (double) windowNanos / windowSamples;
+        boolean limitWasReached = windowPeakInFlight >= (int) limit;
+        windowNanos = 0;
+        windowSamples = 0;
+        windowPeakInFlight = 0;
+
+        double log = Math.max(1, Math.log10(limit));
+        double queueing = Math.ceil(limit * (1 - noLoadNanos / averageNanos));
+        if (queueing > 6 * log) {
+            limit -= log;
+        } else if (queueing < 3 * log && limitWasReached) {
+            limit += queueing <= log ? 6 * log : log;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+
+    private final class LimitedTask implements Runnable {
+        private final Runnable task;
+
+        private LimitedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                completed(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Runs the task without releasing its slot, which the caller does,
+         * and reports a failure to the thread's handler.
+         *
+         * @return how long it ran
+         */
+        private long runHere() {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            }
+            return System.nanoTime() - start;
+        }
+    }
+}
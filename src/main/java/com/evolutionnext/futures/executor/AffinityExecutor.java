@@ -0,0 +1,266 @@
+package com.evolutionnext.futures.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A work-stealing pool for CPU-bound {@code thenApplyAsync} chains that
+ * keeps a continuation on the worker that completed its upstream stage.
+ * <p>
+ * Each worker owns a deque. A task submitted from one of the workers, which
+ * is what a continuation of a stage completed on that worker is, goes on
+ * the front of that worker's deque and runs next on the same thread, while
+ * the upstream's data is still in its cache. Every submission also wakes a
+ * parked worker, as ForkJoinPool does, so a task that blocks on the one it
+ * just submitted does not strand it; the owner still pops its own deque
+ * first, so a chain mostly stays put. Tasks submitted from outside go on a
+ * shared queue. An
+ * idle worker takes from its own deque first, then the shared queue, then
+ * steals from the back of the other workers' deques, and only parks when
+ * all of them are empty.
+ * <p>
+ * In CompletableFutureTest, integerFuture2 runs on the common pool and the
+ * other futures on another pool, so their continuations hop between the
+ * two. Here a chain stays on one thread unless another worker is idle and
+ * steals it. A task that throws is reported to the worker's uncaught
+ * exception handler; the worker goes on.
+ */
+public class AffinityExecutor extends AbstractExecutorService {
+
+    private final Worker[] workers;
+    private final Queue<Runnable> submissions = new ConcurrentLinkedQueue<>();
+    private final Queue<Worker> parked = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+    private final CountDownLatch terminated;
+    private final LongAdder local = new LongAdder();
+    private final LongAdder stolen = new LongAdder();
+    private volatile boolean shutdown;
+    private volatile boolean stopped;
+
+    /**
+     * One worker per processor.
+     */
+    public AffinityExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public AffinityExecutor(int parallelism) {
+        this(parallelism, ExecutorFactory.current().newThreadFactory("affinity"));
+    }
+
+    public AffinityExecutor(int parallelism, ThreadFactory threadFactory) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(
+                "parallelism must be positive: " + parallelism);
+        }
+        this.workers = new Worker[parallelism];
+        this.terminated = new CountDownLatch(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker worker : workers) {
+            worker.thread = threadFactory.newThread(worker);
+            worker.thread.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException("AffinityExecutor is shut down");
+        }
+        Worker current = currentWorker.get();
+        Queue<Runnable> queue = current == null ? submissions : current.deque;
+        if (current == null) {
+            submissions.offer(command);
+        } else {
+            current.deque.offerFirst(command);
+        }
+        // Shut down while queueing: the workers may already have exited, so
+        // take the task back and reject it, as ThreadPoolExecutor does.
+        if (shutdown && queue.remove(command)) {
+            throw new RejectedExecutionException("AffinityExecutor is shut down");
+        }
+        unparkOne();
+    }
+
+    /**
+     * @return how many tasks ran on the worker that submitted them
+     */
+    public long tasksRunLocally() {
+        return local.sum();
+    }
+
+    /**
+     * @return how many tasks submitted by one worker were run by another
+     */
+    public long tasksStolen() {
+        return stolen.sum();
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    private void unparkOne() {
+        Worker worker;
+        while ((worker = parked.poll()) != null) {
+            if (worker.parked.compareAndSet(true, false)) {
+                LockSupport.unpark(worker.thread);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    /**
+     * Interrupts the workers and returns the tasks that had not started.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        stopped = true;
+        shutdown();
+        List<Runnable> notStarted = new ArrayList<>();
+        Runnable task;
+        while ((task = submissions.poll()) != null) {
+            notStarted.add(task);
+        }
+        for (Worker worker : workers) {
+            while ((task = worker.deque.pollLast()) != null) {
+                notStarted.add(task);
+            }
+            worker.thread.interrupt();
+        }
+        return Collections.unmodifiableList(notStarted);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        private final ConcurrentLinkedDeque<Runnable> deque = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean parked = new AtomicBoolean();
+        private volatile Thread thread;
+
+        private Worker(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            currentWorker.set(this);
+            try {
+                while (true) {
+                    Runnable task = deque.pollFirst();
+                    if (task != null) {
+                        local.increment();
+                    } else {
+                        task = findWork();
+                    }
+                    if (task != null) {
+                        runTask(task);
+                    } else if (shutdown) {
+                        return;
+                    } else {
+                        park();
+                    }
+                }
+            } finally {
+                terminated.countDown();
+            }
+        }
+
+        private Runnable findWork() {
+            Runnable task = submissions.poll();
+            if (task != null) {
+                return task;
+            }
+            for (int i = 1; i < workers.length; i++) {
+                task = workers[(index + i) % workers.length].deque.pollLast();
+                if (task != null) {
+                    stolen.increment();
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Announces itself as parked before looking for work one last time,
+         * so a submission either sees it parked or is seen by the recheck.
+         */
+        private void park() {
+            if (parked.compareAndSet(false, true)) {
+                AffinityExecutor.this.parked.offer(this);
+            }
+            if (!deque.isEmpty() || hasWorkElsewhere() || shutdown) {
+                if (parked.compareAndSet(true, false)) {
+                    return;
+                }
+            }
+            while (parked.get() && !shutdown) {
+                LockSupport.park(AffinityExecutor.this);
+                if (Thread.interrupted() && shutdown) {
+                    return;
+                }
+            }
+        }
+
+        private boolean hasWorkElsewhere() {
+            if (!submissions.isEmpty()) {
+                return true;
+            }
+            for (Worker worker : workers) {
+                if (!worker.deque.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Clears any interrupt the previous task left behind so it does not
+         * reach this one, unless shutdownNow has asked the workers to stop.
+         */
+        private void runTask(Runnable task) {
+            if (Thread.interrupted() && stopped) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, t);
+            }
+        }
+    }
+}
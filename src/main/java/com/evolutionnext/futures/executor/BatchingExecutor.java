@@ -0,0 +1,184 @@
+package com.evolutionnext.futures.executor;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces many tiny tasks into batches that each run on one worker, so a
+ * million {@code supplyAsync(() -> 4000, executor)} calls cost a few
+ * thousand worker hand-offs and wake-ups instead of a million.
+ * <p>
+ * Submissions go onto a lock-free queue. The first submission into an
+ * empty queue dispatches a drain, either straight away ({@code window} of 0)
+ * or after {@code window} so that more submissions can join it. A drain
+ * runs up to {@code maxBatchSize} tasks back to back on the worker and
+ * dispatches another drain if more are waiting. Every
+ * {@code maxBatchSize} pending tasks also dispatch a full batch immediately,
+ * whatever the window.
+ * <p>
+ * Used as the executor of {@code CompletableFuture.supplyAsync} and friends,
+ * each task completes its own future; a failing task does not affect the
+ * rest of its batch.
+ * <p>
+ * If the workers reject the drain a submission dispatches, the submission
+ * is withdrawn and the rejection is rethrown, as a
+ * {@link ThreadPoolExecutor} would. A drain rejected after the window, when
+ * its tasks have already been accepted, is retried after another window
+ * until the executor is closed.
+ */
+public class BatchingExecutor implements Executor, AutoCloseable {
+
+    private final Executor workers;
+    private final ScheduledExecutorService timer;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final LongAdder batches = new LongAdder();
+    private final Runnable drain = this::drain;
+    private volatile boolean closed;
+
+    /**
+     * Batches as large as the queue allows, dispatched without waiting.
+     */
+    public BatchingExecutor(Executor workers, int maxBatchSize) {
+        this(workers, maxBatchSize, 0, TimeUnit.NANOSECONDS,
+            ExecutorRegistry.shared().scheduled());
+    }
+
+    public BatchingExecutor(Executor workers, int maxBatchSize, long window,
+                            TimeUnit unit, ScheduledExecutorService timer) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException(
+                "maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.workers = workers;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = unit.toNanos(window);
+        this.timer = timer;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (closed) {
+            throw new RejectedExecutionException("BatchingExecutor is closed");
+        }
+        queue.offer(command);
+        try {
+            if (pending.incrementAndGet() % maxBatchSize == 0) {
+                workers.execute(this::runFullBatch);
+            } else if (drainScheduled.compareAndSet(false, true)) {
+                if (windowNanos == 0) {
+                    dispatchDrain();
+                } else {
+                    scheduleDrain();
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // A drain already running may have taken the command; if so it
+            // has been accepted after all.
+            if (queue.remove(command)) {
+                pending.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return how many batches have run so far
+     */
+    public long batchesRun() {
+        return batches.sum();
+    }
+
+    public int pendingTasks() {
+        return pending.get();
+    }
+
+    /**
+     * Hands a drain to the workers; {@code drainScheduled} must already be
+     * set, and is cleared again if they reject it.
+     */
+    private void dispatchDrain() {
+        try {
+            workers.execute(drain);
+        } catch (RejectedExecutionException e) {
+            drainScheduled.set(false);
+            throw e;
+        }
+    }
+
+    private void scheduleDrain() {
+        try {
+            timer.schedule(this::drainAfterWindow, windowNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            drainScheduled.set(false);
+            throw e;
+        }
+    }
+
+    private void drainAfterWindow() {
+        try {
+            dispatchDrain();
+        } catch (RejectedExecutionException e) {
+            if (!closed && !queue.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        runBatch();
+        while (!queue.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+            try {
+                dispatchDrain();
+                return;
+            } catch (RejectedExecutionException e) {
+                // Keep draining on this worker instead.
+                runBatch();
+            }
+        }
+    }
+
+    private void runFullBatch() {
+        if (pending.get() >= maxBatchSize) {
+            runBatch();
+        }
+    }
+
+    private void runBatch() {
+        int ran = 0;
+        Runnable task;
+        while (ran < maxBatchSize && (task = queue.poll()) != null) {
+            pending.decrementAndGet();
+            // Counted before the first task runs, so whoever sees a task's
+            // result also sees its batch in batchesRun().
+            if (ran++ == 0) {
+                batches.increment();
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            }
+        }
+    }
+
+    /**
+     * Rejects further tasks; those already queued still run, unless the
+     * workers reject their drain, which is rethrown.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (!queue.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+            dispatchDrain();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.evolutionnext.futures.executor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Finds {@link ForkJoinPool} workers that are blocked without telling
+ * their pool, such as the {@code get()} in testFutureToCompletable.
+ * <p>
+ * Each {@link #scan} takes the stack of every worker of the pool and
+ * reports the ones that are parked, sleeping or waiting for a monitor,
+ * except for workers idling in the pool itself and waits the pool
+ * compensates for: {@link ForkJoinPool#managedBlock} (so
+ * {@link ManagedBlocking} and {@code CompletableFuture.get()}) and
+ * {@link ForkJoinTask#join()}. A worker is reported once per wait, when a
+ * scan first finds it blocked. {@link #start} scans on a timer.
+ * <p>
+ * Scanning takes every thread's stack, so a period of a second or more
+ * suits production use.
+ */
+public final class BlockingDetector implements AutoCloseable {
+
+    private static final Set<String> PARKING_CLASSES = new HashSet<>(Arrays.asList(
+        "jdk.internal.misc.Unsafe", "sun.misc.Unsafe", "java.util.concurrent.locks.LockSupport"));
+
+    private final ForkJoinPool pool;
+    private final Consumer<? super BlockingCall> reporter;
+    private final LongAdder reported = new LongAdder();
+    private Set<Long> blockedLastScan = new HashSet<>();
+    private volatile ScheduledFuture<?> scanning;
+
+    /**
+     * @param pool     the pool to watch, or null for every pool
+     * @param reporter gets each blocking call found
+     */
+    public BlockingDetector(ForkJoinPool pool, Consumer<? super BlockingCall> reporter) {
+        this.pool = pool;
+        this.reporter = reporter;
+    }
+
+    /**
+     * Scans every {@code period} on the shared registry's timer until
+     * {@link #close()}.
+     */
+    public BlockingDetector start(long period, TimeUnit unit) {
+        return start(ExecutorRegistry.shared().scheduled(), period, unit);
+    }
+
+    public BlockingDetector start(ScheduledExecutorService timer, long period, TimeUnit unit) {
+        scanning = timer.scheduleAtFixedRate(this::scan, period, period, unit);
+        return this;
+    }
+
+    /**
+     * @return the blocking calls not seen by the previous scan, each also
+     * given to the reporter
+     */
+    public synchronized List<BlockingCall> scan() {
+        List<BlockingCall> found = new ArrayList<>();
+        Set<Long> blocked = new HashSet<>();
+        for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            Thread thread = entry.getKey();
+            if (!(thread instanceof ForkJoinWorkerThread) ||
+                (pool != null && ((ForkJoinWorkerThread) thread).getPool() != pool)) {
+                continue;
+            }
+            Thread.State state = thread.getState();
+            StackTraceElement[] stack = entry.getValue();
+            if (!isUnmanagedBlock(state, stack)) {
+                continue;
+            }
+            blocked.add(thread.getId());
+            if (!blockedLastScan.contains(thread.getId())) {
+                found.add(new BlockingCall(thread.getName(), state, stack));
+            }
+        }
+        blockedLastScan = blocked;
+        for (BlockingCall call : found) {
+            reported.increment();
+            reporter.accept(call);
+        }
+        return found;
+    }
+
+    static boolean isUnmanagedBlock(Thread.State state, StackTraceElement[] stack) {
+        if (state != Thread.State.WAITING && state != Thread.State.TIMED_WAITING &&
+            state != Thread.State.BLOCKED) {
+            return false;
+        }
+        int caller = 0;
+        while (caller < stack.length && PARKING_CLASSES.contains(stack[caller].getClassName())) {
+            caller++;
+        }
+        if (caller == stack.length) {
+            return false;
+        }
+        String waitingIn = stack[caller].getClassName();
+        if (waitingIn.equals(ForkJoinPool.class.getName()) ||
+            waitingIn.equals(ForkJoinTask.class.getName())) {
+            return false;
+        }
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().equals(ForkJoinPool.class.getName()) &&
+                frame.getMethodName().equals("managedBlock")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * How many blocking calls have been reported so far.
+     */
+    public long getReported() {
+        return reported.sum();
+    }
+
+    @Override
+    public void close() {
+        ScheduledFuture<?> scheduled = scanning;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    /**
+     * A pool worker found blocked, with its stack when found.
+     */
+    public static final class BlockingCall {
+        private final String threadName;
+        private final Thread.State state;
+        private final StackTraceElement[] stackTrace;
+
+        BlockingCall(String threadName, Thread.State state, StackTraceElement[] stackTrace) {
+            this.threadName = threadName;
+            this.state = state;
+            this.stackTrace = stackTrace;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public Thread.State getState() {
+            return state;
+        }
+
+        public StackTraceElement[] getStackTrace() {
+            return stackTrace.clone();
+        }
+
+        /**
+         * The first frame outside the JDK: the code that made the call.
+         */
+        public StackTraceElement getCaller() {
+            for (StackTraceElement frame : stackTrace) {
+                String className = frame.getClassName();
+                if (!className.startsWith("java.") && !className.startsWith("jdk.") &&
+                    !className.startsWith("sun.")) {
+                    return frame;
+                }
+            }
+            return stackTrace.length > 0 ? stackTrace[0] : null;
+        }
+
+        @Override
+        public String toString() {
+            return threadName + " " + state + " at " + getCaller();
+        }
+    }
+}
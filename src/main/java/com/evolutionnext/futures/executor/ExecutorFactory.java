@@ -0,0 +1,134 @@
+package com.evolutionnext.futures.executor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out the executors the blocking demos submit their work to, either
+ * backed by platform threads or by one virtual thread per task.
+ * <p>
+ * The mode is picked with the {@code futures.executor} system property
+ * ({@code platform} or {@code virtual}), see {@link #current()}. The build
+ * still targets 17, so {@code Executors.newVirtualThreadPerTaskExecutor()}
+ * is looked up reflectively and is only available on a 21+ runtime.
+ */
+public enum ExecutorFactory {
+
+    PLATFORM {
+        @Override
+        public ExecutorService newFixedThreadPool(int threads) {
+            return Executors.newFixedThreadPool(threads);
+        }
+
+        @Override
+        public ExecutorService newCachedThreadPool() {
+            return Executors.newCachedThreadPool();
+        }
+
+        @Override
+        public ThreadFactory newThreadFactory(String prefix) {
+            AtomicInteger counter = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable,
+                    prefix + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    },
+
+    /**
+     * Every task gets its own virtual thread. The fixed pool size is
+     * ignored: a blocked virtual thread only costs a small heap object, so
+     * there is nothing to bound.
+     */
+    VIRTUAL {
+        @Override
+        public ExecutorService newFixedThreadPool(int threads) {
+            return newVirtualThreadPerTaskExecutor();
+        }
+
+        @Override
+        public ExecutorService newCachedThreadPool() {
+            return newVirtualThreadPerTaskExecutor();
+        }
+
+        @Override
+        public ThreadFactory newThreadFactory(String prefix) {
+            requireVirtualThreads();
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+                builder = ofVirtual.getMethod("name", String.class, long.class)
+                                   .invoke(builder, prefix + "-", 1L);
+                return (ThreadFactory) ofVirtual.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    public static final String MODE_PROPERTY = "futures.executor";
+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR =
+        findVirtualThreadPerTaskExecutor();
+
+    public abstract ExecutorService newFixedThreadPool(int threads);
+
+    public abstract ExecutorService newCachedThreadPool();
+
+    /**
+     * Threads named {@code prefix-1}, {@code prefix-2}, ... for the bounded
+     * pools in {@link ExecutorRegistry}. Platform threads are daemons so a
+     * shared pool never keeps the JVM alive.
+     */
+    public abstract ThreadFactory newThreadFactory(String prefix);
+
+    /**
+     * @return the factory selected by the {@code futures.executor} system
+     * property, {@link #PLATFORM} when it is not set.
+     */
+    public static ExecutorFactory current() {
+        return valueOf(System.getProperty(MODE_PROPERTY, "platform")
+                             .toUpperCase(Locale.ROOT));
+    }
+
+    public static boolean virtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    private static void requireVirtualThreads() {
+        if (!virtualThreadsSupported()) {
+            throw new UnsupportedOperationException(
+                "Virtual threads require Java 21, running on " +
+                    System.getProperty("java.version"));
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        requireVirtualThreads();
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static MethodHandle findVirtualThreadPerTaskExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class,
+                "newVirtualThreadPerTaskExecutor",
+                MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
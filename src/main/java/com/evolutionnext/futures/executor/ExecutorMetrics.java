@@ -0,0 +1,84 @@
+package com.evolutionnext.futures.executor;
+
+/**
+ * A point-in-time reading of an {@link InstrumentedExecutorService}.
+ */
+public final class ExecutorMetrics {
+
+    private final String name;
+    private final LatencyHistogram.Snapshot queueWait;
+    private final LatencyHistogram.Snapshot runTime;
+    private final LatencyHistogram.Snapshot callbackLatency;
+    private final long activeCount;
+    private final long queuedCount;
+    private final long completedTaskCount;
+    private final long rejectedTaskCount;
+
+    ExecutorMetrics(String name,
+                    LatencyHistogram.Snapshot queueWait,
+                    LatencyHistogram.Snapshot runTime,
+                    LatencyHistogram.Snapshot callbackLatency,
+                    long activeCount, long queuedCount,
+                    long completedTaskCount, long rejectedTaskCount) {
+        this.name = name;
+        this.queueWait = queueWait;
+        this.runTime = runTime;
+        this.callbackLatency = callbackLatency;
+        this.activeCount = activeCount;
+        this.queuedCount = queuedCount;
+        this.completedTaskCount = completedTaskCount;
+        this.rejectedTaskCount = rejectedTaskCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Nanoseconds from submission until a worker picked the task up.
+     */
+    public LatencyHistogram.Snapshot getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * Nanoseconds spent in the task body.
+     */
+    public LatencyHistogram.Snapshot getRunTime() {
+        return runTime;
+    }
+
+    /**
+     * Nanoseconds from the end of a submitted task's body until its future
+     * was completed and its direct listeners had run. Tasks passed to
+     * {@code execute} are not included.
+     */
+    public LatencyHistogram.Snapshot getCallbackLatency() {
+        return callbackLatency;
+    }
+
+    public long getActiveCount() {
+        return activeCount;
+    }
+
+    public long getQueuedCount() {
+        return queuedCount;
+    }
+
+    public long getCompletedTaskCount() {
+        return completedTaskCount;
+    }
+
+    public long getRejectedTaskCount() {
+        return rejectedTaskCount;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": active=" + activeCount + ", queued=" + queuedCount +
+            ", completed=" + completedTaskCount + ", rejected=" + rejectedTaskCount +
+            "\n  queueWait " + queueWait +
+            "\n  runTime " + runTime +
+            "\n  callbackLatency " + callbackLatency;
+    }
+}
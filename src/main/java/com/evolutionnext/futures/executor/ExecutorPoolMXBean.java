@@ -0,0 +1,30 @@
+package com.evolutionnext.futures.executor;
+
+/**
+ * JMX view of one {@link ExecutorRegistry} pool, registered as
+ * {@code com.evolutionnext.futures:type=ExecutorPool,registry=<id>,name=<pool>}.
+ * The same object is returned by {@link ExecutorRegistry#metrics(String)}
+ * for pull-based metrics without going through JMX.
+ */
+public interface ExecutorPoolMXBean {
+
+    String getName();
+
+    int getMaximumPoolSize();
+
+    int getPoolSize();
+
+    int getLargestPoolSize();
+
+    int getActiveCount();
+
+    int getQueueSize();
+
+    int getQueueCapacity();
+
+    long getCompletedTaskCount();
+
+    long getRejectedTaskCount();
+
+    String getRejectionPolicy();
+}
@@ -0,0 +1,365 @@
+package com.evolutionnext.futures.executor;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named, bounded pools shared by everything that needs an executor, in
+ * place of a new {@code Executors.newCachedThreadPool()} per call.
+ * <p>
+ * Three pools always exist: {@link #cpu()} sized to the processors for
+ * computation, {@link #io()} with more threads for blocking calls, and
+ * {@link #scheduled()} for timers. More can be added with
+ * {@link #register(PoolConfig)}. Every pool has a fixed thread count, a
+ * bounded queue and a {@link RejectionPolicy}; idle threads time out, so
+ * an unused pool holds no threads. Threads come from
+ * {@link ExecutorFactory#current()}, so the virtual-thread mode still
+ * applies; in that mode the io pool starts a virtual thread per task
+ * rather than capping them, since a blocked virtual thread costs next to
+ * nothing.
+ * <p>
+ * The default io pool runs a task on the submitting thread once its queue
+ * is full, which slows the submitter down rather than failing its call.
+ * <p>
+ * Callers get a view of each pool they cannot shut down; {@link #close()}
+ * shuts down all pools and unregisters their MBeans. Each pool is exposed
+ * as an {@link ExecutorPoolMXBean}.
+ */
+public final class ExecutorRegistry implements AutoCloseable {
+
+    public static final String CPU = "cpu";
+    public static final String IO = "io";
+    public static final String SCHEDULED = "scheduled";
+
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private static final class SharedHolder {
+        private static final ExecutorRegistry SHARED = create();
+
+        private static ExecutorRegistry create() {
+            ExecutorRegistry registry = new ExecutorRegistry("shared");
+            Runtime.getRuntime().addShutdownHook(
+                new Thread(registry::close, "executor-registry-shutdown"));
+            return registry;
+        }
+    }
+
+    private final String id;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * A registry with the default cpu, io and scheduled pools.
+     */
+    public ExecutorRegistry(String id) {
+        this(id,
+            PoolConfig.of(CPU, PROCESSORS, 10_000, RejectionPolicy.CALLER_RUNS),
+            PoolConfig.of(IO, 64, 10_000, RejectionPolicy.CALLER_RUNS),
+            PoolConfig.of(SCHEDULED, Math.max(2, PROCESSORS), 100_000,
+                RejectionPolicy.ABORT));
+    }
+
+    public ExecutorRegistry(String id, PoolConfig cpu, PoolConfig io,
+                            PoolConfig scheduled) {
+        this.id = id;
+        register(cpu);
+        registerIo(io);
+        registerScheduled(scheduled);
+    }
+
+    /**
+     * The process-wide registry, closed by a shutdown hook.
+     */
+    public static ExecutorRegistry shared() {
+        return SharedHolder.SHARED;
+    }
+
+    public ExecutorService cpu() {
+        return executor(CPU);
+    }
+
+    public ExecutorService io() {
+        return executor(IO);
+    }
+
+    public ScheduledExecutorService scheduled() {
+        return (ScheduledExecutorService) executor(SCHEDULED);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no pool has that name
+     */
+    public ExecutorService executor(String name) {
+        return pool(name).view;
+    }
+
+    public ExecutorPoolMXBean metrics(String name) {
+        return pool(name);
+    }
+
+    /**
+     * Adds a named pool.
+     *
+     * @throws IllegalStateException if the name is taken or the registry
+     *                               has been closed
+     */
+    public ExecutorService register(PoolConfig config) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            config.getThreads(), config.getThreads(),
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(config.getQueueCapacity()),
+            ExecutorFactory.current().newThreadFactory(id + "-" + config.getName()));
+        executor.allowCoreThreadTimeOut(true);
+        return register(config, executor);
+    }
+
+    /**
+     * In virtual mode the io pool hands every task straight to a new
+     * virtual thread, so its thread count and queue capacity go unused.
+     */
+    private void registerIo(PoolConfig config) {
+        ExecutorFactory factory = ExecutorFactory.current();
+        if (factory != ExecutorFactory.VIRTUAL) {
+            register(config);
+            return;
+        }
+        register(config, new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            0, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            factory.newThreadFactory(id + "-" + config.getName())));
+    }
+
+    private ExecutorService register(PoolConfig config, ThreadPoolExecutor executor) {
+        Pool pool = new Pool(config, executor,
+            new SharedExecutorService(config.getName(), executor));
+        executor.setRejectedExecutionHandler((runnable, threadPoolExecutor) -> {
+            pool.rejected.increment();
+            config.getRejectionPolicy().handler()
+                  .rejectedExecution(runnable, threadPoolExecutor);
+        });
+        return add(pool).view;
+    }
+
+    private void registerScheduled(PoolConfig config) {
+        BoundedScheduledThreadPoolExecutor executor =
+            new BoundedScheduledThreadPoolExecutor(config,
+                ExecutorFactory.current().newThreadFactory(id + "-" + config.getName()));
+        Pool pool = new Pool(config, executor,
+            new SharedScheduledExecutorService(config.getName(), executor));
+        executor.rejected = pool.rejected;
+        add(pool);
+    }
+
+    private Pool add(Pool pool) {
+        if (closed) {
+            pool.executor.shutdownNow();
+            throw new IllegalStateException("ExecutorRegistry " + id + " is closed");
+        }
+        if (pools.putIfAbsent(pool.config.getName(), pool) != null) {
+            pool.executor.shutdownNow();
+            throw new IllegalStateException(
+                "Pool '" + pool.config.getName() + "' is already registered");
+        }
+        registerMBean(pool);
+        return pool;
+    }
+
+    private Pool pool(String name) {
+        Pool pool = pools.get(name);
+        if (pool == null) {
+            throw new IllegalArgumentException("No pool named '" + name + "'");
+        }
+        return pool;
+    }
+
+    private ObjectName objectName(String poolName) throws JMException {
+        return new ObjectName("com.evolutionnext.futures:type=ExecutorPool,registry="
+            + ObjectName.quote(id) + ",name=" + ObjectName.quote(poolName));
+    }
+
+    private void registerMBean(Pool pool) {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = objectName(pool.config.getName());
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(pool, objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void unregisterMBean(Pool pool) {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = objectName(pool.config.getName());
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stops accepting work, waits briefly for running tasks, then
+     * interrupts whatever is left.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Pool pool : pools.values()) {
+            pool.executor.shutdown();
+        }
+        for (Pool pool : pools.values()) {
+            try {
+                if (!pool.executor.awaitTermination(CLOSE_TIMEOUT_SECONDS,
+                    TimeUnit.SECONDS)) {
+                    pool.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                pool.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            unregisterMBean(pool);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private static final class Pool implements ExecutorPoolMXBean {
+        private final PoolConfig config;
+        private final ThreadPoolExecutor executor;
+        private final ExecutorService view;
+        private final LongAdder rejected = new LongAdder();
+
+        private Pool(PoolConfig config, ThreadPoolExecutor executor,
+                     ExecutorService view) {
+            this.config = config;
+            this.executor = executor;
+            this.view = view;
+        }
+
+        @Override
+        public String getName() {
+            return config.getName();
+        }
+
+        @Override
+        public int getMaximumPoolSize() {
+            return executor.getMaximumPoolSize();
+        }
+
+        @Override
+        public int getPoolSize() {
+            return executor.getPoolSize();
+        }
+
+        @Override
+        public int getLargestPoolSize() {
+            return executor.getLargestPoolSize();
+        }
+
+        @Override
+        public int getActiveCount() {
+            return executor.getActiveCount();
+        }
+
+        @Override
+        public int getQueueSize() {
+            return executor.getQueue().size();
+        }
+
+        @Override
+        public int getQueueCapacity() {
+            return config.getQueueCapacity();
+        }
+
+        @Override
+        public long getCompletedTaskCount() {
+            return executor.getCompletedTaskCount();
+        }
+
+        @Override
+        public long getRejectedTaskCount() {
+            return rejected.sum();
+        }
+
+        @Override
+        public String getRejectionPolicy() {
+            return config.getRejectionPolicy().name();
+        }
+    }
+
+    /**
+     * ScheduledThreadPoolExecutor's delay queue is unbounded, so the queue
+     * depth is checked on every schedule call. A full scheduled pool always
+     * rejects with RejectedExecutionException: running a delayed task on
+     * the caller or silently dropping a timer would both break its contract.
+     */
+    private static final class BoundedScheduledThreadPoolExecutor
+        extends ScheduledThreadPoolExecutor {
+        private final int queueCapacity;
+        private LongAdder rejected;
+
+        private BoundedScheduledThreadPoolExecutor(PoolConfig config,
+                                                   ThreadFactory threadFactory) {
+            super(config.getThreads(), threadFactory);
+            this.queueCapacity = config.getQueueCapacity();
+            setRemoveOnCancelPolicy(true);
+            setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            allowCoreThreadTimeOut(true);
+        }
+
+        private void checkCapacity() {
+            if (getQueue().size() >= queueCapacity) {
+                rejected.increment();
+                throw new RejectedExecutionException(
+                    "Scheduled queue is full (" + queueCapacity + " tasks)");
+            }
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay,
+                                           TimeUnit unit) {
+            checkCapacity();
+            return super.schedule(command, delay, unit);
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay,
+                                               TimeUnit unit) {
+            checkCapacity();
+            return super.schedule(callable, delay, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                      long initialDelay,
+                                                      long period,
+                                                      TimeUnit unit) {
+            checkCapacity();
+            return super.scheduleAtFixedRate(command, initialDelay, period, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                         long initialDelay,
+                                                         long delay,
+                                                         TimeUnit unit) {
+            checkCapacity();
+            return super.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+        }
+    }
+}
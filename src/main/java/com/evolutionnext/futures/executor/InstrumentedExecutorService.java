@@ -0,0 +1,245 @@
+package com.evolutionnext.futures.executor;
+
+import com.google.common.util.concurrent.AbstractListeningExecutorService;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorates an {@link ExecutorService} to record, per task, how long it
+ * waited in the queue, how long it ran and, for tasks submitted through
+ * {@code submit}, how long completing its future and running the future's
+ * direct listeners took. It also tracks how many tasks are queued and
+ * active.
+ * <p>
+ * The numbers can be pulled with {@link #metrics()} or recorded with JFR as
+ * {@code com.evolutionnext.futures.TaskExecution} events (see
+ * {@link TaskExecutionEvent}).
+ * <p>
+ * Timing a task takes three or four {@code System.nanoTime()} calls, which
+ * cost 20-50ns each depending on the clock source, so only one task in
+ * {@code sampleEvery}, picked at random, is timed; counts cover every task.
+ * With the default of {@value #DEFAULT_SAMPLE_EVERY} the overhead stays
+ * under 50ns per task ({@code InstrumentedExecutorBenchmark} measures it).
+ * Pass 1 to time every task.
+ * <p>
+ * A {@code CompletableFuture} stage run on this executor is seen as a plain
+ * task: its dependents run inside the task and count as run time.
+ */
+public class InstrumentedExecutorService extends AbstractListeningExecutorService {
+
+    public static final int DEFAULT_SAMPLE_EVERY = 16;
+
+    private final String name;
+    private final ExecutorService delegate;
+    private final int sampleEvery;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private final LatencyHistogram callbackLatency = new LatencyHistogram();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public InstrumentedExecutorService(String name, ExecutorService delegate) {
+        this(name, delegate, DEFAULT_SAMPLE_EVERY);
+    }
+
+    public InstrumentedExecutorService(String name, ExecutorService delegate,
+                                       int sampleEvery) {
+        if (sampleEvery <= 0) {
+            throw new IllegalArgumentException(
+                "sampleEvery must be positive: " + sampleEvery);
+        }
+        this.name = name;
+        this.delegate = delegate;
+        this.sampleEvery = sampleEvery;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ExecutorMetrics metrics() {
+        long completedCount = completed.sum();
+        long startedCount = started.sum();
+        long submittedCount = submitted.sum();
+        return new ExecutorMetrics(name, queueWait.snapshot(), runTime.snapshot(),
+            callbackLatency.snapshot(),
+            Math.max(0, startedCount - completedCount),
+            Math.max(0, submittedCount - startedCount),
+            completedCount, rejected.sum());
+    }
+
+    /**
+     * Clears the histograms, so that the next {@link #metrics()} covers only
+     * the tasks run since. Counts are not reset.
+     */
+    public void resetHistograms() {
+        queueWait.reset();
+        runTime.reset();
+        callbackLatency.reset();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        dispatch(sample() ? new TimedTask(command) : new CountedTask(command));
+    }
+
+    @Override
+    public <T> ListenableFuture<T> submit(Callable<T> task) {
+        if (!sample()) {
+            ListenableFutureTask<T> future = ListenableFutureTask.create(task);
+            dispatch(new CountedTask(future));
+            return future;
+        }
+        TimedTask timedTask = new TimedTask(null);
+        ListenableFutureTask<T> future = ListenableFutureTask.create(() -> {
+            try {
+                return task.call();
+            } finally {
+                timedTask.bodyEndNanos = System.nanoTime();
+            }
+        });
+        timedTask.task = future;
+        dispatch(timedTask);
+        return future;
+    }
+
+    @Override
+    public ListenableFuture<?> submit(Runnable task) {
+        return submit(Executors.callable(task));
+    }
+
+    @Override
+    public <T> ListenableFuture<T> submit(Runnable task, T result) {
+        return submit(Executors.callable(task, result));
+    }
+
+    private boolean sample() {
+        return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+
+    private void dispatch(TrackedTask task) {
+        submitted.increment();
+        try {
+            delegate.execute(task);
+        } catch (RejectedExecutionException e) {
+            submitted.decrement();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = delegate.shutdownNow();
+        List<Runnable> unwrapped = new ArrayList<>(pending.size());
+        for (Runnable runnable : pending) {
+            unwrapped.add(runnable instanceof TrackedTask ?
+                ((TrackedTask) runnable).task : runnable);
+        }
+        return unwrapped;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "InstrumentedExecutorService[" + name + ", " + delegate + ']';
+    }
+
+    private abstract static class TrackedTask implements Runnable {
+        Runnable task;
+
+        TrackedTask(Runnable task) {
+            this.task = task;
+        }
+    }
+
+    private final class CountedTask extends TrackedTask {
+
+        private CountedTask(Runnable task) {
+            super(task);
+        }
+
+        @Override
+        public void run() {
+            started.increment();
+            try {
+                task.run();
+            } finally {
+                completed.increment();
+            }
+        }
+    }
+
+    private final class TimedTask extends TrackedTask {
+        private final long enqueuedNanos = System.nanoTime();
+        private long bodyEndNanos;
+
+        private TimedTask(Runnable task) {
+            super(task);
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            started.increment();
+            try {
+                task.run();
+            } finally {
+                long end = System.nanoTime();
+                completed.increment();
+                record(start, end);
+            }
+        }
+
+        private void record(long start, long end) {
+            long waited = start - enqueuedNanos;
+            long ran;
+            long callback;
+            if (bodyEndNanos != 0) {
+                ran = bodyEndNanos - start;
+                callback = end - bodyEndNanos;
+                callbackLatency.record(callback);
+            } else {
+                ran = end - start;
+                callback = -1;
+            }
+            queueWait.record(waited);
+            runTime.record(ran);
+
+            TaskExecutionEvent event = new TaskExecutionEvent();
+            if (event.isEnabled()) {
+                event.executor = name;
+                event.queueWait = waited;
+                event.runTime = ran;
+                event.callbackLatency = callback;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.evolutionnext.futures.executor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free log-linear histogram of nanosecond latencies in the style of
+ * HdrHistogram: every power of two is split into 16 linear sub-buckets, so
+ * a recorded value is reported within 1/16 (6.25%) of what it was, from a
+ * nanosecond up to {@code Long.MAX_VALUE}, in a fixed 8KB of counts.
+ * <p>
+ * {@link #record(long)} is a single atomic increment and never allocates.
+ * Readers take a {@link #snapshot()}, which is not atomic with respect to
+ * concurrent recording but never loses a count.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records one value; negative values count as 0.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(Math.max(0, nanos)));
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    /**
+     * Clears every count, e.g. at the start of a reporting interval.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * The largest value that falls into bucket {@code index}.
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return lowest + (width - 1);
+    }
+
+    /**
+     * Counts frozen at the time of {@link #snapshot()}.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            this.totalCount = total;
+        }
+
+        public long count() {
+            return totalCount;
+        }
+
+        /**
+         * The value at or below which {@code percentile} percent of the
+         * recorded values fall, e.g. {@code valueAtPercentile(99.9)}.
+         * Returns 0 when nothing has been recorded.
+         */
+        public long valueAtPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException(
+                    "percentile must be between 0 and 100: " + percentile);
+            }
+            if (totalCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValueOf(i);
+                }
+            }
+            return max();
+        }
+
+        public long max() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return highestValueOf(i);
+                }
+            }
+            return 0;
+        }
+
+        public double mean() {
+            if (totalCount == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    long low = i == 0 ? 0 : highestValueOf(i - 1) + 1;
+                    sum += counts[i] * ((low + (double) highestValueOf(i)) / 2);
+                }
+            }
+            return sum / totalCount;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + totalCount + ", p50=" + valueAtPercentile(50) +
+                "ns, p99=" + valueAtPercentile(99) + "ns, p99.9=" +
+                valueAtPercentile(99.9) + "ns, max=" + max() + "ns";
+        }
+    }
+}
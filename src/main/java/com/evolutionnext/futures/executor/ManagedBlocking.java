@@ -0,0 +1,101 @@
+package com.evolutionnext.futures.executor;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Blocking waits that a {@link ForkJoinPool} knows about.
+ * <p>
+ * testFutureToCompletable calls {@code get()} on a plain {@link Future}
+ * inside {@code supplyAsync}. The common pool cannot tell that its worker
+ * is parked, so with enough such stages every worker waits on work queued
+ * behind them and the pool stops. Waiting through
+ * {@link ForkJoinPool#managedBlock} tells the pool first, and it starts a
+ * spare worker to keep its parallelism while this one waits. Off a pool
+ * thread these behave exactly like {@code get()} and {@code join()}.
+ * <p>
+ * {@link CompletableFuture#get()} and {@code join()} already do this; a
+ * {@link java.util.concurrent.FutureTask} or a Guava future does not.
+ */
+public final class ManagedBlocking {
+
+    private ManagedBlocking() {
+    }
+
+    public static <T> T get(Future<T> future) throws InterruptedException, ExecutionException {
+        ForkJoinPool.managedBlock(new FutureBlocker(future, false, 0));
+        return future.get();
+    }
+
+    public static <T> T get(Future<T> future, long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        ForkJoinPool.managedBlock(new FutureBlocker(future, true, deadline));
+        if (!future.isDone()) {
+            throw new TimeoutException("Not done after " + timeout + " " + unit);
+        }
+        return future.get();
+    }
+
+    /**
+     * Like {@link CompletableFuture#join()}: a failure is rethrown in a
+     * {@link CompletionException}, and an interrupt is not thrown but left
+     * set on the thread.
+     */
+    public static <T> T join(Future<T> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    ForkJoinPool.managedBlock(new FutureBlocker(future, false, 0));
+                    return future.get();
+                } catch (ExecutionException e) {
+                    throw new CompletionException(e.getCause());
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class FutureBlocker implements ForkJoinPool.ManagedBlocker {
+        private final Future<?> future;
+        private final boolean timed;
+        private final long deadline;
+
+        private FutureBlocker(Future<?> future, boolean timed, long deadline) {
+            this.future = future;
+            this.timed = timed;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            try {
+                if (timed) {
+                    future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } else {
+                    future.get();
+                }
+            } catch (ExecutionException | CancellationException | TimeoutException e) {
+                // Done waiting; the caller reads the outcome.
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return future.isDone() || (timed && deadline - System.nanoTime() <= 0);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.evolutionnext.futures.executor;
+
+import java.util.Objects;
+
+/**
+ * Size, queue depth and rejection policy of one named pool in an
+ * {@link ExecutorRegistry}.
+ */
+public final class PoolConfig {
+
+    private final String name;
+    private final int threads;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+
+    private PoolConfig(String name, int threads, int queueCapacity,
+                       RejectionPolicy rejectionPolicy) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException(
+                "queueCapacity must be positive: " + queueCapacity);
+        }
+        this.name = Objects.requireNonNull(name, "name");
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = Objects.requireNonNull(rejectionPolicy, "rejectionPolicy");
+    }
+
+    public static PoolConfig of(String name, int threads, int queueCapacity,
+                                RejectionPolicy rejectionPolicy) {
+        return new PoolConfig(name, threads, queueCapacity, rejectionPolicy);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfig{" +
+            "name='" + name + '\'' +
+            ", threads=" + threads +
+            ", queueCapacity=" + queueCapacity +
+            ", rejectionPolicy=" + rejectionPolicy +
+            '}';
+    }
+}
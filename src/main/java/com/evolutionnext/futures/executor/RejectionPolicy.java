@@ -0,0 +1,36 @@
+package com.evolutionnext.futures.executor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * What a registry pool does with a task once its queue is full.
+ */
+public enum RejectionPolicy {
+    /**
+     * Throw {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    ABORT(new ThreadPoolExecutor.AbortPolicy()),
+    /**
+     * Run the task on the submitting thread, which slows the submitter down.
+     */
+    CALLER_RUNS(new ThreadPoolExecutor.CallerRunsPolicy()),
+    /**
+     * Silently drop the task.
+     */
+    DISCARD(new ThreadPoolExecutor.DiscardPolicy()),
+    /**
+     * Drop the oldest queued task and retry.
+     */
+    DISCARD_OLDEST(new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    private final RejectedExecutionHandler handler;
+
+    RejectionPolicy(RejectedExecutionHandler handler) {
+        this.handler = handler;
+    }
+
+    public RejectedExecutionHandler handler() {
+        return handler;
+    }
+}
@@ -0,0 +1,38 @@
+package com.evolutionnext.futures.executor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One task run by an {@link InstrumentedExecutorService}, emitted only while
+ * a recording has the event enabled.
+ */
+@Name("com.evolutionnext.futures.TaskExecution")
+@Label("Task Execution")
+@Category({"Futures", "Executor"})
+@Description("Queue wait, run time and completion-callback latency of one task")
+@StackTrace(false)
+class TaskExecutionEvent extends Event {
+
+    @Label("Executor")
+    String executor;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+
+    @Label("Run Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long runTime;
+
+    @Label("Callback Latency")
+    @Description("Time spent completing the task's future and running its direct listeners, "
+        + "or -1 for a task submitted through execute()")
+    @Timespan(Timespan.NANOSECONDS)
+    long callbackLatency;
+}
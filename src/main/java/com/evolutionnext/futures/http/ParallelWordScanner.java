@@ -0,0 +1,217 @@
+package com.evolutionnext.futures.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Tokenizes a large body of bytes on every worker of a
+ * {@link ForkJoinPool} at once.
+ * <p>
+ * testGuavaFutureFlatMapEquivalent searches a download with
+ * {@code lines().flatMap(split)} on one thread, decoding every line.
+ * Here the input, a {@link ByteBuffer} or a memory-mapped file, is halved
+ * recursively until pieces are {@code minChunkBytes} or smaller, each cut
+ * moved forward to the next delimiter so no word is split. Each piece is
+ * run through a {@link WordTokenizer} into its own {@link WordSink}, so
+ * words are matched on their bytes, and the pieces' results are merged in
+ * input order with a combiner.
+ * <p>
+ * A file is mapped in regions of at most {@code regionBytes}, also cut at
+ * delimiters, since one mapping cannot exceed 2 GB. Cancelling the returned
+ * future skips the pieces not yet started.
+ */
+public final class ParallelWordScanner {
+
+    static final int DEFAULT_MIN_CHUNK_BYTES = 1 << 20;
+    static final long DEFAULT_REGION_BYTES = 1L << 30;
+
+    private final ForkJoinPool pool;
+    private final int minChunkBytes;
+    private final long regionBytes;
+
+    public ParallelWordScanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelWordScanner(ForkJoinPool pool) {
+        this(pool, DEFAULT_MIN_CHUNK_BYTES);
+    }
+
+    public ParallelWordScanner(ForkJoinPool pool, int minChunkBytes) {
+        this(pool, minChunkBytes, DEFAULT_REGION_BYTES);
+    }
+
+    ParallelWordScanner(ForkJoinPool pool, int minChunkBytes, long regionBytes) {
+        if (minChunkBytes <= 0) {
+            throw new IllegalArgumentException("minChunkBytes must be positive: " + minChunkBytes);
+        }
+        if (regionBytes <= 0 || regionBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                "regionBytes must be between 1 and " + Integer.MAX_VALUE + ": " + regionBytes);
+        }
+        this.pool = pool;
+        this.minChunkBytes = minChunkBytes;
+        this.regionBytes = regionBytes;
+    }
+
+    /**
+     * Scans the remaining bytes of {@code bytes}, leaving its position
+     * alone.
+     *
+     * @param sinks    makes a sink for each piece
+     * @param combiner merges the results of two adjacent pieces, left first
+     */
+    public <R> CompletableFuture<R> scan(ByteBuffer bytes, Supplier<? extends WordSink<R>> sinks,
+                                         BinaryOperator<R> combiner) {
+        ByteBuffer input = bytes.slice();
+        return submit(result -> new Chunk<>(input, 0, input.limit(), sinks, combiner, result)
+            .invoke());
+    }
+
+    /**
+     * Maps {@code file} read-only and scans all of it. Fails with the
+     * {@link IOException} if it cannot be opened.
+     */
+    public <R> CompletableFuture<R> scan(Path file, Supplier<? extends WordSink<R>> sinks,
+                                         BinaryOperator<R> combiner) {
+        return submit(result -> {
+            List<ByteBuffer> regions = map(file);
+            List<Chunk<R>> chunks = new ArrayList<>(regions.size());
+            for (ByteBuffer region : regions) {
+                Chunk<R> chunk = new Chunk<>(region, 0, region.limit(), sinks, combiner, result);
+                chunk.fork();
+                chunks.add(chunk);
+            }
+            R merged = null;
+            for (int i = 0; i < chunks.size(); i++) {
+                R part = chunks.get(i).join();
+                merged = i == 0 ? part : combiner.apply(merged, part);
+            }
+            return merged == null ? sinks.get().result() : merged;
+        });
+    }
+
+    public CompletableFuture<Long> countWords(Path file) {
+        return scan(file, WordSink::counting, Long::sum);
+    }
+
+    /**
+     * The words of {@code file} that contain {@code needle}, in order.
+     */
+    public CompletableFuture<List<String>> wordsContaining(Path file, String needle) {
+        return scan(file, () -> WordSink.containing(needle), (left, right) -> {
+            left.addAll(right);
+            return left;
+        });
+    }
+
+    private interface Scan<R> {
+        R run(CompletableFuture<R> result) throws IOException;
+    }
+
+    private <R> CompletableFuture<R> submit(Scan<R> scan) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        pool.execute(() -> {
+            try {
+                result.complete(scan.run(result));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    private List<ByteBuffer> map(Path file) throws IOException {
+        List<ByteBuffer> regions = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(size, start + regionBytes);
+                if (end < size) {
+                    end = nextDelimiter(channel, end, size);
+                }
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException("A word at " + start + " in " + file +
+                        " does not fit in one mapping");
+                }
+                regions.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+        }
+        return regions;
+    }
+
+    private static long nextDelimiter(FileChannel channel, long position, long size)
+        throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        int read;
+        while (position < size && (read = channel.read(probe.clear(), position)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (WordTokenizer.isDelimiter(probe.get(i))) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    @SuppressWarnings("serial")
+    private final class Chunk<R> extends RecursiveTask<R> {
+        private final ByteBuffer bytes;
+        private final int from;
+        private final int to;
+        private final Supplier<? extends WordSink<R>> sinks;
+        private final BinaryOperator<R> combiner;
+        private final CompletableFuture<R> result;
+
+        private Chunk(ByteBuffer bytes, int from, int to, Supplier<? extends WordSink<R>> sinks,
+                      BinaryOperator<R> combiner, CompletableFuture<R> result) {
+            this.bytes = bytes;
+            this.from = from;
+            this.to = to;
+            this.sinks = sinks;
+            this.combiner = combiner;
+            this.result = result;
+        }
+
+        @Override
+        protected R compute() {
+            if (result.isDone()) {
+                throw new CancellationException("The scan was cancelled");
+            }
+            int cut = to - from > minChunkBytes ? cutAfter(from + (to - from) / 2) : to;
+            if (cut >= to) {
+                WordTokenizer<R> tokenizer = new WordTokenizer<>(sinks.get());
+                tokenizer.feed(bytes.duplicate().limit(to).position(from));
+                return tokenizer.finish();
+            }
+            Chunk<R> right = new Chunk<>(bytes, cut, to, sinks, combiner, result);
+            right.fork();
+            R left = new Chunk<>(bytes, from, cut, sinks, combiner, result).compute();
+            return combiner.apply(left, right.join());
+        }
+
+        /**
+         * The first delimiter at or after {@code index}, or {@code to}.
+         */
+        private int cutAfter(int index) {
+            while (index < to && !WordTokenizer.isDelimiter(bytes.get(index))) {
+                index++;
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.evolutionnext.futures.http;
+
+import com.evolutionnext.futures.bridge.FutureBridges;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+/**
+ * Fetches a URL asynchronously and tokenizes the body into words while it
+ * streams in, replacing the per-call thread pool + URLConnection +
+ * {@code String.split(" ")} helpers from the demos.
+ * <p>
+ * One {@link HttpClient} is shared by every call, so fetching does not
+ * create threads per request and no thread blocks on a socket read. The
+ * body is fed buffer by buffer through a {@link WordTokenizer} into a
+ * {@link WordSink}, which decides what, if anything, is materialized.
+ */
+public class UrlContentFetcher {
+
+    private final HttpClient httpClient;
+
+    public UrlContentFetcher() {
+        this(HttpClient.newBuilder()
+                       .followRedirects(HttpClient.Redirect.NORMAL)
+                       .build());
+    }
+
+    public UrlContentFetcher(Executor executor) {
+        this(HttpClient.newBuilder()
+                       .followRedirects(HttpClient.Redirect.NORMAL)
+                       .executor(executor)
+                       .build());
+    }
+
+    public UrlContentFetcher(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Streams the body of {@code uri} into {@code sink}. The future fails
+     * with an {@link IOException} for a non-2xx response.
+     */
+    public <R> CompletableFuture<R> fetch(URI uri, WordSink<R> sink) {
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        return httpClient
+            .sendAsync(request, responseInfo -> new WordBodySubscriber<>(sink))
+            .thenApply(response -> {
+                if (response.statusCode() / 100 != 2) {
+                    throw new CompletionException(new IOException(
+                        "GET " + uri + " returned " + response.statusCode()));
+                }
+                return response.body();
+            });
+    }
+
+    /**
+     * Every word of the body, the same shape the old
+     * {@code downloadingContentFromURL} helpers returned.
+     */
+    public CompletableFuture<Stream<String>> fetchWords(String url) {
+        return fetch(URI.create(url), WordSink.toList()).thenApply(List::stream);
+    }
+
+    public ListenableFuture<Stream<String>> fetchWordsListenable(String url) {
+        return FutureBridges.toListenableFuture(fetchWords(url));
+    }
+
+    /**
+     * The words of the body as they arrive, at most {@code bufferSize} or
+     * so ahead of what the subscriber has requested; the body is only read
+     * from the socket as fast as the subscriber consumes it. The request is
+     * sent when a subscriber subscribes, once per subscriber. A non-2xx
+     * response fails the subscriber with an {@link IOException}.
+     */
+    public Flow.Publisher<String> publishWords(URI uri, int bufferSize) {
+        return subscriber -> {
+            WordPublisher words = new WordPublisher(bufferSize);
+            words.subscribe(subscriber);
+            HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+            httpClient.sendAsync(request, responseInfo -> {
+                if (responseInfo.statusCode() / 100 != 2) {
+                    words.onError(new IOException(
+                        "GET " + uri + " returned " + responseInfo.statusCode()));
+                    return HttpResponse.BodySubscribers.discarding();
+                }
+                return HttpResponse.BodySubscribers.fromSubscriber(words);
+            }).whenComplete((response, throwable) -> {
+                if (throwable != null) {
+                    words.onError(throwable instanceof CompletionException &&
+                        throwable.getCause() != null ? throwable.getCause() : throwable);
+                }
+            });
+        };
+    }
+
+    /**
+     * Pulls one list of buffers at a time and feeds it to the tokenizer, so
+     * at most one network read worth of body is held in memory.
+     */
+    static class WordBodySubscriber<R> implements HttpResponse.BodySubscriber<R> {
+        private final WordTokenizer<R> tokenizer;
+        private final CompletableFuture<R> body = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        WordBodySubscriber(WordSink<R> sink) {
+            this.tokenizer = new WordTokenizer<>(sink);
+        }
+
+        @Override
+        public CompletionStage<R> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    tokenizer.feed(buffer);
+                }
+            } catch (RuntimeException e) {
+                subscription.cancel();
+                body.completeExceptionally(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                body.complete(tokenizer.finish());
+            } catch (RuntimeException e) {
+                body.completeExceptionally(e);
+            }
+        }
+    }
+}
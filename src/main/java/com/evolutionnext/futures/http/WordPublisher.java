@@ -0,0 +1,225 @@
+package com.evolutionnext.futures.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns a body published as lists of {@link ByteBuffer}s, as the
+ * {@code java.net.http} client and {@code HttpResponse.BodyHandlers.ofPublisher}
+ * deliver it, into a {@link Flow.Publisher} of its words, with backpressure
+ * all the way back to the source.
+ * <p>
+ * Words are decoded into a buffer of about {@code bufferSize} words. The
+ * next list of buffers is requested from upstream only once the buffer
+ * has drained below that, so however big the body, memory holds at most
+ * {@code bufferSize} words plus the words of one list of buffers, and a
+ * slow subscriber slows down the network read rather than piling up words.
+ * <p>
+ * Only one subscriber is allowed. Signals to it are serialized, and may
+ * come from the upstream thread or the thread calling {@code request}.
+ */
+public class WordPublisher implements Flow.Processor<List<ByteBuffer>, String> {
+
+    private final int bufferSize;
+    private final Queue<String> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicInteger maxBuffered = new AtomicInteger();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final WordTokenizer<Void> tokenizer;
+
+    private volatile Flow.Subscriber<? super String> downstream;
+    private volatile Flow.Subscription upstream;
+    private volatile boolean upstreamRequested;
+    private volatile boolean upstreamDone;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private volatile Throwable badRequest;
+    private boolean terminated;
+
+    public WordPublisher(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.tokenizer = new WordTokenizer<>(new WordSink<>() {
+            @Override
+            public void accept(byte[] bytes, int offset, int length) {
+                buffer.offer(new String(bytes, offset, length, StandardCharsets.UTF_8));
+                int size = buffered.incrementAndGet();
+                if (size > maxBuffered.get()) {
+                    maxBuffered.set(size);
+                }
+            }
+
+            @Override
+            public Void result() {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return the most words that were ever waiting for the subscriber
+     */
+    public int getMaxBuffered() {
+        return maxBuffered.get();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        synchronized (this) {
+            if (downstream == null) {
+                downstream = subscriber;
+                subscriber.onSubscribe(new WordSubscription());
+                drain();
+                return;
+            }
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onError(new IllegalStateException("WordPublisher allows one subscriber"));
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    /**
+     * Runs on the upstream thread; tokenizing is only ever done here.
+     */
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        for (ByteBuffer byteBuffer : buffers) {
+            tokenizer.feed(byteBuffer);
+        }
+        upstreamRequested = false;
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        tokenizer.finish();
+        upstreamDone = true;
+        drain();
+    }
+
+    /**
+     * Delivers buffered words against demand and tops the buffer up from
+     * upstream. Only one thread drains at a time; a call that finds another
+     * draining leaves it to go round again.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            Flow.Subscriber<? super String> subscriber = downstream;
+            if (subscriber != null && !terminated) {
+                emit(subscriber);
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void emit(Flow.Subscriber<? super String> subscriber) {
+        if (badRequest != null && !cancelled) {
+            cancelUpstream();
+            subscriber.onError(badRequest);
+            return;
+        }
+        while (demand.get() > 0 && !cancelled) {
+            String word = buffer.poll();
+            if (word == null) {
+                break;
+            }
+            buffered.decrementAndGet();
+            if (demand.get() != Long.MAX_VALUE) {
+                demand.decrementAndGet();
+            }
+            subscriber.onNext(word);
+        }
+        if (cancelled) {
+            cancelUpstream();
+            return;
+        }
+        if (upstreamDone && buffer.isEmpty()) {
+            terminated = true;
+            Throwable failure = error;
+            if (failure != null) {
+                subscriber.onError(failure);
+            } else {
+                subscriber.onComplete();
+            }
+            return;
+        }
+        Flow.Subscription subscription = upstream;
+        if (subscription != null && !upstreamDone && !upstreamRequested &&
+            buffered.get() < bufferSize) {
+            upstreamRequested = true;
+            subscription.request(1);
+        }
+    }
+
+    /**
+     * Must be draining.
+     */
+    private void cancelUpstream() {
+        cancelled = true;
+        terminated = true;
+        buffer.clear();
+        Flow.Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private final class WordSubscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("request must be positive: " + n);
+            } else {
+                demand.accumulateAndGet(n, (current, added) ->
+                    current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.evolutionnext.futures.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Receives the words of a body as raw UTF-8 bytes, one call per word, and
+ * turns them into a result once the body is done.
+ * <p>
+ * The array passed to {@link #accept(byte[], int, int)} is reused by the
+ * caller, so an implementation that keeps a word must copy it (or decode it
+ * to a String) before returning. Implementations are used from one thread
+ * at a time and need not be thread safe.
+ */
+public interface WordSink<R> {
+
+    void accept(byte[] bytes, int offset, int length);
+
+    R result();
+
+    /**
+     * Decodes every word into a String.
+     */
+    static WordSink<List<String>> toList() {
+        return new WordSink<>() {
+            private final List<String> words = new ArrayList<>();
+
+            @Override
+            public void accept(byte[] bytes, int offset, int length) {
+                words.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public List<String> result() {
+                return words;
+            }
+        };
+    }
+
+    /**
+     * Decodes only the words containing {@code needle}; every other word is
+     * matched on its bytes and never becomes a String.
+     */
+    static WordSink<List<String>> containing(String needle) {
+        byte[] pattern = needle.getBytes(StandardCharsets.UTF_8);
+        return new WordSink<>() {
+            private final List<String> words = new ArrayList<>();
+
+            @Override
+            public void accept(byte[] bytes, int offset, int length) {
+                if (indexOf(bytes, offset, length, pattern) >= 0) {
+                    words.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+                }
+            }
+
+            @Override
+            public List<String> result() {
+                return words;
+            }
+        };
+    }
+
+    /**
+     * Counts words without decoding any of them.
+     */
+    static WordSink<Long> counting() {
+        return new WordSink<>() {
+            private long count;
+
+            @Override
+            public void accept(byte[] bytes, int offset, int length) {
+                count++;
+            }
+
+            @Override
+            public Long result() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * @return the index of {@code pattern} within
+     * {@code bytes[offset, offset + length)} relative to {@code offset}, or
+     * -1 when it does not occur.
+     */
+    static int indexOf(byte[] bytes, int offset, int length, byte[] pattern) {
+        if (pattern.length == 0) {
+            return 0;
+        }
+        int last = offset + length - pattern.length;
+        byte first = pattern[0];
+        outer:
+        for (int i = offset; i <= last; i++) {
+            if (bytes[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i - offset;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,97 @@
+package com.evolutionnext.futures.http;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits a stream of UTF-8 {@link ByteBuffer}s into words on spaces, tabs
+ * and line breaks, handing each word to a {@link WordSink} as a byte range.
+ * <p>
+ * Words that lie entirely inside a heap buffer are passed straight out of
+ * its backing array; only a word that straddles two buffers is copied into
+ * a carry-over array. No line Strings or split arrays are built. Empty
+ * words (runs of delimiters) are skipped. Not thread safe.
+ */
+public final class WordTokenizer<R> {
+
+    private static final int SCRATCH_SIZE = 8192;
+
+    private final WordSink<R> sink;
+    private byte[] partial = new byte[64];
+    private int partialLength;
+    private byte[] scratch;
+
+    public WordTokenizer(WordSink<R> sink) {
+        this.sink = sink;
+    }
+
+    public static boolean isDelimiter(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /**
+     * Consumes the remaining bytes of {@code buffer}, advancing its position.
+     */
+    public void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int start = buffer.arrayOffset() + buffer.position();
+            feed(buffer.array(), start, start + buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            if (scratch == null) {
+                scratch = new byte[SCRATCH_SIZE];
+            }
+            while (buffer.hasRemaining()) {
+                int length = Math.min(scratch.length, buffer.remaining());
+                buffer.get(scratch, 0, length);
+                feed(scratch, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Consumes {@code bytes[from, to)}.
+     */
+    public void feed(byte[] bytes, int from, int to) {
+        int wordStart = from;
+        for (int i = from; i < to; i++) {
+            if (isDelimiter(bytes[i])) {
+                if (partialLength > 0) {
+                    append(bytes, wordStart, i);
+                    flush();
+                } else if (i > wordStart) {
+                    sink.accept(bytes, wordStart, i - wordStart);
+                }
+                wordStart = i + 1;
+            }
+        }
+        if (wordStart < to) {
+            append(bytes, wordStart, to);
+        }
+    }
+
+    /**
+     * Emits the trailing word, if any, and returns the sink's result.
+     */
+    public R finish() {
+        flush();
+        return sink.result();
+    }
+
+    private void append(byte[] bytes, int from, int to) {
+        int length = to - from;
+        if (partialLength + length > partial.length) {
+            partial = Arrays.copyOf(partial,
+                Math.max(partial.length * 2, partialLength + length));
+        }
+        System.arraycopy(bytes, from, partial, partialLength, length);
+        partialLength += length;
+    }
+
+    private void flush() {
+        if (partialLength > 0) {
+            sink.accept(partial, 0, partialLength);
+            partialLength = 0;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.evolutionnext.futures.lazy;
+
+import com.evolutionnext.futures.bridge.CompletableFutureTask;
+import com.evolutionnext.futures.executor.ExecutorRegistry;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A future that does nothing until someone asks for its value.
+ * <p>
+ * {@code submit} and {@code supplyAsync} start work straight away, even
+ * when nothing ever reads the result. A LazyFuture starts on the first
+ * {@link #get} or {@link #toCompletableFuture}, runs once however many
+ * threads ask at the same time, and keeps its result for later callers.
+ * {@link #thenApply}, {@link #thenCompose} and {@link #thenCombine} build
+ * more lazy futures without starting this one.
+ * <p>
+ * Each {@link #toCompletableFuture} call is a subscriber. Cancelling a
+ * subscriber's future withdraws its interest; once every subscriber has
+ * withdrawn before the result is in, the work is cancelled (a task given to
+ * {@link #supplyAsync} is interrupted if running) and, for a derived
+ * future, so is its interest in its inputs. The next subscriber starts
+ * over. {@link #cancel} instead cancels the future for good.
+ * <p>
+ * Callers of {@link #get} share one subscription, which a timed-out get
+ * leaves in place so polling with a timeout does not restart the work. It
+ * is withdrawn when a waiting thread is interrupted and no other thread is
+ * waiting.
+ */
+public final class LazyFuture<T> implements Future<T> {
+
+    private static final CompletableFuture<?> CANCELLED = new CompletableFuture<>();
+
+    static {
+        CANCELLED.cancel(false);
+    }
+
+    private final Supplier<? extends CompletableFuture<T>> start;
+    private CompletableFuture<T> source;
+    private int subscribers;
+    private int starts;
+    private CompletableFuture<T> polled;
+    private int waiting;
+
+    private LazyFuture(Supplier<? extends CompletableFuture<T>> start) {
+        this.start = start;
+    }
+
+    /**
+     * Defers a call that returns a stage, such as a
+     * {@code CompletableFuture.supplyAsync} or a client call, until the
+     * value is needed.
+     */
+    public static <T> LazyFuture<T> of(Supplier<? extends CompletionStage<T>> call) {
+        return new LazyFuture<>(() -> call.get().toCompletableFuture());
+    }
+
+    /**
+     * Runs {@code supplier} on the shared registry's CPU pool when the
+     * value is needed.
+     */
+    public static <T> LazyFuture<T> supplyAsync(Supplier<T> supplier) {
+        return supplyAsync(supplier, ExecutorRegistry.shared().cpu());
+    }
+
+    public static <T> LazyFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        return new LazyFuture<>(() -> {
+            CompletableFutureTask<T> task = new CompletableFutureTask<>(supplier::get);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return task.toCompletableFuture();
+        });
+    }
+
+    public static <T> LazyFuture<T> completed(T value) {
+        return new LazyFuture<>(() -> CompletableFuture.completedFuture(value));
+    }
+
+    public <U> LazyFuture<U> thenApply(Function<? super T, ? extends U> fn) {
+        return new LazyFuture<>(() -> {
+            CompletableFuture<T> input = toCompletableFuture();
+            return linked(input.thenApply(fn), input);
+        });
+    }
+
+    public <U> LazyFuture<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return new LazyFuture<>(() -> {
+            CompletableFuture<T> input = toCompletableFuture();
+            return linked(input.thenCompose(fn), input);
+        });
+    }
+
+    public <U, R> LazyFuture<R> thenCombine(LazyFuture<? extends U> other,
+                                            BiFunction<? super T, ? super U, ? extends R> fn) {
+        return new LazyFuture<>(() -> {
+            CompletableFuture<T> input = toCompletableFuture();
+            CompletableFuture<? extends U> otherInput = other.toCompletableFuture();
+            return linked(input.thenCombine(otherInput, fn), input, otherInput);
+        });
+    }
+
+    /**
+     * Withdraws from the inputs when {@code result} fails or is cancelled,
+     * so one failed input does not keep the other running.
+     */
+    private static <R> CompletableFuture<R> linked(CompletableFuture<R> result,
+                                                   CompletableFuture<?>... inputs) {
+        result.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                for (CompletableFuture<?> input : inputs) {
+                    input.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Subscribes, starting the work if nobody has yet.
+     *
+     * @return a future of the value that this subscriber may cancel to
+     * withdraw its interest
+     */
+    public CompletableFuture<T> toCompletableFuture() {
+        CompletableFuture<T> current;
+        synchronized (this) {
+            if (source == null) {
+                starts++;
+                try {
+                    source = start.get();
+                } catch (RuntimeException e) {
+                    source = CompletableFuture.failedFuture(e);
+                }
+                subscribers = 0;
+            }
+            current = source;
+            if (current == CANCELLED) {
+                CompletableFuture<T> cancelled = new CompletableFuture<>();
+                cancelled.cancel(false);
+                return cancelled;
+            }
+            if (current.isDone()) {
+                return current.copy();
+            }
+            subscribers++;
+        }
+        CompletableFuture<T> subscriber = new CompletableFuture<>();
+        current.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                subscriber.complete(value);
+            } else {
+                subscriber.completeExceptionally(unwrap(throwable));
+            }
+        });
+        subscriber.whenComplete((value, throwable) -> {
+            if (subscriber.isCancelled()) {
+                unsubscribe(current);
+            }
+        });
+        return subscriber;
+    }
+
+    private void unsubscribe(CompletableFuture<T> subscribed) {
+        synchronized (this) {
+            if (source != subscribed || subscribed.isDone() || --subscribers > 0) {
+                return;
+            }
+            source = null;
+        }
+        subscribed.cancel(true);
+    }
+
+    /**
+     * Whether the work has been started and not abandoned since.
+     */
+    public synchronized boolean isStarted() {
+        return source != null;
+    }
+
+    /**
+     * How many times the work has been started; more than once only if it
+     * was abandoned by every subscriber and then asked for again.
+     */
+    public synchronized int getStarts() {
+        return starts;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        CompletableFuture<T> subscriber = startWaiting();
+        boolean interrupted = false;
+        try {
+            return subscriber.get();
+        } catch (InterruptedException e) {
+            interrupted = true;
+            throw e;
+        } finally {
+            stopWaiting(subscriber, interrupted);
+        }
+    }
+
+    /**
+     * A timeout leaves the work running for the next call.
+     */
+    @Override
+    public T get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        CompletableFuture<T> subscriber = startWaiting();
+        boolean interrupted = false;
+        try {
+            return subscriber.get(timeout, unit);
+        } catch (InterruptedException e) {
+            interrupted = true;
+            throw e;
+        } finally {
+            stopWaiting(subscriber, interrupted);
+        }
+    }
+
+    private synchronized CompletableFuture<T> startWaiting() {
+        if (polled == null) {
+            polled = toCompletableFuture();
+        }
+        waiting++;
+        return polled;
+    }
+
+    private void stopWaiting(CompletableFuture<T> subscriber, boolean interrupted) {
+        synchronized (this) {
+            waiting--;
+            if (!interrupted || waiting > 0 || polled != subscriber) {
+                return;
+            }
+            polled = null;
+        }
+        subscriber.cancel(true);
+    }
+
+    /**
+     * Cancels the work if it has started and makes every later subscriber
+     * fail with a {@link CancellationException}.
+     *
+     * @return false if the value was already in
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        CompletableFuture<T> running;
+        synchronized (this) {
+            if (source != null && source.isDone() && source != CANCELLED) {
+                return false;
+            }
+            running = source;
+            source = (CompletableFuture<T>) CANCELLED;
+        }
+        if (running != null) {
+            running.cancel(mayInterruptIfRunning);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return source != null && source.isCancelled();
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return source != null && source.isDone();
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException &&
+            throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+}
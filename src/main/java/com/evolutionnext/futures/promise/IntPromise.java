@@ -0,0 +1,101 @@
+package com.evolutionnext.futures.promise;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * A promise of an {@code int}, for the create / thenAccept / complete(42)
+ * pattern of testCompletableFuturePromise without the boxing and the
+ * per-dependent Completion node of a {@code CompletableFuture<Integer>}.
+ * <p>
+ * Completing it and running a single {@link #thenAccept(IntConsumer)}
+ * callback allocates nothing but the promise itself. Callbacks run on the
+ * thread that completes the promise, or on the registering thread if it is
+ * already done; an exception thrown by a callback goes to that thread's
+ * uncaught exception handler. Use {@link #toCompletableFuture()} and
+ * {@link #from(CompletionStage)} to cross over to {@link CompletionStage}
+ * code, at the cost of a box.
+ */
+public final class IntPromise extends PrimitivePromise {
+
+    private int value;
+
+    public static IntPromise completed(int value) {
+        IntPromise promise = new IntPromise();
+        promise.complete(value);
+        return promise;
+    }
+
+    /**
+     * A promise completed by {@code stage}. A {@code null} result fails it
+     * with a {@link NullPointerException}.
+     */
+    public static IntPromise from(CompletionStage<? extends Number> stage) {
+        IntPromise promise = new IntPromise();
+        stage.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                promise.completeExceptionally(throwable);
+            } else if (result == null) {
+                promise.completeExceptionally(
+                    new NullPointerException("stage completed with null"));
+            } else {
+                promise.complete(result.intValue());
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * @return false if the promise was already done
+     */
+    public boolean complete(int value) {
+        if (!tryClaim()) {
+            return false;
+        }
+        this.value = value;
+        succeeded();
+        return true;
+    }
+
+    public IntPromise thenAccept(IntConsumer action) {
+        addCallback(action);
+        return this;
+    }
+
+    public IntPromise onFailure(Consumer<? super Throwable> action) {
+        addFailureCallback(action);
+        return this;
+    }
+
+    /**
+     * Waits for the value, failing like {@link CompletableFuture#join()}.
+     */
+    public int join() {
+        awaitSuccess();
+        return value;
+    }
+
+    public int getNow(int valueIfAbsent) {
+        return isDone() ? join() : valueIfAbsent;
+    }
+
+    public CompletableFuture<Integer> toCompletableFuture() {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        thenAccept(future::complete);
+        onFailure(future::completeExceptionally);
+        return future;
+    }
+
+    @Override
+    void deliver(Object callback) {
+        ((IntConsumer) callback).accept(value);
+    }
+
+    @Override
+    public String toString() {
+        return "IntPromise[" + (!isDone() ? "Incomplete" :
+            isCompletedExceptionally() ? "Failed: " + failure() : "Completed: " + value) + ']';
+    }
+}
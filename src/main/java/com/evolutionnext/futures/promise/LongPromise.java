@@ -0,0 +1,101 @@
+package com.evolutionnext.futures.promise;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A promise of a {@code long}, for the create / thenAccept / complete(42)
+ * pattern of testCompletableFuturePromise without the boxing and the
+ * per-dependent Completion node of a {@code CompletableFuture<Long>}.
+ * <p>
+ * Completing it and running a single {@link #thenAccept(LongConsumer)}
+ * callback allocates nothing but the promise itself. Callbacks run on the
+ * thread that completes the promise, or on the registering thread if it is
+ * already done; an exception thrown by a callback goes to that thread's
+ * uncaught exception handler. Use {@link #toCompletableFuture()} and
+ * {@link #from(CompletionStage)} to cross over to {@link CompletionStage}
+ * code, at the cost of a box.
+ */
+public final class LongPromise extends PrimitivePromise {
+
+    private long value;
+
+    public static LongPromise completed(long value) {
+        LongPromise promise = new LongPromise();
+        promise.complete(value);
+        return promise;
+    }
+
+    /**
+     * A promise completed by {@code stage}. A {@code null} result fails it
+     * with a {@link NullPointerException}.
+     */
+    public static LongPromise from(CompletionStage<? extends Number> stage) {
+        LongPromise promise = new LongPromise();
+        stage.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                promise.completeExceptionally(throwable);
+            } else if (result == null) {
+                promise.completeExceptionally(
+                    new NullPointerException("stage completed with null"));
+            } else {
+                promise.complete(result.longValue());
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * @return false if the promise was already done
+     */
+    public boolean complete(long value) {
+        if (!tryClaim()) {
+            return false;
+        }
+        this.value = value;
+        succeeded();
+        return true;
+    }
+
+    public LongPromise thenAccept(LongConsumer action) {
+        addCallback(action);
+        return this;
+    }
+
+    public LongPromise onFailure(Consumer<? super Throwable> action) {
+        addFailureCallback(action);
+        return this;
+    }
+
+    /**
+     * Waits for the value, failing like {@link CompletableFuture#join()}.
+     */
+    public long join() {
+        awaitSuccess();
+        return value;
+    }
+
+    public long getNow(long valueIfAbsent) {
+        return isDone() ? join() : valueIfAbsent;
+    }
+
+    public CompletableFuture<Long> toCompletableFuture() {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        thenAccept(future::complete);
+        onFailure(future::completeExceptionally);
+        return future;
+    }
+
+    @Override
+    void deliver(Object callback) {
+        ((LongConsumer) callback).accept(value);
+    }
+
+    @Override
+    public String toString() {
+        return "LongPromise[" + (!isDone() ? "Incomplete" :
+            isCompletedExceptionally() ? "Failed: " + failure() : "Completed: " + value) + ']';
+    }
+}
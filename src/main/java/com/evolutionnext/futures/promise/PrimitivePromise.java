@@ -0,0 +1,206 @@
+package com.evolutionnext.futures.promise;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * State and callback bookkeeping shared by {@link IntPromise} and
+ * {@link LongPromise}; subclasses own the primitive value and know how to
+ * hand it to their callbacks.
+ * <p>
+ * The first callback is stored as is, so a promise with one dependent
+ * allocates nothing beyond itself. Further callbacks are pushed onto a
+ * linked stack and run in registration order. Completion swaps the stack
+ * for a sentinel, after which new callbacks run straight away on the
+ * registering thread.
+ */
+abstract class PrimitivePromise {
+
+    private static final int PENDING = 0;
+    private static final int COMPLETING = 1;
+    private static final int SUCCEEDED = 2;
+    private static final int FAILED = 3;
+
+    private static final Object DONE = new Object();
+
+    private static final VarHandle STATE;
+    private static final VarHandle CALLBACKS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            STATE = lookup.findVarHandle(PrimitivePromise.class, "state", int.class);
+            CALLBACKS = lookup.findVarHandle(PrimitivePromise.class,
+                "callbacks", Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile int state;
+    private volatile Object callbacks;
+    private Throwable failure;
+
+    /**
+     * Runs a callback registered through {@link #addCallback(Object)} with
+     * the successful value.
+     */
+    abstract void deliver(Object callback);
+
+    /**
+     * Claims the promise for a successful completion. The caller stores the
+     * value and then calls {@link #succeeded()}.
+     */
+    final boolean tryClaim() {
+        return STATE.compareAndSet(this, PENDING, COMPLETING);
+    }
+
+    final void succeeded() {
+        state = SUCCEEDED;
+        fire();
+    }
+
+    public final boolean completeExceptionally(Throwable throwable) {
+        if (throwable == null) {
+            throw new NullPointerException("throwable");
+        }
+        if (!tryClaim()) {
+            return false;
+        }
+        failure = throwable;
+        state = FAILED;
+        fire();
+        return true;
+    }
+
+    public final boolean cancel() {
+        return completeExceptionally(new CancellationException());
+    }
+
+    public final boolean isDone() {
+        return state >= SUCCEEDED;
+    }
+
+    public final boolean isCompletedExceptionally() {
+        return state == FAILED;
+    }
+
+    /**
+     * Runs {@code action} if this promise fails. Only the failure is
+     * delivered; value callbacks are skipped.
+     */
+    final void addFailureCallback(Consumer<? super Throwable> action) {
+        addCallback(new OnFailure(action));
+    }
+
+    final void addCallback(Object callback) {
+        Object current;
+        do {
+            current = callbacks;
+            if (current == DONE) {
+                run(callback);
+                return;
+            }
+        } while (!CALLBACKS.compareAndSet(this, current,
+            current == null ? callback : new Node(callback, current)));
+    }
+
+    /**
+     * Parks the caller until the promise is done, then throws its failure
+     * wrapped like {@code CompletableFuture.join()} does.
+     */
+    final void awaitSuccess() {
+        if (!isDone()) {
+            Thread waiter = Thread.currentThread();
+            addCallback(new Wake(waiter));
+            boolean interrupted = false;
+            while (!isDone()) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                waiter.interrupt();
+            }
+        }
+        if (state == FAILED) {
+            throw failure instanceof CancellationException ?
+                (CancellationException) failure : new CompletionException(failure);
+        }
+    }
+
+    final Throwable failure() {
+        return failure;
+    }
+
+    private void fire() {
+        Object current = CALLBACKS.getAndSet(this, DONE);
+        if (current == null) {
+            return;
+        }
+        if (!(current instanceof Node)) {
+            run(current);
+            return;
+        }
+        List<Object> stack = new ArrayList<>();
+        Object node = current;
+        while (node instanceof Node) {
+            stack.add(((Node) node).callback);
+            node = ((Node) node).next;
+        }
+        stack.add(node);
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            run(stack.get(i));
+        }
+    }
+
+    private void run(Object callback) {
+        try {
+            if (callback instanceof Wake) {
+                LockSupport.unpark(((Wake) callback).thread);
+            } else if (callback instanceof OnFailure) {
+                if (state == FAILED) {
+                    ((OnFailure) callback).action.accept(failure);
+                }
+            } else if (state == SUCCEEDED) {
+                deliver(callback);
+            }
+        } catch (Throwable t) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+        }
+    }
+
+    private static final class Node {
+        private final Object callback;
+        private final Object next;
+
+        private Node(Object callback, Object next) {
+            this.callback = callback;
+            this.next = next;
+        }
+    }
+
+    private static final class OnFailure {
+        private final Consumer<? super Throwable> action;
+
+        private OnFailure(Consumer<? super Throwable> action) {
+            this.action = action;
+        }
+    }
+
+    private static final class Wake {
+        private final Thread thread;
+
+        private Wake(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.evolutionnext.futures.resilience;
+
+import com.evolutionnext.futures.executor.ExecutorRegistry;
+import com.evolutionnext.futures.executor.LatencyHistogram;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hedges slow calls: if a call has not answered within the delay most
+ * calls answer in, a duplicate is sent, and whichever answers first wins.
+ * The loser is cancelled.
+ * <p>
+ * The delay is the {@code percentile} latency of the first attempts seen
+ * so far, so at p95 only about one call in twenty is duplicated, in
+ * exchange for cutting the tail those calls would have hit. A first
+ * attempt cancelled because its duplicate won counts with the time it had
+ * taken by then, so the tail it was cut from still shows. Until
+ * {@code MIN_SAMPLES} calls have been seen, {@code initialDelay} is used.
+ * A call that fails before the delay is up sends its duplicate straight
+ * away; the result only fails once both have failed, with a new
+ * {@link CompletionException} caused by the second failure and carrying
+ * the first as suppressed.
+ * <p>
+ * Hedging only suits calls that are safe to make twice.
+ */
+public class Hedger {
+
+    static final int MIN_SAMPLES = 20;
+
+    private final ScheduledExecutorService timer;
+    private final double percentile;
+    private final long initialDelayNanos;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+
+    public Hedger(double percentile, long initialDelay, TimeUnit unit) {
+        this(ExecutorRegistry.shared().scheduled(), percentile, initialDelay, unit);
+    }
+
+    public Hedger(ScheduledExecutorService timer, double percentile, long initialDelay,
+                  TimeUnit unit) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in (0, 100]: " + percentile);
+        }
+        this.timer = timer;
+        this.percentile = percentile;
+        this.initialDelayNanos = unit.toNanos(initialDelay);
+    }
+
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletionStage<T>> call) {
+        calls.increment();
+        return new HedgedCall<>(call).start();
+    }
+
+    /**
+     * @return how long a call may take before it is hedged
+     */
+    public long currentDelay(TimeUnit unit) {
+        LatencyHistogram.Snapshot snapshot = latencies.snapshot();
+        long delay = snapshot.count() < MIN_SAMPLES ?
+            initialDelayNanos : snapshot.valueAtPercentile(percentile);
+        return unit.convert(delay, TimeUnit.NANOSECONDS);
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    private final class HedgedCall<T> {
+        private final Supplier<? extends CompletionStage<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final CompletableFuture<?>[] attempts = new CompletableFuture<?>[2];
+        private volatile Future<?> timeout;
+        private volatile Throwable firstFailure;
+
+        private HedgedCall(Supplier<? extends CompletionStage<T>> call) {
+            this.call = call;
+        }
+
+        private CompletableFuture<T> start() {
+            result.whenComplete((t, throwable) -> cancelAll());
+            send(0);
+            if (!result.isDone()) {
+                try {
+                    timeout = timer.schedule(this::hedge,
+                        currentDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // No timer, no hedge: the first attempt decides.
+                }
+            }
+            return result;
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (result.isDone() || attempts[1] != null) {
+                    return;
+                }
+                attempts[1] = CompletableFuture.completedFuture(null);
+            }
+            hedges.increment();
+            send(1);
+        }
+
+        private void send(int index) {
+            long start = System.nanoTime();
+            CompletableFuture<T> attempt = invoke();
+            synchronized (this) {
+                attempts[index] = attempt;
+            }
+            if (result.isDone()) {
+                attempt.cancel(true);
+                return;
+            }
+            attempt.whenComplete((value, throwable) -> {
+                if (index == 0 && (throwable == null || attempt.isCancelled())) {
+                    latencies.record(System.nanoTime() - start);
+                }
+                if (throwable == null) {
+                    result.complete(value);
+                } else if (!attempt.isCancelled()) {
+                    failed(RetryPolicy.unwrap(throwable));
+                }
+            });
+        }
+
+        private CompletableFuture<T> invoke() {
+            try {
+                return call.get().toCompletableFuture();
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        private void failed(Throwable failure) {
+            if (failures.incrementAndGet() == 1) {
+                firstFailure = failure;
+                Future<?> scheduled = timeout;
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                hedge();
+                return;
+            }
+            // The attempts' exceptions may be shared, so they are wrapped
+            // rather than changed.
+            CompletionException combined = new CompletionException(failure);
+            Throwable first = firstFailure;
+            if (first != null && first != failure) {
+                combined.addSuppressed(first);
+            }
+            result.completeExceptionally(combined);
+        }
+
+        private void cancelAll() {
+            Future<?> scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            CompletableFuture<?>[] sent;
+            synchronized (this) {
+                sent = attempts.clone();
+            }
+            for (CompletableFuture<?> attempt : sent) {
+                if (attempt != null) {
+                    attempt.cancel(true);
+                }
+            }
+        }
+    }
+}
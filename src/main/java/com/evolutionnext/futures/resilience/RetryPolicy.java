@@ -0,0 +1,203 @@
+package com.evolutionnext.futures.resilience;
+
+import com.evolutionnext.futures.executor.ExecutorRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Retries a failed asynchronous call with exponential backoff and full
+ * jitter.
+ * <p>
+ * Where completableFutureExceptionally and completableFutureHandle can
+ * only map a failure to a fallback value, {@link #execute} calls again.
+ * The wait before attempt {@code n + 1} is a random duration between 0 and
+ * {@code min(maxBackoff, initialBackoff * 2^(n - 1))}, so clients that
+ * failed together do not retry together. The next attempt is scheduled on
+ * a timer rather than slept for, so no thread waits out the backoff.
+ * <p>
+ * Only failures matching {@link #retryingOn} are retried, by default any
+ * but a {@link CancellationException}. When every attempt fails, the
+ * result fails with a new {@link CompletionException} caused by the last
+ * failure, the earlier ones attached to it as suppressed; a failure that
+ * is not retried after the first attempt is passed on as is. The call's
+ * own exceptions, which it may share between calls, are left untouched.
+ */
+public final class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Predicate<? super Throwable> retryOn;
+
+    private RetryPolicy(int maxAttempts, long initialBackoffNanos, long maxBackoffNanos,
+                        Predicate<? super Throwable> retryOn) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.retryOn = retryOn;
+    }
+
+    /**
+     * @param maxAttempts the first call included
+     */
+    public static RetryPolicy of(int maxAttempts, long initialBackoff, long maxBackoff,
+                                 TimeUnit unit) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        if (initialBackoff < 0 || maxBackoff < initialBackoff) {
+            throw new IllegalArgumentException(
+                "Expected 0 <= initialBackoff <= maxBackoff but was " +
+                    initialBackoff + ", " + maxBackoff);
+        }
+        return new RetryPolicy(maxAttempts, unit.toNanos(initialBackoff),
+            unit.toNanos(maxBackoff), t -> !(t instanceof CancellationException));
+    }
+
+    /**
+     * A copy that only retries failures matching {@code retryOn}.
+     */
+    public RetryPolicy retryingOn(Predicate<? super Throwable> retryOn) {
+        return new RetryPolicy(maxAttempts, initialBackoffNanos, maxBackoffNanos, retryOn);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * A random backoff to wait after {@code attempt} failed.
+     */
+    long backoffNanos(int attempt) {
+        long ceiling = initialBackoffNanos;
+        for (int i = 1; i < attempt && ceiling < maxBackoffNanos; i++) {
+            ceiling *= 2;
+        }
+        ceiling = Math.min(ceiling, maxBackoffNanos);
+        return ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Calls on the shared registry's timer.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<? extends CompletionStage<T>> call) {
+        return execute(call, ExecutorRegistry.shared().scheduled());
+    }
+
+    /**
+     * Calls until an attempt succeeds, a failure is not retryable or the
+     * attempts run out. Cancelling the result cancels the attempt in flight
+     * and any that is scheduled.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<? extends CompletionStage<T>> call,
+                                            ScheduledExecutorService timer) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        new Attempts<>(call, timer, result).attempt(1);
+        return result;
+    }
+
+    private final class Attempts<T> {
+        private final Supplier<? extends CompletionStage<T>> call;
+        private final ScheduledExecutorService timer;
+        private final CompletableFuture<T> result;
+        // Attempts run one after another, each scheduled by the last.
+        private final List<Throwable> failures = new ArrayList<>();
+        private volatile Future<?> pending;
+
+        private Attempts(Supplier<? extends CompletionStage<T>> call,
+                         ScheduledExecutorService timer, CompletableFuture<T> result) {
+            this.call = call;
+            this.timer = timer;
+            this.result = result;
+            result.whenComplete((t, throwable) -> {
+                Future<?> inFlight = pending;
+                if (result.isCancelled() && inFlight != null) {
+                    inFlight.cancel(true);
+                }
+            });
+        }
+
+        private void attempt(int attempt) {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = call.get().toCompletableFuture();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            pending = future;
+            if (result.isCancelled()) {
+                future.cancel(true);
+                return;
+            }
+            future.whenComplete((value, throwable) -> {
+                if (throwable == null) {
+                    result.complete(value);
+                    return;
+                }
+                Throwable failure = unwrap(throwable);
+                failures.add(failure);
+                if (attempt >= maxAttempts || !retryOn.test(failure)) {
+                    result.completeExceptionally(gaveUp(null));
+                    return;
+                }
+                retryLater(attempt + 1);
+            });
+        }
+
+        private void retryLater(int attempt) {
+            try {
+                pending = timer.schedule(() -> attempt(attempt),
+                    backoffNanos(attempt - 1), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(gaveUp(e));
+                return;
+            }
+            if (result.isCancelled()) {
+                pending.cancel(false);
+            }
+        }
+
+        /**
+         * Wraps the last failure in a new {@link CompletionException} with
+         * the earlier ones, and {@code rejected} if the timer refused the
+         * next attempt, as suppressed. A lone failure is passed on as is.
+         */
+        private Throwable gaveUp(RejectedExecutionException rejected) {
+            Throwable last = failures.get(failures.size() - 1);
+            if (failures.size() == 1 && rejected == null) {
+                return last;
+            }
+            CompletionException combined = new CompletionException(last);
+            for (int i = 0; i < failures.size() - 1; i++) {
+                Throwable earlier = failures.get(i);
+                if (earlier != last) {
+                    combined.addSuppressed(earlier);
+                }
+            }
+            if (rejected != null) {
+                combined.addSuppressed(rejected);
+            }
+            return combined;
+        }
+    }
+
+    static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ?
+            throwable.getCause() : throwable;
+    }
+}
@@ -0,0 +1,57 @@
+package com.evolutionnext.futures.timer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs periodic tasks on a fixed-rate schedule with an explicit
+ * {@link OverrunPolicy} for ticks that come due while the task is still
+ * running.
+ * <p>
+ * {@code scheduleAtFixedRate} never overlaps runs, so a task that takes
+ * longer than its period, as testScheduledFutureWithFixedRate does once it
+ * sleeps 8000 ms, silently falls behind and then runs its missed ticks
+ * back to back; {@code scheduleWithFixedDelay} drifts by the run time on
+ * every tick. Here tick {@code k} is always due at
+ * {@code initialDelay + k * period} from when it was scheduled, so neither
+ * slow runs nor a late timer move the schedule, and the policy decides
+ * what happens to ticks a slow run overlaps.
+ * <p>
+ * Each tick can be delayed by a random jitter in {@code [0, jitter]}, so
+ * that many tasks with the same period do not all fire at once. The timer
+ * only fires ticks; runs happen on {@code workers}, which needs enough
+ * threads for the concurrency the policies allow. Each {@link PeriodicTask}
+ * keeps its own lateness histogram and counts of runs, skipped and
+ * coalesced ticks.
+ */
+public class FixedRateScheduler {
+
+    private final ScheduledExecutorService timer;
+    private final Executor workers;
+
+    public FixedRateScheduler(ScheduledExecutorService timer, Executor workers) {
+        this.timer = timer;
+        this.workers = workers;
+    }
+
+    public PeriodicTask scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+                                            TimeUnit unit, OverrunPolicy policy) {
+        return scheduleAtFixedRate(command, initialDelay, period, 0, unit, policy);
+    }
+
+    public PeriodicTask scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+                                            long jitter, TimeUnit unit, OverrunPolicy policy) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        if (initialDelay < 0 || jitter < 0) {
+            throw new IllegalArgumentException("initialDelay and jitter must not be negative");
+        }
+        long startNanos = System.nanoTime() + unit.toNanos(initialDelay);
+        PeriodicTask task = new PeriodicTask(command, startNanos, unit.toNanos(period),
+            unit.toNanos(jitter), policy, timer, workers);
+        task.start();
+        return task;
+    }
+}
@@ -0,0 +1,463 @@
+package com.evolutionnext.futures.timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ScheduledExecutorService} whose timers live in a hierarchical
+ * hashed timing wheel instead of the binary heap behind
+ * {@link ScheduledThreadPoolExecutor}, so scheduling and cancelling are
+ * O(1) no matter how many timers are pending.
+ * <p>
+ * Four wheels of 256 slots each cover 2^32 ticks; a timer is hashed into the
+ * lowest wheel whose span reaches its deadline and moves down a wheel each
+ * time the wheel below completes a revolution. A single ticker thread
+ * advances the wheels every {@code tickDuration} and hands expired tasks to
+ * a task executor, so a long running task never delays other timers.
+ * Deadlines are rounded up to the next tick.
+ * <p>
+ * {@code schedule} only enqueues the task and {@code cancel} only flips its
+ * state and enqueues it; the ticker thread does the linking and unlinking.
+ * A cancelled timer is unlinked on the next tick rather than lingering until
+ * its deadline.
+ * <p>
+ * {@link #shutdown()} stops accepting tasks and cancels every pending timer,
+ * including periodic ones; tasks already handed to the task executor run to
+ * completion.
+ */
+public class HashedWheelScheduledExecutorService extends AbstractExecutorService
+    implements ScheduledExecutorService {
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (WHEEL_BITS * LEVELS);
+    /**
+     * Longest delay or period honoured, about 146 years; longer ones are
+     * saturated to it, as ScheduledThreadPoolExecutor does, so deadlines
+     * stay clear of overflow.
+     */
+    private static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 1;
+
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int TERMINATED = 2;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Executor taskExecutor;
+    private final ExecutorService ownedTaskExecutor;
+    private final Thread ticker;
+    private final Bucket[][] wheels = new Bucket[LEVELS][WHEEL_SIZE];
+    private final Queue<WheelTask<?>> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTask<?>> pendingCancels = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+    private final CountDownLatch tickerStopped = new CountDownLatch(1);
+
+    /**
+     * Last tick the ticker thread has processed; only touched by the ticker.
+     */
+    private long tick;
+    private volatile int pending;
+    private volatile List<Runnable> neverRun = Collections.emptyList();
+
+    /**
+     * A 1ms wheel running its tasks on {@code threads} daemon threads that
+     * it owns and shuts down with itself.
+     */
+    public HashedWheelScheduledExecutorService(int threads) {
+        this(1, TimeUnit.MILLISECONDS, null, threads);
+    }
+
+    /**
+     * Runs expired tasks on {@code taskExecutor}, which the caller owns and
+     * must shut down.
+     */
+    public HashedWheelScheduledExecutorService(long tickDuration, TimeUnit unit,
+                                               Executor taskExecutor) {
+        this(tickDuration, unit, taskExecutor, 0);
+    }
+
+    private HashedWheelScheduledExecutorService(long tickDuration, TimeUnit unit,
+                                                Executor taskExecutor, int threads) {
+        this.tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        if (taskExecutor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            this.ownedTaskExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable,
+                    "hashed-wheel-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.taskExecutor = ownedTaskExecutor;
+        } else {
+            this.ownedTaskExecutor = null;
+            this.taskExecutor = taskExecutor;
+        }
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::runTicker, "hashed-wheel-ticker");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * @return the number of timers scheduled and not yet expired or
+     * cancelled, as of the last tick
+     */
+    public int pendingTimers() {
+        return pending;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return enqueue(new WheelTask<Void>(Executors.callable(command, null),
+            deadline(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay,
+                                           TimeUnit unit) {
+        return enqueue(new WheelTask<>(callable, deadline(delay, unit), 0));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay,
+                                                  long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        return enqueue(new WheelTask<Void>(Executors.callable(command, null),
+            deadline(initialDelay, unit), saturated(period, unit)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay,
+                                                     long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be positive");
+        }
+        return enqueue(new WheelTask<Void>(Executors.callable(command, null),
+            deadline(initialDelay, unit), -saturated(delay, unit)));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        if (state.compareAndSet(RUNNING, SHUTDOWN)) {
+            LockSupport.unpark(ticker);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        try {
+            tickerStopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ownedTaskExecutor != null) {
+            ownedTaskExecutor.shutdownNow();
+        }
+        return neverRun;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state.get() != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return tickerStopped.getCount() == 0 &&
+            (ownedTaskExecutor == null || ownedTaskExecutor.isTerminated());
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!tickerStopped.await(timeout, unit)) {
+            return false;
+        }
+        return ownedTaskExecutor == null || ownedTaskExecutor.awaitTermination(
+            Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private long deadline(long delay, TimeUnit unit) {
+        return System.nanoTime() + Math.max(0, saturated(delay, unit));
+    }
+
+    private static long saturated(long duration, TimeUnit unit) {
+        return Math.min(unit.toNanos(duration), MAX_DELAY_NANOS);
+    }
+
+    private <V> WheelTask<V> enqueue(WheelTask<V> task) {
+        if (isShutdown()) {
+            throw new RejectedExecutionException("Timer has been shut down");
+        }
+        pendingAdds.offer(task);
+        if (isShutdown() && pendingAdds.remove(task)) {
+            task.cancel(false);
+            throw new RejectedExecutionException("Timer has been shut down");
+        }
+        return task;
+    }
+
+    private void runTicker() {
+        try {
+            while (state.get() == RUNNING) {
+                long nextTickNanos = startNanos + (tick + 1) * tickNanos;
+                long waitNanos;
+                while ((waitNanos = nextTickNanos - System.nanoTime()) > 0 &&
+                    state.get() == RUNNING) {
+                    LockSupport.parkNanos(this, waitNanos);
+                }
+                if (state.get() != RUNNING) {
+                    break;
+                }
+                processCancels();
+                processAdds();
+                advance(tick + 1);
+            }
+        } finally {
+            cancelEverything();
+            if (ownedTaskExecutor != null) {
+                ownedTaskExecutor.shutdown();
+            }
+            state.set(TERMINATED);
+            tickerStopped.countDown();
+        }
+    }
+
+    private void processCancels() {
+        WheelTask<?> task;
+        while ((task = pendingCancels.poll()) != null) {
+            if (task.bucket != null) {
+                task.bucket.remove(task);
+                pending--;
+            }
+        }
+    }
+
+    private void processAdds() {
+        WheelTask<?> task;
+        while ((task = pendingAdds.poll()) != null) {
+            if (!task.isCancelled()) {
+                pending++;
+                place(task);
+            }
+        }
+    }
+
+    private long deadlineTick(WheelTask<?> task) {
+        long elapsed = task.deadlineNanos - startNanos;
+        return elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+    }
+
+    /**
+     * Hashes {@code task} into the lowest wheel whose span covers its
+     * deadline, or dispatches it when the deadline has already passed.
+     */
+    private void place(WheelTask<?> task) {
+        long deadlineTick = deadlineTick(task);
+        long delta = deadlineTick - tick;
+        if (delta <= 0) {
+            pending--;
+            dispatch(task);
+            return;
+        }
+        long placement = delta < MAX_SPAN ? deadlineTick : tick + MAX_SPAN - 1;
+        delta = placement - tick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((placement >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        wheels[level][slot].add(task);
+    }
+
+    private void advance(long newTick) {
+        tick = newTick;
+        for (int level = 1; level < LEVELS; level++) {
+            if ((newTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            int slot = (int) ((newTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            cascade(wheels[level][slot]);
+        }
+        Bucket bucket = wheels[0][(int) (newTick & WHEEL_MASK)];
+        WheelTask<?> task;
+        while ((task = bucket.poll()) != null) {
+            pending--;
+            dispatch(task);
+        }
+    }
+
+    private void cascade(Bucket bucket) {
+        WheelTask<?> task;
+        while ((task = bucket.poll()) != null) {
+            place(task);
+        }
+    }
+
+    private void dispatch(WheelTask<?> task) {
+        if (task.isCancelled()) {
+            return;
+        }
+        try {
+            taskExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+        }
+    }
+
+    private void reschedule(WheelTask<?> task) {
+        if (state.get() == RUNNING) {
+            pendingAdds.offer(task);
+        } else {
+            task.cancel(false);
+        }
+    }
+
+    private void cancelEverything() {
+        List<Runnable> never = new ArrayList<>();
+        WheelTask<?> task;
+        while ((task = pendingAdds.poll()) != null) {
+            never.add(task);
+            task.cancel(false);
+        }
+        for (Bucket[] wheel : wheels) {
+            for (Bucket bucket : wheel) {
+                while ((task = bucket.poll()) != null) {
+                    never.add(task);
+                    task.cancel(false);
+                }
+            }
+        }
+        pendingCancels.clear();
+        pending = 0;
+        neverRun = never;
+    }
+
+    /**
+     * Intrusive doubly linked list of tasks; only the ticker thread links
+     * and unlinks, so it needs no locking.
+     */
+    private static final class Bucket {
+        private WheelTask<?> head;
+        private WheelTask<?> tail;
+
+        void add(WheelTask<?> task) {
+            task.bucket = this;
+            task.prev = tail;
+            task.next = null;
+            if (tail == null) {
+                head = task;
+            } else {
+                tail.next = task;
+            }
+            tail = task;
+        }
+
+        void remove(WheelTask<?> task) {
+            if (task.prev == null) {
+                head = task.next;
+            } else {
+                task.prev.next = task.next;
+            }
+            if (task.next == null) {
+                tail = task.prev;
+            } else {
+                task.next.prev = task.prev;
+            }
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+        }
+
+        WheelTask<?> poll() {
+            WheelTask<?> task = head;
+            if (task != null) {
+                remove(task);
+            }
+            return task;
+        }
+    }
+
+    private final class WheelTask<V> extends FutureTask<V>
+        implements RunnableScheduledFuture<V> {
+
+        /**
+         * 0 for one-shot, positive for fixed rate, negative for fixed delay.
+         */
+        private final long period;
+        private volatile long deadlineNanos;
+        private Bucket bucket;
+        private WheelTask<?> prev;
+        private WheelTask<?> next;
+
+        private WheelTask(Callable<V> callable, long deadlineNanos, long period) {
+            super(callable);
+            this.deadlineNanos = deadlineNanos;
+            this.period = period;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS),
+                other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (super.runAndReset()) {
+                deadlineNanos = period > 0 ?
+                    deadlineNanos + period : System.nanoTime() - period;
+                reschedule(this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                pendingCancels.offer(this);
+            }
+            return cancelled;
+        }
+    }
+}
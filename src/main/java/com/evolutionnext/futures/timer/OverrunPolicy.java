@@ -0,0 +1,55 @@
+package com.evolutionnext.futures.timer;
+
+/**
+ * What a {@link FixedRateScheduler} does with a tick that comes due while
+ * the previous run of the task is still going.
+ */
+public final class OverrunPolicy {
+
+    enum Kind {SKIP, COALESCE, CONCURRENT}
+
+    /**
+     * Drops the tick; the task next runs on the first tick after the
+     * current run ends, still on the original schedule.
+     */
+    public static final OverrunPolicy SKIP = new OverrunPolicy(Kind.SKIP, 1);
+
+    /**
+     * Folds every tick missed during a run into one run that starts as
+     * soon as the current one ends.
+     */
+    public static final OverrunPolicy COALESCE = new OverrunPolicy(Kind.COALESCE, 1);
+
+    private final Kind kind;
+    private final int maxConcurrent;
+
+    private OverrunPolicy(Kind kind, int maxConcurrent) {
+        this.kind = kind;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Starts another run on every tick until {@code maxConcurrent} runs
+     * overlap; ticks beyond that are skipped.
+     */
+    public static OverrunPolicy concurrent(int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException(
+                "maxConcurrent must be positive: " + maxConcurrent);
+        }
+        return new OverrunPolicy(Kind.CONCURRENT, maxConcurrent);
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    @Override
+    public String toString() {
+        return kind == Kind.CONCURRENT ? "CONCURRENT(" + maxConcurrent + ")" : kind.name();
+    }
+}
@@ -0,0 +1,206 @@
+package com.evolutionnext.futures.timer;
+
+import com.evolutionnext.futures.executor.LatencyHistogram;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A task scheduled by a {@link FixedRateScheduler}, with its metrics.
+ * <p>
+ * Lateness is how long after its tick a run started: the tick's due time
+ * plus its jitter, or for a coalesced run, the latest tick it stands for.
+ * An exception thrown by a run is reported to the worker's uncaught
+ * exception handler and the schedule goes on.
+ */
+public final class PeriodicTask {
+
+    private final Runnable command;
+    private final long startNanos;
+    private final long periodNanos;
+    private final long jitterNanos;
+    private final OverrunPolicy policy;
+    private final ScheduledExecutorService timer;
+    private final Executor workers;
+
+    private final LatencyHistogram lateness = new LatencyHistogram();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    private int running;
+    private int maxConcurrentSeen;
+    private boolean coalescedPending;
+    private long coalescedTargetNanos;
+    private volatile boolean cancelled;
+    private volatile ScheduledFuture<?> nextTick;
+
+    PeriodicTask(Runnable command, long startNanos, long periodNanos, long jitterNanos,
+                 OverrunPolicy policy, ScheduledExecutorService timer, Executor workers) {
+        this.command = command;
+        this.startNanos = startNanos;
+        this.periodNanos = periodNanos;
+        this.jitterNanos = jitterNanos;
+        this.policy = policy;
+        this.timer = timer;
+        this.workers = workers;
+    }
+
+    void start() {
+        scheduleTick(0);
+    }
+
+    /**
+     * Stops future ticks; a run in progress is left to finish.
+     */
+    public void cancel() {
+        cancelled = true;
+        ScheduledFuture<?> tick = nextTick;
+        if (tick != null) {
+            tick.cancel(false);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    /**
+     * @return ticks dropped because too many runs were in progress
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * @return ticks folded into a run of an earlier or later tick
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public synchronized int getMaxConcurrentSeen() {
+        return maxConcurrentSeen;
+    }
+
+    public LatencyHistogram.Snapshot getLateness() {
+        return lateness.snapshot();
+    }
+
+    public OverrunPolicy getPolicy() {
+        return policy;
+    }
+
+    private void scheduleTick(long tick) {
+        if (cancelled) {
+            return;
+        }
+        long jitter = jitterNanos == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+        long targetNanos = startNanos + tick * periodNanos + jitter;
+        try {
+            nextTick = timer.schedule(() -> fire(tick, targetNanos),
+                targetNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            cancelled = true;
+        }
+        ScheduledFuture<?> scheduled = nextTick;
+        if (cancelled && scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    /**
+     * Ticks the timer was too late to fire count as overrun ticks, then the
+     * next tick is scheduled on the original grid.
+     */
+    private void fire(long tick, long targetNanos) {
+        if (cancelled) {
+            return;
+        }
+        long latestDue = Math.max(tick, (System.nanoTime() - startNanos) / periodNanos);
+        if (latestDue > tick) {
+            missed(latestDue - tick);
+        }
+        if (tryAcquire(targetNanos)) {
+            dispatch(targetNanos);
+        }
+        scheduleTick(latestDue + 1);
+    }
+
+    private void missed(long ticks) {
+        if (policy.getKind() == OverrunPolicy.Kind.COALESCE) {
+            coalesced.add(ticks);
+        } else {
+            skipped.add(ticks);
+        }
+    }
+
+    /**
+     * Claims a run slot, or applies the overrun policy to this tick.
+     */
+    private synchronized boolean tryAcquire(long targetNanos) {
+        if (running < policy.getMaxConcurrent()) {
+            running++;
+            maxConcurrentSeen = Math.max(maxConcurrentSeen, running);
+            return true;
+        }
+        if (policy.getKind() == OverrunPolicy.Kind.COALESCE) {
+            if (coalescedPending) {
+                coalesced.increment();
+            }
+            coalescedPending = true;
+            coalescedTargetNanos = targetNanos;
+        } else {
+            skipped.increment();
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the slot for a coalesced run if one is pending, otherwise
+     * releases it.
+     *
+     * @return the target of the coalesced run, or {@code null}
+     */
+    private synchronized Long releaseOrContinue() {
+        if (coalescedPending && !cancelled) {
+            coalescedPending = false;
+            return coalescedTargetNanos;
+        }
+        running--;
+        return null;
+    }
+
+    private void dispatch(long targetNanos) {
+        try {
+            workers.execute(() -> run(targetNanos));
+        } catch (RejectedExecutionException e) {
+            cancel();
+            releaseOrContinue();
+        }
+    }
+
+    private void run(long targetNanos) {
+        Long target = targetNanos;
+        while (target != null) {
+            lateness.record(Math.max(0, System.nanoTime() - target));
+            runs.increment();
+            try {
+                command.run();
+            } catch (Throwable t) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            }
+            target = releaseOrContinue();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.evolutionnext.futures.trace;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One stage of a traced pipeline: when it started and ended, on which
+ * thread, and how it came to run there.
+ */
+public final class Span {
+
+    /**
+     * How a stage's function came to run on its thread.
+     */
+    public enum Execution {
+        /**
+         * The pipeline's source future.
+         */
+        SOURCE,
+        /**
+         * Synchronously, on the thread that completed its input.
+         */
+        COMPLETING_THREAD,
+        /**
+         * Synchronously, on the thread that attached it, because its input
+         * was already complete.
+         */
+        CALLER_THREAD,
+        /**
+         * Handed off to an executor by an {@code *Async} method.
+         */
+        ASYNC
+    }
+
+    private final String name;
+    private final List<Span> inputs;
+    private volatile Execution execution;
+    private volatile Thread thread;
+    private volatile long startNanos;
+    private volatile Thread endThread;
+    private volatile long endNanos;
+
+    /**
+     * A span is created when its stage is attached and begins when the
+     * stage's function runs, which it never does if an input failed.
+     */
+    Span(String name, List<Span> inputs) {
+        this.name = name;
+        this.inputs = inputs;
+    }
+
+    void begin(Execution execution, long nanos, Thread thread) {
+        this.execution = execution;
+        this.thread = thread;
+        this.startNanos = nanos;
+    }
+
+    void end(long nanos, Thread thread) {
+        this.endThread = thread;
+        this.endNanos = nanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The spans whose results this stage consumed: none for the source, two
+     * for a {@code thenCombine}.
+     */
+    public List<Span> getInputs() {
+        return inputs;
+    }
+
+    public Execution getExecution() {
+        return execution;
+    }
+
+    /**
+     * The thread the stage's function ran on.
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * The thread that completed the stage; for a {@code thenCompose}, the
+     * one that completed the inner stage.
+     */
+    public Thread getEndThread() {
+        return endThread;
+    }
+
+    public boolean isStarted() {
+        return startNanos != 0;
+    }
+
+    public boolean isEnded() {
+        return endNanos != 0;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long duration(TimeUnit unit) {
+        return unit.convert(endNanos - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The input that completed last, which is the one this stage waited
+     * for, or {@code null} for the source. An input that never ended is
+     * only returned if no input ended.
+     */
+    public Span latestInput() {
+        Span latest = null;
+        for (Span input : inputs) {
+            if (latest == null || !latest.isEnded() ||
+                (input.isEnded() && input.endNanos - latest.endNanos > 0)) {
+                latest = input;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * How long the stage waited between its last input completing and its
+     * function starting: the cost of a thread hop, or 0 when it ran in the
+     * completing thread.
+     */
+    public long waited(TimeUnit unit) {
+        Span latest = latestInput();
+        return latest == null || !latest.isEnded() || !isStarted() ? 0 :
+            unit.convert(Math.max(0, startNanos - latest.endNanos), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        if (!isStarted()) {
+            return name + " [did not run]";
+        }
+        return name + " [" + execution + " on " +
+            (thread == null ? "?" : thread.getName()) + ", waited " +
+            waited(TimeUnit.MICROSECONDS) + "us, took " +
+            (isEnded() ? duration(TimeUnit.MICROSECONDS) + "us" : "unfinished") + ']';
+    }
+}
@@ -0,0 +1,90 @@
+package com.evolutionnext.futures.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The spans recorded for one run of a traced pipeline.
+ */
+public final class Trace {
+
+    private final String name;
+    private final long startNanos;
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    private volatile Span result;
+
+    Trace(String name, long startNanos) {
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    Span newSpan(String stage, List<Span> inputs) {
+        Span span = new Span(stage, inputs);
+        spans.add(span);
+        return span;
+    }
+
+    void finish(Span result) {
+        this.result = result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Every span, in the order the stages started; stages that never ran
+     * come last.
+     */
+    public List<Span> getSpans() {
+        List<Span> sorted = new ArrayList<>(spans);
+        sorted.sort((a, b) -> a.isStarted() != b.isStarted() ? (a.isStarted() ? -1 : 1) :
+            Long.compare(a.getStartNanos() - startNanos, b.getStartNanos() - startNanos));
+        return sorted;
+    }
+
+    /**
+     * From the source to the stage that produced the result, following the
+     * input each stage waited for last. The response time of the pipeline
+     * is the sum of the waits and durations along this path.
+     */
+    public List<Span> criticalPath() {
+        List<Span> path = new ArrayList<>();
+        for (Span span = result; span != null; span = span.latestInput()) {
+            path.add(span);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * From the start of the trace until its result stage ended.
+     */
+    public long duration(TimeUnit unit) {
+        Span last = result;
+        return last == null || !last.isEnded() ? 0 :
+            unit.convert(last.getEndNanos() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The critical path as text, one stage per line.
+     */
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(name).append(": ").append(duration(TimeUnit.MICROSECONDS))
+               .append("us, critical path:");
+        for (Span span : criticalPath()) {
+            builder.append("\n  ").append(span);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+}
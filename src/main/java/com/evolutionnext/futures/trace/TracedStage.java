@@ -0,0 +1,165 @@
+package com.evolutionnext.futures.trace;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link CompletableFuture} pipeline whose stages are recorded as
+ * {@link Span}s of one {@link Trace}, started by {@link Tracer#trace}.
+ * <p>
+ * Every stage is named. Its span covers the stage's function; for
+ * {@link #thenCompose} it lasts until the returned stage completes. The
+ * span also records the thread the function ran on and whether it ran in
+ * the thread that completed its input, in the thread that attached it, or
+ * after an async hop. {@link #finish()} hands the trace to the tracer's
+ * reporter once the pipeline completes.
+ * <p>
+ * When the pipeline was not sampled, every method simply delegates.
+ */
+public final class TracedStage<T> {
+
+    private final CompletableFuture<T> future;
+    private final Tracer tracer;
+    private final Trace trace;
+    private final Span span;
+
+    TracedStage(CompletableFuture<T> future, Tracer tracer, Trace trace, Span span) {
+        this.future = future;
+        this.tracer = tracer;
+        this.trace = trace;
+        this.span = span;
+    }
+
+    /**
+     * The trace, or {@code null} if this pipeline was not sampled.
+     */
+    public Trace trace() {
+        return trace;
+    }
+
+    public <U> TracedStage<U> thenApply(String stage, Function<? super T, ? extends U> fn) {
+        if (trace == null) {
+            return new TracedStage<>(future.thenApply(fn), null, null, null);
+        }
+        boolean inputDone = future.isDone();
+        Span next = trace.newSpan(stage, Collections.singletonList(span));
+        return next(future.thenApply(t -> {
+            beginSync(next, inputDone);
+            try {
+                return fn.apply(t);
+            } finally {
+                end(next);
+            }
+        }), next);
+    }
+
+    public <U> TracedStage<U> thenApplyAsync(String stage,
+                                             Function<? super T, ? extends U> fn,
+                                             Executor executor) {
+        if (trace == null) {
+            return new TracedStage<>(future.thenApplyAsync(fn, executor), null, null, null);
+        }
+        Span next = trace.newSpan(stage, Collections.singletonList(span));
+        return next(future.thenApplyAsync(t -> {
+            next.begin(Span.Execution.ASYNC, System.nanoTime(), Thread.currentThread());
+            try {
+                return fn.apply(t);
+            } finally {
+                end(next);
+            }
+        }, executor), next);
+    }
+
+    public <U> TracedStage<U> thenCompose(
+        String stage, Function<? super T, ? extends CompletionStage<U>> fn) {
+        if (trace == null) {
+            return new TracedStage<>(future.thenCompose(fn), null, null, null);
+        }
+        boolean inputDone = future.isDone();
+        Span next = trace.newSpan(stage, Collections.singletonList(span));
+        return next(future.thenCompose(t -> {
+            beginSync(next, inputDone);
+            return fn.apply(t).whenComplete((u, throwable) -> end(next));
+        }), next);
+    }
+
+    /**
+     * Combines with another stage of the same pipeline. A stage of another
+     * (or an untraced) pipeline is still combined, but only this stage's
+     * span counts as the input.
+     */
+    public <U, V> TracedStage<V> thenCombine(
+        String stage, TracedStage<? extends U> other,
+        BiFunction<? super T, ? super U, ? extends V> fn) {
+        if (trace == null) {
+            return new TracedStage<>(future.thenCombine(other.future, fn), null, null, null);
+        }
+        boolean inputsDone = future.isDone() && other.future.isDone();
+        List<Span> inputs = other.trace == trace ?
+            Arrays.asList(span, other.span) : Collections.singletonList(span);
+        Span next = trace.newSpan(stage, inputs);
+        return next(future.thenCombine(other.future, (t, u) -> {
+            beginSync(next, inputsDone);
+            try {
+                return fn.apply(t, u);
+            } finally {
+                end(next);
+            }
+        }), next);
+    }
+
+    public TracedStage<Void> thenAccept(String stage, Consumer<? super T> action) {
+        return thenApply(stage, t -> {
+            action.accept(t);
+            return null;
+        });
+    }
+
+    /**
+     * Ends the pipeline: once it completes, normally or not, the trace is
+     * reported.
+     */
+    public CompletableFuture<T> finish() {
+        if (trace == null) {
+            return future;
+        }
+        return future.whenComplete((t, throwable) -> {
+            trace.finish(span);
+            tracer.report(trace);
+        });
+    }
+
+    public CompletableFuture<T> toCompletableFuture() {
+        return future;
+    }
+
+    private <U> TracedStage<U> next(CompletableFuture<U> future, Span next) {
+        return new TracedStage<>(future, tracer, trace, next);
+    }
+
+    /**
+     * A synchronous stage runs in the thread that completed its last input,
+     * unless its inputs were already complete when it was attached, in which
+     * case it runs in the attaching thread.
+     */
+    private static void beginSync(Span span, boolean inputsDoneWhenAttached) {
+        Thread current = Thread.currentThread();
+        Span latest = span.latestInput();
+        boolean completing = !inputsDoneWhenAttached &&
+            latest != null && latest.getEndThread() == current;
+        span.begin(completing ?
+            Span.Execution.COMPLETING_THREAD : Span.Execution.CALLER_THREAD,
+            System.nanoTime(), current);
+    }
+
+    private static void end(Span span) {
+        span.end(System.nanoTime(), Thread.currentThread());
+    }
+}
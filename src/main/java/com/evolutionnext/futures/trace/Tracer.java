@@ -0,0 +1,51 @@
+package com.evolutionnext.futures.trace;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Starts traced pipelines and hands every finished {@link Trace} to a
+ * reporter.
+ * <p>
+ * Only a {@code sampleRate} fraction of pipelines, picked at random, is
+ * traced. An unsampled pipeline costs one random draw and a small wrapper
+ * per stage, so a low rate can stay on in production; a sampled one adds
+ * two {@code System.nanoTime()} calls and a {@link Span} per stage.
+ */
+public final class Tracer {
+
+    private final double sampleRate;
+    private final Consumer<? super Trace> reporter;
+
+    public Tracer(double sampleRate, Consumer<? super Trace> reporter) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException(
+                "sampleRate must be between 0 and 1: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        this.reporter = reporter;
+    }
+
+    /**
+     * Starts a pipeline from {@code source}, whose span lasts from now until
+     * it completes.
+     */
+    public <T> TracedStage<T> trace(String pipeline, CompletableFuture<T> source) {
+        if (sampleRate == 0 ||
+            (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return new TracedStage<>(source, null, null, null);
+        }
+        Trace trace = new Trace(pipeline, System.nanoTime());
+        Span span = trace.newSpan("source", Collections.emptyList());
+        span.begin(Span.Execution.SOURCE, System.nanoTime(), Thread.currentThread());
+        CompletableFuture<T> ended = source.whenComplete((result, throwable) ->
+            span.end(System.nanoTime(), Thread.currentThread()));
+        return new TracedStage<>(ended, this, trace, span);
+    }
+
+    void report(Trace trace) {
+        reporter.accept(trace);
+    }
+}
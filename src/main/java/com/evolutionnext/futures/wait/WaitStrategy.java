@@ -0,0 +1,243 @@
+package com.evolutionnext.futures.wait;
+
+import com.evolutionnext.futures.bridge.CompletableFutureTask;
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for a future without the {@code while (!future.isDone())} loop of
+ * testBasicFutureAsync, which keeps a core busy for as long as the future
+ * runs.
+ * <p>
+ * A wait first spins for a few checks, which catches a future that is
+ * about to complete without giving up the core, then yields for a few
+ * more, then parks. A {@link CompletionStage}, {@link ListenableFuture} or
+ * {@link CompletableFutureTask} gets a callback that unparks the waiter,
+ * so the waiter sleeps until it completes. Any other {@link Future} has
+ * nothing to call back, so the waiter wakes to check it, at first after
+ * {@code minPark} and then twice as long each time up to {@code maxPark}.
+ * On a single processor spinning cannot help, since the thread that would
+ * complete the future is not running, so the spin phase is skipped.
+ * <p>
+ * {@link #awaitAny} waits for the first of several futures with one
+ * waiter registered on all of them rather than a poll of each in turn.
+ * <p>
+ * A strategy registers one callback per running future, however many
+ * waits on it time out or end first, and drops it once the future
+ * completes, so waiting on a long running future in a loop does not grow
+ * its list of dependents.
+ */
+public final class WaitStrategy {
+
+    private static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+
+    /**
+     * Spins 100 times, yields 10 times, then parks between 50 us and 10 ms.
+     */
+    public static final WaitStrategy DEFAULT =
+        of(100, 10, 50, 10_000, TimeUnit.MICROSECONDS);
+
+    private final int spins;
+    private final int yields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+    private final ConcurrentMap<Future<?>, Waiters> waiters = new MapMaker().weakKeys().makeMap();
+
+    private WaitStrategy(int spins, int yields, long minParkNanos, long maxParkNanos) {
+        this.spins = spins;
+        this.yields = yields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    public static WaitStrategy of(int spins, int yields, long minPark, long maxPark,
+                                  TimeUnit unit) {
+        if (spins < 0 || yields < 0) {
+            throw new IllegalArgumentException(
+                "spins and yields must not be negative: " + spins + ", " + yields);
+        }
+        if (minPark <= 0 || maxPark < minPark) {
+            throw new IllegalArgumentException(
+                "Expected 0 < minPark <= maxPark but was " + minPark + ", " + maxPark);
+        }
+        return new WaitStrategy(spins, yields, unit.toNanos(minPark), unit.toNanos(maxPark));
+    }
+
+    /**
+     * Waits until {@code future} is done.
+     */
+    public void await(Future<?> future) throws InterruptedException {
+        awaitAny(List.of(future), 0, false);
+    }
+
+    /**
+     * @return false if {@code future} was still running after the timeout
+     */
+    public boolean await(Future<?> future, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return awaitAny(List.of(future), unit.toNanos(timeout), true) >= 0;
+    }
+
+    /**
+     * Waits, then returns {@code future.get()}.
+     */
+    public <T> T get(Future<T> future) throws InterruptedException, ExecutionException {
+        await(future);
+        return future.get();
+    }
+
+    public <T> T get(Future<T> future, long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        if (!await(future, timeout, unit)) {
+            throw new TimeoutException("Not done after " + timeout + " " + unit);
+        }
+        return future.get();
+    }
+
+    /**
+     * Waits until one of {@code futures} is done.
+     *
+     * @return the index of a future that is done
+     */
+    public int awaitAny(List<? extends Future<?>> futures) throws InterruptedException {
+        return awaitAny(futures, 0, false);
+    }
+
+    /**
+     * @return the index of a future that is done, or -1 if none was done
+     * after the timeout
+     */
+    public int awaitAny(List<? extends Future<?>> futures, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return awaitAny(futures, unit.toNanos(timeout), true);
+    }
+
+    private int awaitAny(List<? extends Future<?>> futures, long timeoutNanos, boolean timed)
+        throws InterruptedException {
+        if (futures.isEmpty()) {
+            throw new IllegalArgumentException("At least one future is needed");
+        }
+        long deadline = timed ? System.nanoTime() + timeoutNanos : 0;
+        int done = firstDone(futures);
+        for (int i = 0; done < 0 && MULTIPROCESSOR && i < spins; i++) {
+            Thread.onSpinWait();
+            done = firstDone(futures);
+        }
+        for (int i = 0; done < 0 && i < yields; i++) {
+            Thread.yield();
+            done = firstDone(futures);
+        }
+        if (done >= 0) {
+            return done;
+        }
+
+        Thread current = Thread.currentThread();
+        boolean everyFutureCallsBack = true;
+        for (Future<?> future : futures) {
+            everyFutureCallsBack &= register(future, current);
+        }
+        try {
+            long park = minParkNanos;
+            while ((done = firstDone(futures)) < 0) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long remaining = deadline - System.nanoTime();
+                if (timed && remaining <= 0) {
+                    return -1;
+                }
+                if (everyFutureCallsBack) {
+                    if (timed) {
+                        LockSupport.parkNanos(this, remaining);
+                    } else {
+                        LockSupport.park(this);
+                    }
+                } else {
+                    LockSupport.parkNanos(this, timed ? Math.min(park, remaining) : park);
+                    park = Math.min(park * 2, maxParkNanos);
+                }
+            }
+            return done;
+        } finally {
+            for (Future<?> future : futures) {
+                Waiters registered = waiters.get(future);
+                if (registered != null) {
+                    registered.threads.remove(current);
+                }
+            }
+        }
+    }
+
+    private static int firstDone(List<? extends Future<?>> futures) {
+        for (int i = 0; i < futures.size(); i++) {
+            if (futures.get(i).isDone()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds {@code thread} to the waiters on {@code future}, registering the
+     * callback that wakes them the first time a thread waits on it.
+     *
+     * @return false if {@code future} cannot call back when it is done
+     */
+    private boolean register(Future<?> future, Thread thread) {
+        if (!(future instanceof CompletionStage || future instanceof ListenableFuture
+            || future instanceof CompletableFutureTask)) {
+            return false;
+        }
+        Waiters registered = waiters.get(future);
+        if (registered == null) {
+            Waiters created = new Waiters();
+            registered = waiters.putIfAbsent(future, created);
+            if (registered == null) {
+                registered = created;
+                callBack(future, () -> {
+                    waiters.remove(future, created);
+                    created.run();
+                });
+            }
+        }
+        // If the callback has already run, the wait loop sees the future
+        // done before it parks.
+        registered.threads.add(thread);
+        return true;
+    }
+
+    private static void callBack(Future<?> future, Runnable callback) {
+        if (future instanceof CompletionStage) {
+            ((CompletionStage<?>) future).whenComplete((value, throwable) -> callback.run());
+        } else if (future instanceof ListenableFuture) {
+            ((ListenableFuture<?>) future).addListener(callback, MoreExecutors.directExecutor());
+        } else {
+            ((CompletableFutureTask<?>) future).toCompletableFuture()
+                                               .whenComplete((value, throwable) -> callback.run());
+        }
+    }
+
+    /**
+     * The threads waiting on one future.
+     */
+    private static final class Waiters implements Runnable {
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void run() {
+            threads.forEach(LockSupport::unpark);
+        }
+    }
+}
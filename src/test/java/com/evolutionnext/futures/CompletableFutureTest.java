@@ -1,5 +1,7 @@
 package com.evolutionnext.futures;
 
+import com.evolutionnext.futures.bridge.FutureBridges;
+import com.evolutionnext.futures.executor.ExecutorRegistry;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -18,7 +20,7 @@ public class CompletableFutureTest {
      */
     @Before
     public void startUp() {
-        executorService = Executors.newCachedThreadPool();
+        executorService = ExecutorRegistry.shared().io();
         integerFuture1 = CompletableFuture
             .supplyAsync(() -> {
                 try {
@@ -300,7 +302,7 @@ public class CompletableFutureTest {
 
     @Test
     public void testFutureToCompletable() {
-        ExecutorService executorService = Executors.newFixedThreadPool(40);
+        ExecutorService executorService = ExecutorRegistry.shared().cpu();
         Future<Integer> integerFuture = executorService.submit(() -> 4000);
         CompletableFuture<Integer> completableFuture =
             CompletableFuture.supplyAsync(() -> {
@@ -316,6 +318,24 @@ public class CompletableFutureTest {
             .thenAccept(System.out::println);
     }
 
+    /**
+     * The same conversion without parking a thread in get(): the task
+     * completes its CompletableFuture from its own done() hook.
+     */
+    @Test
+    public void testFutureToCompletableWithoutBlocking() {
+        ExecutorService executorService = ExecutorRegistry.shared().cpu();
+        Future<Integer> integerFuture =
+            FutureBridges.submit(executorService, () -> 4000);
+        CompletableFuture<Integer> completableFuture =
+            FutureBridges.toCompletableFuture(integerFuture);
+        completableFuture
+            .exceptionally(t -> -1)
+            .thenApply(x -> x + 3000)
+            .thenAccept(System.out::println)
+            .join();
+    }
+
 
     /**
      * This test will fail, with a class cast exception
@@ -324,7 +344,7 @@ public class CompletableFutureTest {
      */
     @Test
     public void testCastingDoesntWork() {
-        ExecutorService executorService = Executors.newFixedThreadPool(40);
+        ExecutorService executorService = ExecutorRegistry.shared().cpu();
         Future<Integer> integerFuture = executorService.submit(() -> 4000);
         CompletableFuture<Integer> completableFuture =
             (CompletableFuture<Integer>) integerFuture;
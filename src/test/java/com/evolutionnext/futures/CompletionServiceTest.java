@@ -1,6 +1,8 @@
 package com.evolutionnext.futures;
 
 
+import com.evolutionnext.futures.completion.PublishingCompletionService;
+import com.evolutionnext.futures.executor.ExecutorRegistry;
 import org.junit.Test;
 
 import java.util.concurrent.*;
@@ -10,7 +12,8 @@ public class CompletionServiceTest {
     @Test
     public void testCompletionService()
             throws InterruptedException, ExecutionException {
-        ExecutorService executorService = Executors.newFixedThreadPool(5);
+        ExecutorService executorService =
+                ExecutorRegistry.shared().io();
         CompletionService<Integer> service =
                 new ExecutorCompletionService<>(executorService);
 
@@ -47,4 +50,67 @@ public class CompletionServiceTest {
         System.out.println("result = " + take3.get());
         System.out.println("result = " + take4.get());
     }
+
+    /**
+     * The same four tasks, but the results are pushed to a subscriber in
+     * completion order. Nothing parks on take().
+     */
+    @Test
+    public void testPublishingCompletionService()
+            throws InterruptedException {
+        ExecutorService executorService =
+                ExecutorRegistry.shared().io();
+        PublishingCompletionService<Integer> service =
+                new PublishingCompletionService<>(executorService, 4);
+        CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        service.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Future<Integer> item) {
+                try {
+                    System.out.println("result = " + item.get() +
+                            " in thread: " + Thread.currentThread().getName());
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throwable.printStackTrace();
+            }
+
+            @Override
+            public void onComplete() {
+                System.out.println("All results delivered");
+                countDownLatch.countDown();
+            }
+        });
+
+        service.submit(() -> {
+            Thread.sleep(4000);
+            return 4000;
+        });
+        service.submit(() -> {
+            Thread.sleep(1000);
+            return 1000;
+        });
+        service.submit(() -> {
+            Thread.sleep(8000);
+            return 8000;
+        });
+        service.submit(() -> {
+            Thread.sleep(100);
+            return 100;
+        });
+        service.close();
+
+        System.out.println("Main thread is free to do something else");
+        countDownLatch.await();
+    }
 }
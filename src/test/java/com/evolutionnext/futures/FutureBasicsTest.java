@@ -1,18 +1,19 @@
 package com.evolutionnext.futures;
 
+import com.evolutionnext.futures.executor.ExecutorRegistry;
+import com.evolutionnext.futures.http.UrlContentFetcher;
+import com.evolutionnext.futures.lazy.LazyFuture;
 import org.junit.Test;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.Arrays;
 import java.util.concurrent.*;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class FutureBasicsTest {
 
+    private static final UrlContentFetcher urlContentFetcher =
+        new UrlContentFetcher(ExecutorRegistry.shared().io());
+
     /**
      * Demo 1: Basic Futures
      */
@@ -20,7 +21,7 @@ public class FutureBasicsTest {
     public void testBasicFuture() throws ExecutionException,
         InterruptedException {
         ExecutorService fixedThreadPool =
-            Executors.newFixedThreadPool(5);
+            ExecutorRegistry.shared().io();
 
         Callable<Integer> callable = new Callable<Integer>() {
             @Override
@@ -43,8 +44,6 @@ public class FutureBasicsTest {
         Thread.sleep(1000);
         //Runs and stay in that state
         System.out.println("result = " + future.get());
-
-        fixedThreadPool.shutdown();
     }
 
     /**
@@ -55,9 +54,8 @@ public class FutureBasicsTest {
     public void testParameterizeFuture() throws ExecutionException,
         InterruptedException {
         ExecutorService fixedThreadPool =
-            Executors.newFixedThreadPool(5);
+            ExecutorRegistry.shared().io();
         System.out.println(addOneHundredAsync(fixedThreadPool, 4).get());
-        fixedThreadPool.shutdown();
     }
 
     private Future<Integer> addOneHundredAsync(ExecutorService executorService,
@@ -71,6 +69,18 @@ public class FutureBasicsTest {
     @Test
     public void testLazyAFuture() throws ExecutionException,
         InterruptedException {
+        LazyFuture<Integer> lazyFuture = LazyFuture.supplyAsync(() -> {
+            System.out.println("Inside the future: " +
+                Thread.currentThread());
+            return 100;
+        }, ExecutorRegistry.shared().io());
+
+        System.out.println("Nothing has run yet");
+        Thread.sleep(1000);
+
+        //The first get starts it, later ones reuse the result
+        System.out.println("result = " + lazyFuture.get());
+        System.out.println("result = " + lazyFuture.get());
     }
 
     /**
@@ -80,7 +90,7 @@ public class FutureBasicsTest {
     public void testBasicFutureAsync() throws ExecutionException,
         InterruptedException {
         ExecutorService cachedThreadPool =
-            Executors.newCachedThreadPool();
+            ExecutorRegistry.shared().io();
 
         Callable<Integer> callable = () -> {
             Thread.sleep(3000);
@@ -104,17 +114,7 @@ public class FutureBasicsTest {
      * Demo 3: Futures with Parameters
      */
     private Future<Stream<String>> downloadingContentFromURL(final String url) {
-        ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
-        return cachedThreadPool.submit(() -> {
-            URL netUrl = new URL(url);
-            URLConnection urlConnection = netUrl.openConnection();
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(
-                    urlConnection.getInputStream()));
-            return reader
-                .lines()
-                .flatMap(x -> Arrays.stream(x.split(" ")));
-        });
+        return urlContentFetcher.fetchWords(url);
     }
 
     @Test
@@ -142,7 +142,7 @@ public class FutureBasicsTest {
         throws InterruptedException, ExecutionException {
 
         ExecutorService cachedThreadPool =
-            Executors.newCachedThreadPool();
+            ExecutorRegistry.shared().io();
 
         FutureTask<Integer> futureTask =
             new FutureTask<>(new Callable<Integer>() {
@@ -201,7 +201,7 @@ public class FutureBasicsTest {
 
 
         ExecutorService executorService =
-            Executors.newFixedThreadPool(4);
+            ExecutorRegistry.shared().io();
         executorService.submit(futureTask);
         System.out.println("Submitted Future Task");
         Integer result = futureTask.get(); //Block!
@@ -223,7 +223,7 @@ public class FutureBasicsTest {
             });
 
         ExecutorService service =
-            Executors.newFixedThreadPool(3);
+            ExecutorRegistry.shared().io();
         System.out.println("Starting task!");
         service.execute(futureTask);
         System.out.println("result = " + futureTask.get()); //Block
@@ -1,24 +1,25 @@
 package com.evolutionnext.futures;
 
 import com.google.common.util.concurrent.*;
+import com.evolutionnext.futures.executor.ExecutorRegistry;
+import com.evolutionnext.futures.http.UrlContentFetcher;
 import org.junit.Test;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 public class GuavaFutureTest {
+
+    private static final UrlContentFetcher urlContentFetcher =
+        new UrlContentFetcher(ExecutorRegistry.shared().io());
+
     /**
      * Demo 8: Guava Listening Executors
      */
     @Test
     public void testGuavaFutures() throws InterruptedException {
-        ExecutorService executorService = Executors.newCachedThreadPool();
+        ExecutorService executorService =
+            ExecutorRegistry.shared().io();
 
         ListeningExecutorService listeningExecutorService =
             MoreExecutors.listeningDecorator(executorService);
@@ -52,7 +53,8 @@ public class GuavaFutureTest {
 
     @Test
     public void testGuavaFutureMapEquivalent() throws InterruptedException {
-        ExecutorService executorService = Executors.newCachedThreadPool();
+        ExecutorService executorService =
+            ExecutorRegistry.shared().io();
 
         ListeningExecutorService listeningExecutorService = MoreExecutors
             .listeningDecorator(executorService);
@@ -95,24 +97,13 @@ public class GuavaFutureTest {
     }
 
     public ListenableFuture<Stream<String>> downloadingContentFromURL(final String url) {
-        ExecutorService executorService = Executors.newCachedThreadPool();
-        ListeningExecutorService listeningExecutorService =
-            MoreExecutors.listeningDecorator(executorService);
-        return listeningExecutorService.submit(() -> {
-            URL netUrl = new URL(url);
-            URLConnection urlConnection = netUrl.openConnection();
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(
-                    urlConnection.getInputStream()));
-            return reader
-                .lines()
-                .flatMap(x -> Arrays.stream(x.split(" ")));
-        });
+        return urlContentFetcher.fetchWordsListenable(url);
     }
 
     @Test
     public void testGuavaFutureFlatMapEquivalent() throws InterruptedException {
-        ExecutorService executorService = Executors.newCachedThreadPool();
+        ExecutorService executorService =
+            ExecutorRegistry.shared().io();
         ListeningExecutorService listeningExecutorService =
             MoreExecutors.listeningDecorator(executorService);
         ListenableFuture<String> listenableFuture =
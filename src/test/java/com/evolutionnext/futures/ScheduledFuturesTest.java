@@ -1,5 +1,6 @@
 package com.evolutionnext.futures;
 
+import com.evolutionnext.futures.executor.ExecutorRegistry;
 import org.junit.Test;
 
 import java.util.concurrent.*;
@@ -13,7 +14,7 @@ public class ScheduledFuturesTest {
     public void testScheduledFuture()
             throws ExecutionException, InterruptedException {
         ScheduledExecutorService scheduledExecutorService =
-                Executors.newScheduledThreadPool(5);
+                ExecutorRegistry.shared().scheduled();
 
         ScheduledFuture<Integer> scheduledFuture =
                 scheduledExecutorService
@@ -36,7 +37,7 @@ public class ScheduledFuturesTest {
             ExecutionException, InterruptedException {
 
         ScheduledExecutorService scheduledExecutorService =
-                Executors.newScheduledThreadPool(6);
+                ExecutorRegistry.shared().scheduled();
 
         final ScheduledFuture<?> scheduledFuture =
                 scheduledExecutorService
@@ -60,7 +61,7 @@ public class ScheduledFuturesTest {
     public void testScheduledFutureWithFixedRate()
             throws ExecutionException, InterruptedException {
         ScheduledExecutorService scheduledExecutorService =
-                Executors.newScheduledThreadPool(3);
+                ExecutorRegistry.shared().scheduled();
 
         final ScheduledFuture<?> scheduledFuture =
                 scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
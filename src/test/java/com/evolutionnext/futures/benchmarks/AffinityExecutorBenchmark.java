@@ -0,0 +1,96 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.executor.AffinityExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * CPU-bound {@code thenApplyAsync} chains on the common pool, on
+ * {@code newCachedThreadPool()} and on an {@link AffinityExecutor}.
+ * {@code deep} is one chain of {@code stages} stages, each adding to every
+ * element of a 4 KB array handed down the chain; {@code wide} is
+ * {@code stages} such arrays each going through a short chain of four.
+ * <p>
+ * Throughput is reported by default. For last-level cache misses per op,
+ * run on Linux with perf installed and add the perfnorm profiler:
+ * <pre>
+ * mvn -B test-compile exec:exec -Pbenchmarks -Djmh.args="AffinityExecutor -prof perfnorm"
+ * </pre>
+ * and read the LLC-load-misses rows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AffinityExecutorBenchmark {
+
+    @Param({"commonPool", "cached", "affinity"})
+    public String executor;
+
+    @Param({"1000"})
+    public int stages;
+
+    private ExecutorService workers;
+    private Executor executorUnderTest;
+
+    @Setup
+    public void startUp() {
+        switch (executor) {
+            case "commonPool":
+                executorUnderTest = ForkJoinPool.commonPool();
+                break;
+            case "cached":
+                workers = Executors.newCachedThreadPool();
+                executorUnderTest = workers;
+                break;
+            case "affinity":
+                workers = new AffinityExecutor();
+                executorUnderTest = workers;
+                break;
+            default:
+                throw new IllegalArgumentException(executor);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private static long[] addOne(long[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i]++;
+        }
+        return values;
+    }
+
+    @Benchmark
+    public long deep() {
+        CompletableFuture<long[]> start = new CompletableFuture<>();
+        CompletableFuture<long[]> chain = start;
+        for (int i = 0; i < stages; i++) {
+            chain = chain.thenApplyAsync(AffinityExecutorBenchmark::addOne, executorUnderTest);
+        }
+        start.completeAsync(() -> new long[512], executorUnderTest);
+        return chain.join()[0];
+    }
+
+    @Benchmark
+    public long wide() {
+        CompletableFuture<?>[] chains = new CompletableFuture<?>[stages];
+        for (int i = 0; i < stages; i++) {
+            chains[i] = CompletableFuture.supplyAsync(() -> new long[512], executorUnderTest)
+                                         .thenApplyAsync(AffinityExecutorBenchmark::addOne, executorUnderTest)
+                                         .thenApplyAsync(AffinityExecutorBenchmark::addOne, executorUnderTest)
+                                         .thenApplyAsync(AffinityExecutorBenchmark::addOne, executorUnderTest)
+                                         .thenApplyAsync(AffinityExecutorBenchmark::addOne, executorUnderTest);
+        }
+        CompletableFuture.allOf(chains).join();
+        return ((long[]) chains[stages - 1].join())[0];
+    }
+}
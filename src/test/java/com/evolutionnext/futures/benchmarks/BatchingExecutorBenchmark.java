@@ -0,0 +1,121 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.executor.BatchingExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.*;
+
+/**
+ * A million {@code supplyAsync(() -> 4000, executor)} calls, as in
+ * testFutureToCompletable, on the common pool, on
+ * {@code newFixedThreadPool(40)} and on a {@link BatchingExecutor} over a
+ * small fixed pool.
+ * <p>
+ * One op submits every task and waits for all of them, so SingleShotTime is
+ * the wall clock for the million. The context switches taken by the
+ * process's threads during the op are reported as an auxiliary counter,
+ * read from /proc on Linux and -1 elsewhere.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchingExecutorBenchmark {
+
+    @Param({"commonPool", "fixed40", "batching"})
+    public String executor;
+
+    @Param({"1000000"})
+    public int tasks;
+
+    @Param({"256"})
+    public int maxBatchSize;
+
+    private ExecutorService workers;
+    private Executor executorUnderTest;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ContextSwitches {
+        public long contextSwitches;
+    }
+
+    @Setup(Level.Iteration)
+    public void startUp() {
+        switch (executor) {
+            case "commonPool":
+                executorUnderTest = ForkJoinPool.commonPool();
+                break;
+            case "fixed40":
+                workers = Executors.newFixedThreadPool(40);
+                executorUnderTest = workers;
+                break;
+            case "batching":
+                workers = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors());
+                executorUnderTest = new BatchingExecutor(workers, maxBatchSize);
+                break;
+            default:
+                throw new IllegalArgumentException(executor);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        if (workers != null) {
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+            workers = null;
+        }
+    }
+
+    @Benchmark
+    public Object noOpTasks(ContextSwitches contextSwitches) {
+        long before = contextSwitches();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks];
+        for (int i = 0; i < tasks; i++) {
+            futures[i] = CompletableFuture.supplyAsync(() -> 4000, executorUnderTest);
+        }
+        CompletableFuture.allOf(futures).join();
+        long after = contextSwitches();
+        contextSwitches.contextSwitches = before < 0 || after < 0 ? -1 : after - before;
+        return futures[tasks - 1].join();
+    }
+
+    /**
+     * Voluntary plus involuntary context switches of the live threads.
+     * Threads that exited during the op are not counted.
+     */
+    private static long contextSwitches() {
+        Path tasks = Paths.get("/proc/self/task");
+        if (!Files.isDirectory(tasks)) {
+            return -1;
+        }
+        long total = 0;
+        try (DirectoryStream<Path> threads = Files.newDirectoryStream(tasks)) {
+            for (Path thread : threads) {
+                try {
+                    for (String line : Files.readAllLines(thread.resolve("status"))) {
+                        if (line.startsWith("voluntary_ctxt_switches:") ||
+                            line.startsWith("nonvoluntary_ctxt_switches:")) {
+                            total += Long.parseLong(
+                                line.substring(line.indexOf(':') + 1).trim());
+                        }
+                    }
+                } catch (IOException e) {
+                    // The thread exited while we were reading it.
+                }
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,82 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.executor.ExecutorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform versus virtual threads for the blocking work the Future demos
+ * submit: {@code tasks} concurrent tasks that each sleep {@code sleepMillis}.
+ * <p>
+ * One op submits every task and waits for all of them, so SingleShotTime is
+ * the wall clock for the batch. Peak live threads and the heap + non-heap
+ * used at the end of the batch are reported as auxiliary counters; the
+ * virtual mode needs a Java 21 runtime.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss256k")
+@State(Scope.Benchmark)
+public class BlockingTaskExecutorBenchmark {
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public ExecutorFactory mode;
+
+    @Param({"10000", "100000"})
+    public int tasks;
+
+    @Param({"50"})
+    public long sleepMillis;
+
+    private ExecutorService executorService;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long peakThreads;
+        public long usedMemoryBytes;
+    }
+
+    @Setup(Level.Iteration)
+    public void startUp() {
+        executorService = mode.newCachedThreadPool();
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public void blockingTasks(Footprint footprint) throws InterruptedException {
+        CountDownLatch countDownLatch = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            executorService.submit(() -> {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                countDownLatch.countDown();
+            });
+        }
+        countDownLatch.await();
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        footprint.peakThreads = threadMXBean.getPeakThreadCount();
+        footprint.usedMemoryBytes =
+            memoryMXBean.getHeapMemoryUsage().getUsed() +
+                memoryMXBean.getNonHeapMemoryUsage().getUsed();
+    }
+}
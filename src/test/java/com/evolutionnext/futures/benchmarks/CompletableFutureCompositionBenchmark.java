@@ -0,0 +1,198 @@
+package com.evolutionnext.futures.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage cost of the composition patterns shown in
+ * CompletableFutureTest. Every benchmark fans out {@code width} dependents
+ * off a single source future, completes the source, and joins every
+ * dependent, so the score divided by {@code width} is the cost of one stage.
+ * <p>
+ * Throughput and SampleTime (which reports p0.99) are both collected; run
+ * with {@code -prof gc} (the benchmarks profile does) for allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompletableFutureCompositionBenchmark {
+
+    @Param({"1", "16", "256", "4096"})
+    public int width;
+
+    private ExecutorService executorService;
+
+    private CompletableFuture<Integer>[] dependents;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void startUp() {
+        executorService = Executors.newCachedThreadPool();
+        dependents = (CompletableFuture<Integer>[]) new CompletableFuture<?>[width];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private void joinAll(Blackhole blackhole) {
+        for (CompletableFuture<Integer> dependent : dependents) {
+            blackhole.consume(dependent.join());
+        }
+    }
+
+    @Benchmark
+    public void thenAccept(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        CompletableFuture<?>[] accepted = new CompletableFuture<?>[width];
+        for (int i = 0; i < width; i++) {
+            accepted[i] = source.thenAccept(blackhole::consume);
+        }
+        source.complete(5);
+        for (CompletableFuture<?> future : accepted) {
+            future.join();
+        }
+    }
+
+    @Benchmark
+    public void thenApply(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        for (int i = 0; i < width; i++) {
+            dependents[i] = source.thenApply(x -> x + 19);
+        }
+        source.complete(5);
+        joinAll(blackhole);
+    }
+
+    @Benchmark
+    public void thenApplyAsync(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        for (int i = 0; i < width; i++) {
+            dependents[i] = source.thenApplyAsync(x -> x + 19);
+        }
+        source.complete(5);
+        joinAll(blackhole);
+    }
+
+    @Benchmark
+    public void thenApplyAsyncWithExecutor(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        for (int i = 0; i < width; i++) {
+            dependents[i] = source.thenApplyAsync(x -> x + 19, executorService);
+        }
+        source.complete(5);
+        joinAll(blackhole);
+    }
+
+    @Benchmark
+    public void thenCompose(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        for (int i = 0; i < width; i++) {
+            dependents[i] = source.thenCompose(
+                x -> CompletableFuture.completedFuture(x + 82));
+        }
+        source.complete(5);
+        joinAll(blackhole);
+    }
+
+    @Benchmark
+    public void thenCombine(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        CompletableFuture<Integer> other = new CompletableFuture<>();
+        for (int i = 0; i < width; i++) {
+            dependents[i] = source.thenCombine(other, Integer::sum);
+        }
+        source.complete(5);
+        other.complete(555);
+        joinAll(blackhole);
+    }
+
+    @Benchmark
+    public void thenAcceptBoth(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        CompletableFuture<Integer> other = new CompletableFuture<>();
+        CompletableFuture<?>[] accepted = new CompletableFuture<?>[width];
+        for (int i = 0; i < width; i++) {
+            accepted[i] = source.thenAcceptBoth(other, (x, y) -> {
+                blackhole.consume(x);
+                blackhole.consume(y);
+            });
+        }
+        source.complete(5);
+        other.complete(555);
+        for (CompletableFuture<?> future : accepted) {
+            future.join();
+        }
+    }
+
+    @Benchmark
+    public void thenAcceptBothAsync(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        CompletableFuture<Integer> other = new CompletableFuture<>();
+        CompletableFuture<?>[] accepted = new CompletableFuture<?>[width];
+        for (int i = 0; i < width; i++) {
+            accepted[i] = source.thenAcceptBothAsync(other, (x, y) -> {
+                blackhole.consume(x);
+                blackhole.consume(y);
+            }, executorService);
+        }
+        source.complete(5);
+        other.complete(555);
+        for (CompletableFuture<?> future : accepted) {
+            future.join();
+        }
+    }
+
+    @Benchmark
+    public void allOf(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        for (int i = 0; i < width; i++) {
+            dependents[i] = source.thenApply(x -> x + 1);
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(dependents);
+        source.complete(5);
+        blackhole.consume(all.join());
+    }
+
+    @Benchmark
+    public void anyOf(Blackhole blackhole) {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        for (int i = 0; i < width; i++) {
+            dependents[i] = source.thenApply(x -> x + 1);
+        }
+        CompletableFuture<Object> any = CompletableFuture.anyOf(dependents);
+        source.complete(5);
+        blackhole.consume(any.join());
+    }
+
+    @Benchmark
+    public void handle(Blackhole blackhole) {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        for (int i = 0; i < width; i++) {
+            dependents[i] = source.thenApply(Integer::parseInt).handle(
+                (item, throwable) -> throwable == null ? item : -1);
+        }
+        source.complete("Clearwater, FL");
+        joinAll(blackhole);
+    }
+
+    @Benchmark
+    public void exceptionally(Blackhole blackhole) {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        for (int i = 0; i < width; i++) {
+            dependents[i] = source.thenApply(Integer::parseInt)
+                                  .exceptionally(t -> -1);
+        }
+        source.complete("Clearwater, FL");
+        joinAll(blackhole);
+    }
+}
@@ -0,0 +1,101 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.completion.PublishingCompletionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.*;
+
+/**
+ * Drains {@code tasks} short tasks through an ExecutorCompletionService
+ * (a consumer thread parked on take()) and through a
+ * PublishingCompletionService (results pushed to a subscriber).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompletionServiceBenchmark {
+
+    @Param({"1000000"})
+    public int tasks;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"1024"})
+    public int maxInFlight;
+
+    private ExecutorService executorService;
+
+    @Setup(Level.Trial)
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Benchmark
+    public void executorCompletionService(Blackhole blackhole) throws Exception {
+        CompletionService<Integer> service =
+            new ExecutorCompletionService<>(executorService);
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < tasks; i++) {
+                    blackhole.consume(service.take().get());
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < tasks; i++) {
+            int value = i;
+            service.submit(() -> value);
+        }
+        consumer.join();
+    }
+
+    @Benchmark
+    public void publishingCompletionService(Blackhole blackhole) throws Exception {
+        PublishingCompletionService<Integer> service =
+            new PublishingCompletionService<>(executorService, maxInFlight);
+        CountDownLatch done = new CountDownLatch(1);
+        service.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Future<Integer> item) {
+                try {
+                    blackhole.consume(item.get());
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        for (int i = 0; i < tasks; i++) {
+            int value = i;
+            service.submit(() -> value);
+        }
+        service.close();
+        done.await();
+    }
+}
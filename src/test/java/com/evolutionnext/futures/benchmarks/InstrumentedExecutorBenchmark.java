@@ -0,0 +1,66 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.executor.InstrumentedExecutorService;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-task cost of {@link InstrumentedExecutorService}. Both executors run
+ * tasks on the calling thread, so the difference between the plain and the
+ * instrumented score is the instrumentation alone, without any queueing or
+ * hand-off.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InstrumentedExecutorBenchmark {
+
+    private ListeningExecutorService plain;
+    private InstrumentedExecutorService instrumented;
+    private long counter;
+
+    private final Runnable runnable = () -> counter++;
+    private final Callable<Long> callable = () -> counter++;
+
+    @Setup
+    public void startUp() {
+        plain = MoreExecutors.newDirectExecutorService();
+        instrumented = new InstrumentedExecutorService("bench",
+            MoreExecutors.newDirectExecutorService());
+    }
+
+    @TearDown
+    public void tearDown() {
+        plain.shutdown();
+        instrumented.shutdown();
+    }
+
+    @Benchmark
+    public long executePlain() {
+        plain.execute(runnable);
+        return counter;
+    }
+
+    @Benchmark
+    public long executeInstrumented() {
+        instrumented.execute(runnable);
+        return counter;
+    }
+
+    @Benchmark
+    public Object submitPlain() {
+        return plain.submit(callable);
+    }
+
+    @Benchmark
+    public Object submitInstrumented() {
+        return instrumented.submit(callable);
+    }
+}
@@ -0,0 +1,130 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.lazy.LazyFuture;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pipeline of {@code branches} CPU-bound branches, each a source and a
+ * thenApply, of which only every {@code 100 / consumedPercent}-th is read.
+ * With CompletableFuture every branch runs; with LazyFuture only the ones
+ * read do.
+ * <p>
+ * One op builds the pipeline, reads the consumed branches, then waits until
+ * the pool is idle, so work nobody reads is charged to the op that started
+ * it. The process CPU time consumed and the number of stages that ran are
+ * reported as auxiliary counters.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyFutureBenchmark {
+
+    @Param({"200"})
+    public int branches;
+
+    @Param({"10"})
+    public int consumedPercent;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"20000"})
+    public long tokensPerStage;
+
+    private ThreadPoolExecutor executorService;
+    private final LongAdder stagesRun = new LongAdder();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Cost {
+        public long cpuMillis;
+        public long stagesRun;
+    }
+
+    @Setup(Level.Trial)
+    public void startUp() {
+        executorService = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private long stage(long input) {
+        stagesRun.increment();
+        Blackhole.consumeCPU(tokensPerStage);
+        return input + 1;
+    }
+
+    private boolean consumed(int branch) {
+        return branch % (100 / consumedPercent) == 0;
+    }
+
+    private long finish(Cost cost, long before, long sum) throws InterruptedException {
+        while (executorService.getActiveCount() > 0 || !executorService.getQueue().isEmpty()) {
+            Thread.sleep(0, 100_000);
+        }
+        cost.cpuMillis = TimeUnit.NANOSECONDS.toMillis(processCpuNanos() - before);
+        cost.stagesRun = stagesRun.sum();
+        return sum;
+    }
+
+    @Benchmark
+    public long eager(Cost cost) throws InterruptedException {
+        stagesRun.reset();
+        long before = processCpuNanos();
+        List<CompletableFuture<Long>> pipeline = new ArrayList<>(branches);
+        for (int i = 0; i < branches; i++) {
+            long input = i;
+            pipeline.add(CompletableFuture.supplyAsync(() -> stage(input), executorService)
+                                          .thenApply(this::stage));
+        }
+        long sum = 0;
+        for (int i = 0; i < branches; i++) {
+            if (consumed(i)) {
+                sum += pipeline.get(i).join();
+            }
+        }
+        return finish(cost, before, sum);
+    }
+
+    @Benchmark
+    public long lazy(Cost cost) throws InterruptedException {
+        stagesRun.reset();
+        long before = processCpuNanos();
+        List<LazyFuture<Long>> pipeline = new ArrayList<>(branches);
+        for (int i = 0; i < branches; i++) {
+            long input = i;
+            pipeline.add(LazyFuture.supplyAsync(() -> stage(input), executorService)
+                                   .thenApply(this::stage));
+        }
+        List<CompletableFuture<Long>> read = new ArrayList<>();
+        for (int i = 0; i < branches; i++) {
+            if (consumed(i)) {
+                read.add(pipeline.get(i).toCompletableFuture());
+            }
+        }
+        long sum = 0;
+        for (CompletableFuture<Long> future : read) {
+            sum += future.join();
+        }
+        return finish(cost, before, sum);
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean)
+            ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+}
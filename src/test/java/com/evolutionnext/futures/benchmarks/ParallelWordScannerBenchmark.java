@@ -0,0 +1,87 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.http.ParallelWordScanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Finding the words that contain "Unemployment" in a {@code fileMegabytes}
+ * local file, where one line in a thousand has one: ParallelWordScanner
+ * over the memory-mapped file on a ForkJoinPool with a worker per
+ * processor, against the reader.lines().flatMap(split(" ")) of
+ * testGuavaFutureFlatMapEquivalent.
+ * <p>
+ * The file is written once per trial to the temp directory and is read
+ * from the page cache after the first op. Run with {@code -prof gc} (the
+ * benchmarks profile does) to see that the scanner allocates next to
+ * nothing per MB.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ParallelWordScannerBenchmark {
+
+    private static final String LINE =
+        "The weather stayed sunny while the tide came in at Clearwater, FL\n";
+    private static final String MATCHING_LINE =
+        "The Unemployment rate fell while weather stayed sunny in Clearwater, FL\n";
+
+    @Param({"100", "2048"})
+    public int fileMegabytes;
+
+    private Path file;
+    private ForkJoinPool pool;
+    private ParallelWordScanner scanner;
+
+    @Setup(Level.Trial)
+    public void startUp() throws IOException {
+        file = Files.createTempFile("words", ".txt");
+        long target = fileMegabytes * 1024L * 1024L;
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            long written = 0;
+            for (long line = 0; written < target; line++) {
+                String text = line % 1000 == 0 ? MATCHING_LINE : LINE;
+                writer.write(text);
+                written += text.length();
+            }
+        }
+        pool = new ForkJoinPool();
+        scanner = new ParallelWordScanner(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int parallelScanner() {
+        return scanner.wordsContaining(file, "Unemployment").join().size();
+    }
+
+    @Benchmark
+    public int readerLinesSplit() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            List<String> matches = reader
+                .lines()
+                .flatMap(x -> Arrays.stream(x.split(" ")))
+                .filter(x -> x.contains("Unemployment"))
+                .collect(Collectors.toList());
+            return matches.size();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.promise.IntPromise;
+import com.evolutionnext.futures.promise.LongPromise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * testCompletableFuturePromise as an op: create a promise, attach one
+ * thenAccept callback, complete it. Compare gc.alloc.rate.norm (the
+ * benchmarks profile runs {@code -prof gc}) between
+ * {@code CompletableFuture<Integer>} and the primitive promises.
+ * <p>
+ * The value is outside the Integer cache, so boxing really allocates, and
+ * the callbacks are built once so that the op does not pay for a capturing
+ * lambda.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitivePromiseBenchmark {
+
+    public int value = 4000;
+
+    private long sum;
+
+    private final Consumer<Integer> boxedCallback = x -> sum += x;
+    private final IntConsumer intCallback = x -> sum += x;
+    private final LongConsumer longCallback = x -> sum += x;
+
+    @Benchmark
+    public long completableFuture() {
+        CompletableFuture<Integer> completableFuture = new CompletableFuture<>();
+        completableFuture.thenAccept(boxedCallback);
+        completableFuture.complete(value);
+        return sum;
+    }
+
+    @Benchmark
+    public long intPromise() {
+        IntPromise promise = new IntPromise();
+        promise.thenAccept(intCallback);
+        promise.complete(value);
+        return sum;
+    }
+
+    @Benchmark
+    public long longPromise() {
+        LongPromise promise = new LongPromise();
+        promise.thenAccept(longCallback);
+        promise.complete(value);
+        return sum;
+    }
+}
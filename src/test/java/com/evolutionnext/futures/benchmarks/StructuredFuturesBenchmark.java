@@ -0,0 +1,126 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.combinator.StructuredFutures;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * anyOf and allOf against race and allOrFailFast on a {@code width}-wide
+ * fan-out of CPU-bound tasks over a small fixed pool.
+ * <p>
+ * For the race, input 0 returns at once; for the all-of pair, input 0 fails
+ * at once. One op fans out, waits for the combined future, then waits until
+ * the pool is idle, so work left running by anyOf/allOf is charged to the
+ * op that started it. The process CPU time consumed and the number of
+ * inputs that actually ran are reported as auxiliary counters.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StructuredFuturesBenchmark {
+
+    @Param({"1000"})
+    public int width;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"20000"})
+    public long tokensPerTask;
+
+    private ThreadPoolExecutor executorService;
+    private final LongAdder tasksRun = new LongAdder();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Cost {
+        public long cpuMillis;
+        public long tasksRun;
+    }
+
+    @Setup(Level.Trial)
+    public void startUp() {
+        executorService = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private List<CompletableFuture<Long>> fanOut(boolean firstFails) {
+        List<CompletableFuture<Long>> futures = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            boolean first = i == 0;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                tasksRun.increment();
+                if (first) {
+                    if (firstFails) {
+                        throw new IllegalStateException("First input failed");
+                    }
+                    return 0L;
+                }
+                Blackhole.consumeCPU(tokensPerTask);
+                return tokensPerTask;
+            }, executorService));
+        }
+        return futures;
+    }
+
+    private Object measure(Cost cost, boolean firstFails,
+                           Function<List<CompletableFuture<Long>>,
+                               CompletableFuture<?>> combine) throws InterruptedException {
+        tasksRun.reset();
+        long cpuBefore = processCpuNanos();
+        Object result;
+        try {
+            result = combine.apply(fanOut(firstFails)).join();
+        } catch (CompletionException e) {
+            result = e.getCause();
+        }
+        while (executorService.getActiveCount() > 0 || !executorService.getQueue().isEmpty()) {
+            Thread.sleep(0, 100_000);
+        }
+        cost.cpuMillis = TimeUnit.NANOSECONDS.toMillis(processCpuNanos() - cpuBefore);
+        cost.tasksRun = tasksRun.sum();
+        return result;
+    }
+
+    @Benchmark
+    public Object anyOf(Cost cost) throws InterruptedException {
+        return measure(cost, false,
+            futures -> CompletableFuture.anyOf(futures.toArray(new CompletableFuture<?>[0])));
+    }
+
+    @Benchmark
+    public Object race(Cost cost) throws InterruptedException {
+        return measure(cost, false, StructuredFutures::race);
+    }
+
+    @Benchmark
+    public Object allOf(Cost cost) throws InterruptedException {
+        return measure(cost, true,
+            futures -> CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])));
+    }
+
+    @Benchmark
+    public Object allOrFailFast(Cost cost) throws InterruptedException {
+        return measure(cost, true, StructuredFutures::allOrFailFast);
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean)
+            ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+}
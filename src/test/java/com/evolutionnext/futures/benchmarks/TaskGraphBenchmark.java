@@ -0,0 +1,142 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.combinator.TaskGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A 500-node workflow run three ways: as a TaskGraph, as the equivalent
+ * hand-written thenCombineAsync wiring, and layer by layer with an allOf
+ * between layers, the way hand-written workflows often end up waiting.
+ * <p>
+ * The graph has {@code layers} layers of {@code width} nodes, plus a sink
+ * that sums the last layer. Each node after the first layer combines two
+ * nodes of the layer before, and waits between 0 and {@code maxWorkMicros}
+ * as if calling out, so some paths through the graph are much longer than
+ * others. With {@code maxWorkMicros} at 0 the score is the cost of
+ * scheduling the nodes alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskGraphBenchmark {
+
+    @Param({"25"})
+    public int layers;
+
+    @Param({"20"})
+    public int width;
+
+    @Param({"0", "400"})
+    public long maxWorkMicros;
+
+    private ExecutorService executorService;
+    private TaskGraph graph;
+    private TaskGraph.Node<Long> sink;
+
+    @Setup(Level.Trial)
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(width);
+        graph = new TaskGraph();
+        List<TaskGraph.Node<Long>> previous = new ArrayList<>();
+        for (int layer = 0; layer < layers; layer++) {
+            List<TaskGraph.Node<Long>> current = new ArrayList<>();
+            for (int i = 0; i < width; i++) {
+                long work = work(layer, i);
+                String name = layer + "." + i;
+                if (layer == 0) {
+                    current.add(graph.node(name, () -> call(work, 1L)));
+                } else {
+                    current.add(graph.node(name, previous.get(i), previous.get(partner(i)),
+                        (a, b) -> call(work, a + b)));
+                }
+            }
+            previous = current;
+        }
+        sink = graph.node("sink", previous,
+            values -> values.stream().mapToLong(Long::longValue).sum());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private long work(int layer, int i) {
+        return maxWorkMicros * ((layer * 31 + i * 17) % 10) / 9;
+    }
+
+    private int partner(int i) {
+        return (i * 7 + 3) % width;
+    }
+
+    private static long call(long workMicros, long value) {
+        if (workMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(workMicros));
+        }
+        return value % 1_000_003;
+    }
+
+    @Benchmark
+    public long taskGraph() {
+        return graph.run(executorService).get(sink).join();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public long thenCombine() {
+        CompletableFuture<Long>[] previous =
+            (CompletableFuture<Long>[]) new CompletableFuture<?>[width];
+        for (int layer = 0; layer < layers; layer++) {
+            CompletableFuture<Long>[] current =
+                (CompletableFuture<Long>[]) new CompletableFuture<?>[width];
+            for (int i = 0; i < width; i++) {
+                long work = work(layer, i);
+                if (layer == 0) {
+                    current[i] = CompletableFuture.supplyAsync(() -> call(work, 1L),
+                        executorService);
+                } else {
+                    current[i] = previous[i].thenCombineAsync(previous[partner(i)],
+                        (a, b) -> call(work, a + b), executorService);
+                }
+            }
+            previous = current;
+        }
+        CompletableFuture<Long>[] last = previous;
+        return CompletableFuture.allOf(last)
+                                .thenApplyAsync(x -> Arrays.stream(last)
+                                                           .mapToLong(CompletableFuture::join)
+                                                           .sum(), executorService)
+                                .join();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public long layerByLayer() {
+        long[] previous = new long[width];
+        for (int layer = 0; layer < layers; layer++) {
+            long[] inputs = previous;
+            int current = layer;
+            CompletableFuture<Long>[] futures =
+                (CompletableFuture<Long>[]) new CompletableFuture<?>[width];
+            for (int i = 0; i < width; i++) {
+                int index = i;
+                long work = work(layer, i);
+                futures[i] = CompletableFuture.supplyAsync(() -> current == 0 ?
+                    call(work, 1L) :
+                    call(work, inputs[index] + inputs[partner(index)]), executorService);
+            }
+            CompletableFuture.allOf(futures).join();
+            previous = Arrays.stream(futures).mapToLong(CompletableFuture::join).toArray();
+        }
+        return Arrays.stream(previous).sum();
+    }
+}
@@ -0,0 +1,82 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.timer.HashedWheelScheduledExecutorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules {@code timers} timeouts between 1s and 1h out and cancels
+ * {@code cancelPercent} of them, the pattern of request timeouts that
+ * almost never fire. Compares the heap-based ScheduledThreadPoolExecutor
+ * (with and without removeOnCancel) and the hashed wheel.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TimerCancellationBenchmark {
+
+    @Param({"1000000"})
+    public int timers;
+
+    @Param({"90"})
+    public int cancelPercent;
+
+    @Param({"heap", "heapRemoveOnCancel", "wheel"})
+    public String timer;
+
+    private ScheduledExecutorService scheduledExecutorService;
+    private ScheduledFuture<?>[] futures;
+    private long[] delaysMillis;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        futures = new ScheduledFuture<?>[timers];
+        delaysMillis = new long[timers];
+        for (int i = 0; i < timers; i++) {
+            delaysMillis[i] = ThreadLocalRandom.current().nextLong(1_000, 3_600_000);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startUp() {
+        switch (timer) {
+            case "heap":
+                scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
+                break;
+            case "heapRemoveOnCancel":
+                ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+                executor.setRemoveOnCancelPolicy(true);
+                scheduledExecutorService = executor;
+                break;
+            default:
+                scheduledExecutorService = new HashedWheelScheduledExecutorService(1);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    @Benchmark
+    public void scheduleThenCancel() {
+        Runnable noop = () -> { };
+        for (int i = 0; i < timers; i++) {
+            futures[i] = scheduledExecutorService.schedule(noop,
+                delaysMillis[i], TimeUnit.MILLISECONDS);
+        }
+        for (int i = 0; i < timers; i++) {
+            if (i % 100 < cancelPercent) {
+                futures[i].cancel(false);
+            }
+        }
+    }
+}
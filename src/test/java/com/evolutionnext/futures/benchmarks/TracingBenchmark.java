@@ -0,0 +1,61 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.trace.Trace;
+import com.evolutionnext.futures.trace.Tracer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Cost of tracing a four-stage synchronous pipeline, the cheapest kind and
+ * so the one where tracing shows up most. {@code plain} is the untraced
+ * CompletableFuture chain; {@code traced} goes through a {@link Tracer} at
+ * {@code sampleRate}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TracingBenchmark {
+
+    @Param({"0", "0.01", "1"})
+    public double sampleRate;
+
+    public int value = 4000;
+
+    private Tracer tracer;
+    private long reported;
+
+    @Setup
+    public void startUp() {
+        Consumer<Trace> reporter = trace -> reported++;
+        tracer = new Tracer(sampleRate, reporter);
+    }
+
+    @Benchmark
+    public Integer plain() {
+        return new CompletableFuture<Integer>().completeAsync(() -> value, Runnable::run)
+                                               .thenApply(x -> x + 1)
+                                               .thenApply(x -> x * 2)
+                                               .thenCompose(CompletableFuture::completedFuture)
+                                               .thenApply(x -> x - 1)
+                                               .join();
+    }
+
+    @Benchmark
+    public Integer traced() {
+        CompletableFuture<Integer> source =
+            new CompletableFuture<Integer>().completeAsync(() -> value, Runnable::run);
+        return tracer.trace("pipeline", source)
+                     .thenApply("plusOne", x -> x + 1)
+                     .thenApply("double", x -> x * 2)
+                     .thenCompose("compose", CompletableFuture::completedFuture)
+                     .thenApply("minusOne", x -> x - 1)
+                     .finish()
+                     .join();
+    }
+}
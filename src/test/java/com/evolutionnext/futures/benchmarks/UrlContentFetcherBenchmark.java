@@ -0,0 +1,109 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.http.UrlContentFetcher;
+import com.evolutionnext.futures.http.WordSink;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming tokenization through UrlContentFetcher versus the old
+ * URLConnection + reader.lines() + split(" ") helper, both reading a
+ * {@code bodyMegabytes} body from a local HttpServer and keeping the words
+ * that contain "Unemployment".
+ * <p>
+ * Divide gc.alloc.rate.norm by {@code bodyMegabytes} for allocation per MB;
+ * the liveThreads counter shows how many threads the JVM holds afterwards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlContentFetcherBenchmark {
+
+    private static final String LINE =
+        "The Unemployment rate fell while weather stayed sunny in Clearwater, FL\n";
+
+    @Param({"1", "8"})
+    public int bodyMegabytes;
+
+    private HttpServer httpServer;
+    private ExecutorService serverExecutor;
+    private UrlContentFetcher fetcher;
+    private URI uri;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Threads {
+        public long liveThreads;
+    }
+
+    @Setup(Level.Trial)
+    public void startUp() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < bodyMegabytes * 1024 * 1024) {
+            builder.append(LINE);
+        }
+        byte[] body = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+        serverExecutor = Executors.newFixedThreadPool(2);
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/words", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        httpServer.setExecutor(serverExecutor);
+        httpServer.start();
+
+        uri = URI.create("http://localhost:" +
+            httpServer.getAddress().getPort() + "/words");
+        fetcher = new UrlContentFetcher();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpServer.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<String> streamingFetcher(Threads threads) {
+        List<String> matches =
+            fetcher.fetch(uri, WordSink.containing("Unemployment")).join();
+        threads.liveThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        return matches;
+    }
+
+    @Benchmark
+    public List<String> readerLinesSplit(Threads threads) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new URL(uri.toString()).openStream()))) {
+            List<String> matches = reader
+                .lines()
+                .flatMap(x -> Arrays.stream(x.split(" ")))
+                .filter(x -> x.contains("Unemployment"))
+                .collect(Collectors.toList());
+            threads.liveThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+            return matches;
+        }
+    }
+}
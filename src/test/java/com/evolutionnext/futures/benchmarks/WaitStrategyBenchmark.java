@@ -0,0 +1,130 @@
+package com.evolutionnext.futures.benchmarks;
+
+import com.evolutionnext.futures.wait.WaitStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Ways to wait for a future that a timer thread completes after
+ * {@code delayMicros}: polling isDone() in a loop, plain get(), and
+ * WaitStrategy on a CompletableFuture, on a plain Future it can only poll
+ * with backoff, and across {@code width} futures with awaitAny.
+ * <p>
+ * Each future's value is the nanoTime at which it was completed, so the
+ * {@code wakeMicros} counter adds up how long the waiter took to notice,
+ * and {@code cpuMicros} the CPU time the waiting thread used. JMH sums
+ * them over the measurement iterations; divide by {@code waits} for the
+ * cost of one wait.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WaitStrategyBenchmark {
+
+    @Param({"500"})
+    public long delayMicros;
+
+    @Param({"8"})
+    public int width;
+
+    private ScheduledExecutorService timer;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Cost {
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private long cpuBefore;
+        public long waits;
+        public long wakeMicros;
+        public long cpuMicros;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            waits = 0;
+            wakeMicros = 0;
+            cpuMicros = 0;
+        }
+
+        void begin() {
+            cpuBefore = threads.getCurrentThreadCpuTime();
+        }
+
+        long end(long completedAt) {
+            long wake = System.nanoTime() - completedAt;
+            cpuMicros += TimeUnit.NANOSECONDS.toMicros(
+                threads.getCurrentThreadCpuTime() - cpuBefore);
+            wakeMicros += TimeUnit.NANOSECONDS.toMicros(wake);
+            waits++;
+            return wake;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void startUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    private CompletableFuture<Long> completable() {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        timer.schedule(() -> future.complete(System.nanoTime()), delayMicros,
+            TimeUnit.MICROSECONDS);
+        return future;
+    }
+
+    private Future<Long> plain() {
+        return timer.schedule(System::nanoTime, delayMicros, TimeUnit.MICROSECONDS);
+    }
+
+    @Benchmark
+    public long busyPoll(Cost cost) throws Exception {
+        cost.begin();
+        CompletableFuture<Long> future = completable();
+        while (!future.isDone()) {
+            // testBasicFutureAsync, without the printing
+        }
+        return cost.end(future.get());
+    }
+
+    @Benchmark
+    public long get(Cost cost) throws Exception {
+        cost.begin();
+        return cost.end(completable().get());
+    }
+
+    @Benchmark
+    public long waitStrategy(Cost cost) throws Exception {
+        cost.begin();
+        return cost.end(WaitStrategy.DEFAULT.get(completable()));
+    }
+
+    @Benchmark
+    public long waitStrategyPlainFuture(Cost cost) throws Exception {
+        cost.begin();
+        return cost.end(WaitStrategy.DEFAULT.get(plain()));
+    }
+
+    @Benchmark
+    public long awaitAny(Cost cost) throws Exception {
+        cost.begin();
+        List<CompletableFuture<Long>> futures = new ArrayList<>(width);
+        futures.add(completable());
+        for (int i = 1; i < width; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        int done = WaitStrategy.DEFAULT.awaitAny(futures);
+        return cost.end(futures.get(done).get());
+    }
+}
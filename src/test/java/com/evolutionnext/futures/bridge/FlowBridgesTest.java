@@ -0,0 +1,153 @@
+package com.evolutionnext.futures.bridge;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FlowBridgesTest {
+
+    /**
+     * Publishes 0 to {@code count - 1} as they are requested and records
+     * the most demand ever outstanding.
+     */
+    private static class CountingPublisher implements Flow.Publisher<Integer> {
+        private final int count;
+        private final AtomicLong maxOutstanding = new AtomicLong();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private CountingPublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Integer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private long outstanding;
+                private int next;
+                private boolean emitting;
+
+                @Override
+                public void request(long n) {
+                    outstanding += n;
+                    maxOutstanding.set(Math.max(maxOutstanding.get(), outstanding));
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (outstanding > 0 && next < count && !cancelled.get()) {
+                        outstanding--;
+                        subscriber.onNext(next++);
+                    }
+                    emitting = false;
+                    if (next == count && !cancelled.get()) {
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testCollectRequestsOneBatchAtATime() {
+        CountingPublisher publisher = new CountingPublisher(10_000);
+        long sum = FlowBridges.collect(publisher,
+            Collectors.summingLong(Integer::longValue), 100).join();
+
+        assertThat(sum).isEqualTo(9_999L * 10_000 / 2);
+        assertThat(publisher.maxOutstanding.get()).isEqualTo(100);
+    }
+
+    @Test
+    public void testCancellingTheResultCancelsTheSubscription() {
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>();
+        CompletableFuture<List<Integer>> result =
+            FlowBridges.collect(publisher, Collectors.toList());
+        result.cancel(true);
+        publisher.submit(1);
+        publisher.close();
+
+        assertThat(result.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void testAFailingAccumulatorCancelsTheStream() {
+        CountingPublisher publisher = new CountingPublisher(10_000);
+        CompletableFuture<List<Integer>> result = FlowBridges.collect(publisher,
+            Collectors.mapping(i -> {
+                if (i == 50) {
+                    throw new IllegalStateException("Bad things");
+                }
+                return i;
+            }, Collectors.toList()));
+
+        assertThatThrownBy(result::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(publisher.cancelled.get()).isTrue();
+    }
+
+    @Test
+    public void testStagePublisherDeliversOnRequest() throws InterruptedException {
+        CompletableFuture<Integer> stage = new CompletableFuture<>();
+        BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        FlowBridges.toPublisher(stage).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                signals.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+
+        stage.complete(4000);
+        assertThat(signals.poll(50, TimeUnit.MILLISECONDS)).isNull();
+        subscription[0].request(1);
+        assertThat(signals).containsExactly(4000, "complete");
+    }
+
+    @Test
+    public void testStagePublisherUnwrapsFailures() {
+        CompletableFuture<Integer> stage = CompletableFuture.<Integer>supplyAsync(() -> {
+            throw new IllegalStateException("Bad things");
+        }).thenApply(x -> x + 1);
+
+        assertThatThrownBy(() -> FlowBridges.collect(
+            FlowBridges.toPublisher(stage), Collectors.toList()).join())
+            .hasCauseExactlyInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testListenableFuturePublisher() {
+        SettableFuture<String> settableFuture = SettableFuture.create();
+        CompletableFuture<List<String>> result = FlowBridges.collect(
+            FlowBridges.toPublisher(settableFuture), Collectors.toList());
+        settableFuture.set("Clearwater, FL");
+
+        assertThat(result.join()).containsExactly("Clearwater, FL");
+    }
+}
@@ -0,0 +1,151 @@
+package com.evolutionnext.futures.bridge;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FutureBridgesTest {
+
+    private ThreadPoolExecutor executorService;
+
+    @Before
+    public void startUp() {
+        executorService = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>());
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 100k pending ListenableFutures converted at once: no task is handed
+     * to any pool and no thread is started while they wait, and every one
+     * completes as soon as its source does.
+     */
+    @Test
+    public void testConvertingPendingFuturesHoldsNoThreads() {
+        int count = 100_000;
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        List<SettableFuture<Integer>> sources = new ArrayList<>(count);
+        List<CompletableFuture<Integer>> converted = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SettableFuture<Integer> source = SettableFuture.create();
+            sources.add(source);
+            converted.add(FutureBridges.toCompletableFuture(source)
+                                       .thenApply(x -> x + 3000));
+        }
+
+        assertThat(ManagementFactory.getThreadMXBean().getThreadCount())
+            .isLessThanOrEqualTo(threadsBefore);
+        assertThat(ForkJoinPool.commonPool().getActiveThreadCount()).isZero();
+        assertThat(converted.stream().noneMatch(CompletableFuture::isDone)).isTrue();
+
+        for (int i = 0; i < count; i++) {
+            sources.get(i).set(i);
+        }
+        for (int i = 0; i < count; i++) {
+            assertThat(converted.get(i).getNow(null)).isEqualTo(i + 3000);
+        }
+    }
+
+    /**
+     * testFutureToCompletable 100k times over a two-thread pool. The pool
+     * only ever runs the tasks themselves: nothing is submitted to wait on
+     * them.
+     */
+    @Test
+    public void testSubmittedTasksCompleteFromDone() throws InterruptedException {
+        int count = 100_000;
+        List<CompletableFuture<Integer>> converted = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int value = i;
+            Future<Integer> integerFuture =
+                FutureBridges.submit(executorService, () -> 4000 + value);
+            converted.add(FutureBridges.toCompletableFuture(integerFuture));
+        }
+        CompletableFuture.allOf(converted.toArray(new CompletableFuture<?>[0])).join();
+
+        for (int i = 0; i < count; i++) {
+            assertThat(converted.get(i).join()).isEqualTo(4000 + i);
+        }
+        // The worker counts the task only after its future has completed.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (executorService.getCompletedTaskCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(executorService.getCompletedTaskCount()).isEqualTo(count);
+    }
+
+    @Test
+    public void testFailureIsPassedThroughUnwrapped() {
+        CompletableFutureTask<Integer> task = new CompletableFutureTask<>(() -> {
+            throw new IllegalStateException("Bad things");
+        });
+        task.run();
+        assertThatThrownBy(() -> task.toCompletableFuture().join())
+            .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testCancellingTheCompletableFutureInterruptsTheTask()
+        throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFutureTask<Integer> task =
+            FutureBridges.submit(executorService, () -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return 4000;
+            });
+        started.await();
+        task.toCompletableFuture().cancel(false);
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(task.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void testCompletableFutureToListenableFuture() throws Exception {
+        CompletableFuture<Integer> completableFuture = new CompletableFuture<>();
+        ListenableFuture<Integer> listenableFuture =
+            FutureBridges.toListenableFuture(completableFuture.thenApply(x -> x * 2));
+        assertThat(listenableFuture.isDone()).isFalse();
+
+        completableFuture.complete(21);
+        assertThat(listenableFuture.get()).isEqualTo(42);
+    }
+
+    @Test
+    public void testCancellationCrossesBothWays() {
+        SettableFuture<Integer> settableFuture = SettableFuture.create();
+        FutureBridges.toCompletableFuture(settableFuture).cancel(true);
+        assertThat(settableFuture.isCancelled()).isTrue();
+
+        CompletableFuture<Integer> completableFuture = new CompletableFuture<>();
+        FutureBridges.toListenableFuture(completableFuture).cancel(true);
+        assertThat(completableFuture.isCancelled()).isTrue();
+    }
+
+    /**
+     * testCastingDoesntWork's future has no completion hook to adapt.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAPlainFutureTaskIsRejected() {
+        FutureBridges.toCompletableFuture(executorService.submit(() -> 4000));
+    }
+}
@@ -0,0 +1,152 @@
+package com.evolutionnext.futures.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncLoadingCacheTest {
+
+    private ExecutorService executorService;
+    private final Map<Integer, AtomicInteger> loadsPerKey = new ConcurrentHashMap<>();
+
+    @Before
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(32);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private CompletableFuture<String> slowLoad(Integer key) {
+        loadsPerKey.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "value-" + key;
+        }, executorService);
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneLoadPerKey() throws Exception {
+        AsyncLoadingCache<Integer, String> cache = new AsyncLoadingCache<>(this::slowLoad, 1000);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CompletableFuture<String>>> calls = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            int key = i % 100;
+            calls.add(executorService.submit(() -> {
+                start.await();
+                return cache.get(key);
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < calls.size(); i++) {
+            assertThat(calls.get(i).get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS))
+                .isEqualTo("value-" + i % 100);
+        }
+        assertThat(loadsPerKey).hasSize(100);
+        assertThat(loadsPerKey.values()).allMatch(loads -> loads.get() == 1);
+        assertThat(cache.loadCount()).isEqualTo(100);
+        assertThat(cache.hitCount()).isEqualTo(9_900);
+    }
+
+    @Test
+    public void testAFailedLoadIsRemovedAndRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<>(key -> {
+            if (attempts.incrementAndGet() == 1) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Bad things"));
+            }
+            return CompletableFuture.completedFuture(4000);
+        }, 10);
+
+        assertThatThrownBy(() -> cache.get("weather").join())
+            .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get("weather").join()).isEqualTo(4000);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEntriesExpireAfterWrite() {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger version = new AtomicInteger();
+        AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<>(
+            key -> CompletableFuture.completedFuture(version.incrementAndGet()),
+            10, 10, 0, TimeUnit.SECONDS, now::get);
+
+        assertThat(cache.get("weather").join()).isEqualTo(1);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        assertThat(cache.get("weather").join()).isEqualTo(1);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(cache.getIfPresent("weather")).isNull();
+        assertThat(cache.get("weather").join()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRefreshAheadServesTheOldValueWhileReloading() {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger version = new AtomicInteger();
+        CompletableFuture<Integer> reload = new CompletableFuture<>();
+        AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<>(
+            key -> version.incrementAndGet() == 1 ?
+                CompletableFuture.completedFuture(1) : reload,
+            10, 0, 5, TimeUnit.SECONDS, now::get);
+
+        assertThat(cache.get("weather").join()).isEqualTo(1);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertThat(cache.get("weather").join()).isEqualTo(1);
+        assertThat(cache.get("weather").join()).isEqualTo(1);
+        assertThat(cache.loadCount()).isEqualTo(2);
+
+        reload.complete(2);
+        assertThat(cache.get("weather").join()).isEqualTo(2);
+    }
+
+    @Test
+    public void testOneOffKeysDoNotFlushFrequentlyUsedOnes() {
+        AsyncLoadingCache<Integer, Integer> cache = new AsyncLoadingCache<>(
+            CompletableFuture::completedFuture, 10);
+        for (int round = 0; round < 5; round++) {
+            for (int hot = 0; hot < 9; hot++) {
+                cache.get(hot).join();
+            }
+        }
+        for (int scan = 100; scan < 200; scan++) {
+            cache.get(scan).join();
+        }
+
+        assertThat(cache.size()).isEqualTo(10);
+        for (int hot = 0; hot < 9; hot++) {
+            assertThat(cache.getIfPresent(hot)).isEqualTo(hot);
+        }
+        assertThat(cache.evictionCount()).isEqualTo(99);
+    }
+
+    @Test
+    public void testCancellingACallersCopyDoesNotCancelTheLoad() {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        AsyncLoadingCache<String, String> cache = new AsyncLoadingCache<>(key -> load, 10);
+
+        cache.get("weather").cancel(true);
+        CompletableFuture<String> second = cache.get("weather");
+        load.complete("sunny");
+
+        assertThat(second.join()).isEqualTo("sunny");
+    }
+}
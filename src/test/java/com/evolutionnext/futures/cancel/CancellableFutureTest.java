@@ -0,0 +1,303 @@
+package com.evolutionnext.futures.cancel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CancellableFutureTest {
+
+    private ThreadPoolExecutor executorService;
+    private AtomicInteger started;
+    private AtomicInteger interrupted;
+    private AtomicInteger finished;
+
+    @Before
+    public void startUp() {
+        executorService = (ThreadPoolExecutor) Executors.newFixedThreadPool(100);
+        started = new AtomicInteger();
+        interrupted = new AtomicInteger();
+        finished = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * The sleeping work of CompletableFutureTest's startUp, counting how it
+     * ends.
+     */
+    private Supplier<Integer> sleeping(long millis) {
+        return () -> {
+            started.incrementAndGet();
+            try {
+                Thread.sleep(millis);
+                finished.incrementAndGet();
+                return 5;
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                return -1;
+            }
+        };
+    }
+
+    private void awaitStarted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (started.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(started.get()).isEqualTo(count);
+    }
+
+    private void awaitInterrupted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (interrupted.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(interrupted.get()).isEqualTo(count);
+    }
+
+    /**
+     * 10,000 chains of three stages on a 100 thread pool: 100 are asleep
+     * for 4300ms and the rest queued behind them, some 7 minutes of work.
+     * Cancelling the last stage of each, newest first, skips the queued
+     * work and interrupts whatever has started, and a thread is free again
+     * well before the first sleep would have ended.
+     */
+    @Test
+    public void testCancellingTenThousandChainsFreesTheThreads()
+        throws InterruptedException, ExecutionException, TimeoutException {
+        List<CompletableFuture<Integer>> roots = new ArrayList<>();
+        List<CompletableFuture<String>> ends = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            CompletableFuture<Integer> root =
+                CancellableFuture.supplyAsync(sleeping(4300), executorService);
+            roots.add(root);
+            ends.add(root.thenApply(x -> x * 2).thenApply(x -> "Clearwater, FL " + x));
+        }
+        awaitStarted(100);
+        long start = System.nanoTime();
+
+        for (int i = ends.size() - 1; i >= 0; i--) {
+            ends.get(i).cancel(true);
+        }
+        String next = executorService.submit(() -> "free").get(2, TimeUnit.SECONDS);
+        long freedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        awaitInterrupted(started.get());
+
+        assertThat(next).isEqualTo("free");
+        assertThat(freedMillis).isLessThan(2000);
+        assertThat(roots).allMatch(CompletableFuture::isCancelled);
+        assertThat(executorService.getActiveCount()).isEqualTo(0);
+        assertThat(finished.get()).isEqualTo(0);
+    }
+
+    /**
+     * What CompletableFutureTest does today: the cancelled chains keep
+     * every thread asleep.
+     */
+    @Test
+    public void testPlainCancellationKeepsTheThreadsBusy() throws InterruptedException {
+        List<CompletableFuture<String>> ends = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ends.add(CompletableFuture.supplyAsync(sleeping(4300), executorService)
+                .thenApply(x -> "Clearwater, FL " + x));
+        }
+        awaitStarted(100);
+
+        ends.forEach(end -> end.cancel(true));
+        Thread.sleep(200);
+
+        assertThat(executorService.getActiveCount()).isEqualTo(100);
+        assertThat(interrupted.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testAnotherDependentKeepsTheWorkRunning() throws InterruptedException {
+        CompletableFuture<Integer> root = CancellableFuture.supplyAsync(sleeping(300),
+            executorService);
+        CompletableFuture<Integer> doubled = root.thenApply(x -> x * 2);
+        CompletableFuture<Integer> tripled = root.thenApply(x -> x * 3);
+        awaitStarted(1);
+
+        doubled.cancel(true);
+
+        assertThat(root.isCancelled()).isFalse();
+        assertThat(tripled.join()).isEqualTo(15);
+        assertThat(interrupted.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testLastDependentCancelsTheWork() throws InterruptedException {
+        CancellableFuture<Integer> root = CancellableFuture.supplyAsync(sleeping(3000),
+            executorService);
+        CompletableFuture<Integer> doubled = root.thenApply(x -> x * 2);
+        CompletableFuture<Integer> tripled = root.thenApply(x -> x * 3);
+        awaitStarted(1);
+
+        doubled.cancel(true);
+        assertThat(root.getDependents()).isEqualTo(1);
+        tripled.cancel(true);
+
+        assertThat(root.isCancelled()).isTrue();
+        awaitInterrupted(1);
+    }
+
+    @Test
+    public void testCancellingACombinationCancelsBothInputs() throws InterruptedException {
+        CompletableFuture<Integer> integerFuture1 =
+            CancellableFuture.supplyAsync(sleeping(3000), executorService);
+        CompletableFuture<Integer> integerFuture2 =
+            CancellableFuture.supplyAsync(sleeping(3000), executorService);
+        CompletableFuture<Integer> sum = integerFuture1.thenCombine(integerFuture2, Integer::sum);
+        awaitStarted(2);
+
+        sum.cancel(true);
+
+        assertThat(integerFuture1.isCancelled()).isTrue();
+        assertThat(integerFuture2.isCancelled()).isTrue();
+        awaitInterrupted(2);
+    }
+
+    @Test
+    public void testCancellingAComposeInterruptsTheInnerWork() throws InterruptedException {
+        CompletableFuture<Integer> composed = CancellableFuture
+            .supplyAsync(() -> 5, executorService)
+            .thenCompose(x -> CancellableFuture.supplyAsync(sleeping(3000), executorService));
+        awaitStarted(1);
+
+        composed.cancel(true);
+
+        awaitInterrupted(1);
+        assertThat(finished.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCancellingAnAsyncStageInterruptsItsFunction()
+        throws InterruptedException, ExecutionException {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Integer> slow = CancellableFuture
+                .supplyAsync(() -> 3000L, executorService)
+                .thenApplyAsync(millis -> sleeping(millis).get(), single);
+            awaitStarted(1);
+
+            slow.cancel(true);
+            awaitInterrupted(1);
+
+            assertThat(single.submit(() -> Thread.currentThread().isInterrupted()).get())
+                .isFalse();
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelWithoutInterruptLetsRunningWorkFinish() throws InterruptedException {
+        CompletableFuture<Integer> root = CancellableFuture.supplyAsync(sleeping(200),
+            executorService);
+        CompletableFuture<Integer> doubled = root.thenApply(x -> x * 2);
+        awaitStarted(1);
+
+        doubled.cancel(false);
+        Thread.sleep(400);
+
+        assertThat(root.isCancelled()).isTrue();
+        assertThat(finished.get()).isEqualTo(1);
+        assertThat(interrupted.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCompletesLikeSupplyAsync() {
+        CompletableFuture<String> result = CancellableFuture
+            .supplyAsync(() -> 5, executorService)
+            .thenCombine(CancellableFuture.supplyAsync(() -> 555, executorService), Integer::sum)
+            .thenApplyAsync(x -> "Clearwater, FL " + x);
+
+        assertThat(result).isInstanceOf(CancellableFuture.class);
+        assertThat(result.join()).isEqualTo("Clearwater, FL 560");
+    }
+
+    @Test
+    public void testCancellingHandleWhenCompleteAndExceptionallyAsyncInterruptsThem()
+        throws InterruptedException {
+        CompletableFuture<Integer> source = CancellableFuture.supplyAsync(() -> 3000,
+            executorService);
+        CompletableFuture<Integer> failed = CancellableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("No answer");
+        }, executorService);
+        List<CompletableFuture<?>> stages = new ArrayList<>();
+        stages.add(source.handleAsync((millis, throwable) -> sleeping(millis).get(),
+            executorService));
+        stages.add(source.whenCompleteAsync((millis, throwable) -> sleeping(millis).get(),
+            executorService));
+        stages.add(failed.exceptionallyAsync(throwable -> sleeping(3000).get(),
+            executorService));
+        awaitStarted(3);
+
+        stages.forEach(stage -> stage.cancel(true));
+
+        awaitInterrupted(3);
+    }
+
+    /**
+     * The other input wins the applyToEither, which then no longer counts,
+     * so cancelling the slow input's remaining dependent stops it.
+     */
+    @Test
+    public void testADependentThatCompletesStopsCounting() throws InterruptedException {
+        CancellableFuture<Integer> slow = CancellableFuture.supplyAsync(sleeping(3000),
+            executorService);
+        CompletableFuture<Integer> either = CancellableFuture
+            .supplyAsync(() -> 555, executorService)
+            .applyToEither(slow, x -> x);
+        CompletableFuture<Integer> doubled = slow.thenApply(x -> x * 2);
+        awaitStarted(1);
+
+        assertThat(either.join()).isEqualTo(555);
+        // The stage stops counting just after its value is published.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (slow.getDependents() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(slow.getDependents()).isEqualTo(1);
+        doubled.cancel(true);
+
+        assertThat(slow.isCancelled()).isTrue();
+        awaitInterrupted(1);
+    }
+
+    /**
+     * A finished chain keeps nothing reachable from its end, as with a
+     * plain CompletableFuture.
+     */
+    @Test
+    public void testACompletedStageLetsGoOfItsInputs() throws InterruptedException {
+        CompletableFuture<Integer> first = CancellableFuture.supplyAsync(() -> 0,
+            executorService);
+        WeakReference<CompletableFuture<Integer>> firstRef = new WeakReference<>(first);
+        CompletableFuture<Integer> end = first;
+        for (int i = 0; i < 100; i++) {
+            end = end.thenCompose(x -> CancellableFuture.supplyAsync(() -> x + 1,
+                executorService));
+        }
+        first = null;
+
+        assertThat(end.join()).isEqualTo(100);
+        for (int i = 0; i < 20 && firstRef.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(firstRef.get()).isNull();
+    }
+}
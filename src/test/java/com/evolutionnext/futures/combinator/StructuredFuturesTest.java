@@ -0,0 +1,225 @@
+package com.evolutionnext.futures.combinator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class StructuredFuturesTest {
+
+    private ExecutorService executorService;
+
+    @Before
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private CompletableFuture<Integer> sleepThenReturn(int millis, int value) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return value;
+        }, executorService);
+    }
+
+    private CompletableFuture<Integer> failAfter(int millis) {
+        return sleepThenReturn(millis, 0).thenApply(x -> {
+            throw new IllegalStateException("Failed after " + millis);
+        });
+    }
+
+    /**
+     * testAnyOf, typed, and the loser is cancelled.
+     */
+    @Test
+    public void testRaceReturnsTheFirstSuccessAndCancelsTheRest() {
+        CompletableFuture<Integer> fast = sleepThenReturn(10, 5);
+        CompletableFuture<Integer> slow = sleepThenReturn(5000, 555);
+
+        int winner = StructuredFutures.race(Arrays.asList(fast, slow)).join();
+
+        assertThat(winner).isEqualTo(5);
+        assertThat(slow.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void testRaceIgnoresFailuresWhileAnInputCanStillWin() {
+        int winner = StructuredFutures.race(Arrays.asList(
+            failAfter(0), sleepThenReturn(50, 555))).join();
+        assertThat(winner).isEqualTo(555);
+    }
+
+    @Test
+    public void testRaceFailsWhenEveryInputFails() {
+        assertThatThrownBy(() -> StructuredFutures.race(Arrays.asList(
+            failAfter(0), failAfter(10))).join())
+            .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * testAllOf no longer waits out the slow input once another has failed.
+     */
+    @Test
+    public void testAllOrFailFastCancelsSiblingsOnFirstFailure() {
+        CompletableFuture<Integer> slow = sleepThenReturn(5000, 555);
+        long start = System.nanoTime();
+
+        assertThatThrownBy(() -> StructuredFutures.allOrFailFast(
+            Arrays.asList(slow, failAfter(10))).join())
+            .hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+            .isLessThan(1000);
+        assertThat(slow.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void testAllOrFailFastKeepsInputOrder() {
+        List<Integer> results = StructuredFutures.allOrFailFast(Arrays.asList(
+            sleepThenReturn(50, 1), sleepThenReturn(0, 2), sleepThenReturn(20, 3))).join();
+        assertThat(results).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void testQuorumTakesTheFirstKInCompletionOrder() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        futures.add(new CompletableFuture<>());
+        futures.add(new CompletableFuture<>());
+        futures.add(new CompletableFuture<>());
+        futures.add(new CompletableFuture<>());
+        futures.add(new CompletableFuture<>());
+        CompletableFuture<List<Integer>> quorum = StructuredFutures.quorum(3, futures);
+
+        futures.get(4).complete(40);
+        futures.get(0).completeExceptionally(new IllegalStateException("replica down"));
+        futures.get(2).complete(20);
+        assertThat(quorum.isDone()).isFalse();
+        futures.get(1).complete(10);
+
+        assertThat(quorum.join()).containsExactly(40, 20, 10);
+        assertThat(futures.get(3).isCancelled()).isTrue();
+    }
+
+    @Test
+    public void testQuorumFailsOnceItCanNoLongerBeReached() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        CompletableFuture<List<Integer>> quorum = StructuredFutures.quorum(3, futures);
+
+        futures.get(0).completeExceptionally(new IllegalStateException("one"));
+        futures.get(1).completeExceptionally(new IllegalStateException("two"));
+        assertThat(quorum.isDone()).isFalse();
+        futures.get(2).completeExceptionally(new IllegalStateException("three"));
+
+        assertThatThrownBy(quorum::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(futures.get(3).isCancelled()).isTrue();
+        assertThat(futures.get(4).isCancelled()).isTrue();
+    }
+
+    /**
+     * Four inputs completed at the same moment from four threads, many times
+     * over: the success that completes the list must see all four values.
+     */
+    @Test
+    public void testAllOrFailFastSeesEveryValueUnderContention() throws Exception {
+        ExecutorService completers = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 10_000; round++) {
+                List<CompletableFuture<Integer>> futures = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    futures.add(new CompletableFuture<>());
+                }
+                CompletableFuture<List<Integer>> all = StructuredFutures.allOrFailFast(futures);
+                CyclicBarrier together = new CyclicBarrier(4);
+                for (int i = 0; i < 4; i++) {
+                    int value = i;
+                    completers.execute(() -> {
+                        try {
+                            together.await();
+                        } catch (InterruptedException | BrokenBarrierException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        futures.get(value).complete(value);
+                    });
+                }
+
+                assertThat(all.get(5, TimeUnit.SECONDS)).containsExactly(0, 1, 2, 3);
+            }
+        } finally {
+            completers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailuresSharedWithOtherPipelinesAreLeftAlone() {
+        IllegalStateException one = new IllegalStateException("one");
+        IllegalStateException two = new IllegalStateException("two");
+        CompletableFuture<Integer> first = CompletableFuture.failedFuture(one);
+        CompletableFuture<Integer> second = CompletableFuture.failedFuture(two);
+
+        Throwable thrown = catchThrowable(
+            () -> StructuredFutures.race(Arrays.asList(first, second)).join());
+
+        assertThat(thrown).isInstanceOf(CompletionException.class).hasCause(one);
+        assertThat(thrown.getSuppressed()).containsExactly(two);
+        assertThat(one.getSuppressed()).isEmpty();
+        assertThat(two.getSuppressed()).isEmpty();
+    }
+
+    /**
+     * With two threads and a thousand queued inputs, the inputs cancelled
+     * after the race is decided never run.
+     */
+    @Test
+    public void testCancelledInputsThatHaveNotStartedAreSkipped()
+        throws InterruptedException {
+        AtomicInteger ran = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int value = i;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                ran.incrementAndGet();
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return value;
+            }, executorService));
+        }
+
+        StructuredFutures.race(futures).join();
+        // join() can return before the race's callback has cancelled every
+        // loser, so count once they are all done.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!futures.stream().allMatch(CompletableFuture::isDone) &&
+            System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        int ranBeforeTheLosersWereCancelled = ran.get();
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(ranBeforeTheLosersWereCancelled).isLessThan(1000);
+        assertThat(ran.get()).isLessThanOrEqualTo(ranBeforeTheLosersWereCancelled + 2);
+    }
+}
@@ -0,0 +1,201 @@
+package com.evolutionnext.futures.combinator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TaskGraphTest {
+
+    private ExecutorService executorService;
+
+    @Before
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private static <T> T sleepThenReturn(int millis, T value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    /**
+     * testComposeByAddingIntegerFuture1andIntegerFuture2 as a graph, with
+     * the shared source computed once.
+     */
+    @Test
+    public void testADiamondComputesTheSharedNodeOnce() {
+        AtomicInteger sourceRuns = new AtomicInteger();
+        TaskGraph graph = new TaskGraph();
+        TaskGraph.Node<Integer> source = graph.node("source", () -> {
+            sourceRuns.incrementAndGet();
+            return 4;
+        });
+        TaskGraph.Node<Integer> integerFuture1 = graph.node("integerFuture1", source, x -> x + 1);
+        TaskGraph.Node<Integer> integerFuture2 = graph.node("integerFuture2", source, x -> x * 10);
+        TaskGraph.Node<Integer> sum = graph.node("sum", integerFuture1, integerFuture2, Integer::sum);
+
+        TaskGraph.Run run = graph.run(executorService);
+
+        assertThat(run.get(sum).join()).isEqualTo(45);
+        assertThat(sourceRuns.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testANodeStartsAsSoonAsItsOwnInputsAreDone() {
+        TaskGraph graph = new TaskGraph();
+        TaskGraph.Node<String> fast = graph.node("fast", () -> sleepThenReturn(10, "fast"));
+        TaskGraph.Node<String> slow = graph.node("slow", () -> sleepThenReturn(1000, "slow"));
+        TaskGraph.Node<String> afterFast = graph.node("afterFast", fast, s -> s + " done");
+        graph.node("both", fast, slow, (a, b) -> a + b);
+
+        TaskGraph.Run run = graph.run(executorService);
+
+        assertThat(run.get(afterFast).join()).isEqualTo("fast done");
+        assertThat(run.get(slow).isDone()).isFalse();
+        run.cancel();
+    }
+
+    /**
+     * Four branches of 200 ms each on four threads take about 200 ms, not
+     * 800 ms.
+     */
+    @Test
+    public void testIndependentBranchesRunInParallel() {
+        TaskGraph graph = new TaskGraph();
+        List<TaskGraph.Node<Integer>> branches = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int value = i;
+            branches.add(graph.node("branch" + i, () -> sleepThenReturn(200, value)));
+        }
+        TaskGraph.Node<Integer> total = graph.node("total", branches,
+            values -> values.stream().mapToInt(Integer::intValue).sum());
+
+        TaskGraph.Run run = graph.run(executorService);
+
+        assertThat(run.get(total).join()).isEqualTo(6);
+        run.whenDone().join();
+        assertThat(run.elapsed(TimeUnit.MILLISECONDS)).isLessThan(600);
+    }
+
+    private TaskGraph.Node<Integer> lookup(TaskGraph graph, AtomicInteger lookups) {
+        return graph.node("lookup", () -> {
+            lookups.incrementAndGet();
+            return 5;
+        });
+    }
+
+    @Test
+    public void testDeclaringTheSameSubgraphTwiceSharesIt() {
+        AtomicInteger lookups = new AtomicInteger();
+        TaskGraph graph = new TaskGraph();
+        TaskGraph.Node<Integer> left = graph.node("left", lookup(graph, lookups), x -> x + 1);
+        TaskGraph.Node<Integer> right = graph.node("right", lookup(graph, lookups), x -> x + 2);
+        TaskGraph.Node<Integer> sum = graph.node("sum", left, right, Integer::sum);
+
+        assertThat(graph.size()).isEqualTo(4);
+        assertThat(graph.run(executorService).get(sum).join()).isEqualTo(13);
+        assertThat(lookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReusingANameWithOtherInputsIsRejected() {
+        TaskGraph graph = new TaskGraph();
+        TaskGraph.Node<Integer> one = graph.node("one", () -> 1);
+        TaskGraph.Node<Integer> two = graph.node("two", () -> 2);
+        graph.node("next", one, x -> x + 1);
+
+        assertThatThrownBy(() -> graph.node("next", two, x -> x + 1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testAFailureSkipsItsDependentsOnly() {
+        AtomicInteger dependentRuns = new AtomicInteger();
+        TaskGraph graph = new TaskGraph();
+        TaskGraph.Node<Integer> broken = graph.node("broken", () -> {
+            throw new IllegalStateException("No answer");
+        });
+        TaskGraph.Node<Integer> dependent = graph.node("dependent", broken, x -> {
+            dependentRuns.incrementAndGet();
+            return x + 1;
+        });
+        TaskGraph.Node<Integer> unrelated = graph.node("unrelated", () -> 7);
+
+        TaskGraph.Run run = graph.run(executorService);
+        run.whenDone().join();
+
+        assertThatThrownBy(() -> run.get(dependent).join())
+            .hasCauseExactlyInstanceOf(IllegalStateException.class);
+        assertThat(dependentRuns.get()).isEqualTo(0);
+        assertThat(run.get(unrelated).join()).isEqualTo(7);
+    }
+
+    @Test
+    public void testCriticalPathFollowsTheSlowestInputs() {
+        TaskGraph graph = new TaskGraph();
+        TaskGraph.Node<Integer> source = graph.node("source", () -> 1);
+        TaskGraph.Node<Integer> slow = graph.node("slow", source, x -> sleepThenReturn(150, x));
+        TaskGraph.Node<Integer> fast = graph.node("fast", source, x -> sleepThenReturn(10, x));
+        TaskGraph.Node<Integer> fastAgain = graph.node("fastAgain", fast, x -> x);
+        TaskGraph.Node<Integer> sink = graph.node("sink", slow, fastAgain, Integer::sum);
+
+        TaskGraph.Run run = graph.run(executorService);
+        run.whenDone().join();
+
+        assertThat(run.criticalPath()).containsExactly(source, slow, sink);
+        assertThat(run.runningTime(slow, TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(150);
+    }
+
+    @Test
+    public void testCriticalPathNeedsAFinishedRun() {
+        TaskGraph graph = new TaskGraph();
+        graph.node("slow", () -> sleepThenReturn(1000, 1));
+
+        TaskGraph.Run run = graph.run(executorService);
+
+        assertThatThrownBy(run::criticalPath).isInstanceOf(IllegalStateException.class);
+        run.cancel();
+    }
+
+    @Test
+    public void testCancellingARunSkipsTheRest() throws InterruptedException {
+        AtomicInteger ran = new AtomicInteger();
+        TaskGraph graph = new TaskGraph();
+        TaskGraph.Node<Integer> slow = graph.node("slow", () -> sleepThenReturn(100, 1));
+        graph.node("next", slow, x -> ran.incrementAndGet());
+
+        TaskGraph.Run run = graph.run(executorService);
+        run.cancel();
+        Thread.sleep(200);
+
+        assertThat(run.whenDone().isDone()).isTrue();
+        assertThat(ran.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testAGraphCanRunAgain() {
+        AtomicInteger runs = new AtomicInteger();
+        TaskGraph graph = new TaskGraph();
+        TaskGraph.Node<Integer> counter = graph.node("counter", runs::incrementAndGet);
+
+        assertThat(graph.run(executorService).get(counter).join()).isEqualTo(1);
+        assertThat(graph.run(executorService).get(counter).join()).isEqualTo(2);
+    }
+}
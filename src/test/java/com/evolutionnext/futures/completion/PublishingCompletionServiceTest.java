@@ -0,0 +1,173 @@
+package com.evolutionnext.futures.completion;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PublishingCompletionServiceTest {
+
+    private ExecutorService executorService;
+
+    @Before
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<Future<T>> {
+        private final List<Future<T>> items = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final long initialRequest;
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        private RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(Future<T> item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    @Test
+    public void testResultsArriveInCompletionOrder() throws Exception {
+        PublishingCompletionService<Integer> service =
+            new PublishingCompletionService<>(executorService, 4);
+        RecordingSubscriber<Integer> subscriber =
+            new RecordingSubscriber<>(Long.MAX_VALUE);
+        service.subscribe(subscriber);
+
+        service.submit(() -> {
+            Thread.sleep(600);
+            return 600;
+        });
+        service.submit(() -> {
+            Thread.sleep(300);
+            return 300;
+        });
+        service.submit(() -> 0);
+        service.close();
+
+        assertThat(subscriber.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.items).hasSize(3);
+        assertThat(subscriber.items.get(0).get()).isEqualTo(0);
+        assertThat(subscriber.items.get(1).get()).isEqualTo(300);
+        assertThat(subscriber.items.get(2).get()).isEqualTo(600);
+    }
+
+    @Test
+    public void testDeliveryFollowsRequestedDemand() throws Exception {
+        PublishingCompletionService<Integer> service =
+            new PublishingCompletionService<>(executorService, 10);
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1);
+        service.subscribe(subscriber);
+
+        for (int i = 0; i < 5; i++) {
+            int value = i;
+            service.submit(() -> value);
+        }
+        service.close();
+        Thread.sleep(200);
+        assertThat(subscriber.items).hasSize(1);
+        assertThat(service.outstanding()).isEqualTo(4);
+
+        subscriber.subscription.request(4);
+        assertThat(subscriber.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.items).hasSize(5);
+        assertThat(subscriber.error).isNull();
+    }
+
+    @Test
+    public void testSubmitBlocksWhenInFlightLimitIsReached() throws Exception {
+        PublishingCompletionService<Integer> service =
+            new PublishingCompletionService<>(executorService, 2);
+        service.submit(() -> 1);
+        service.submit(() -> 2);
+
+        AtomicBoolean thirdSubmitted = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            try {
+                service.submit(() -> 3);
+                thirdSubmitted.set(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        Thread.sleep(200);
+        assertThat(thirdSubmitted.get()).isFalse();
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1);
+        service.subscribe(subscriber);
+        producer.join(5000);
+        assertThat(thirdSubmitted.get()).isTrue();
+    }
+
+    @Test
+    public void testFailedTaskIsDeliveredAsFailedFuture() throws Exception {
+        PublishingCompletionService<Integer> service =
+            new PublishingCompletionService<>(executorService, 4);
+        RecordingSubscriber<Integer> subscriber =
+            new RecordingSubscriber<>(Long.MAX_VALUE);
+        service.subscribe(subscriber);
+
+        service.submit(() -> {
+            throw new IllegalStateException("Bad things");
+        });
+        service.close();
+
+        assertThat(subscriber.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.error).isNull();
+        assertThat(subscriber.items).hasSize(1);
+        assertThatThrownBy(() -> subscriber.items.get(0).get())
+            .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testSubmitAfterCloseIsRejected() throws Exception {
+        PublishingCompletionService<Integer> service =
+            new PublishingCompletionService<>(executorService, 4);
+        service.close();
+        service.submit(() -> 1);
+    }
+
+    @Test
+    public void testSecondSubscriberIsRejected() {
+        PublishingCompletionService<Integer> service =
+            new PublishingCompletionService<>(executorService, 4);
+        service.subscribe(new RecordingSubscriber<>(1));
+        RecordingSubscriber<Integer> second = new RecordingSubscriber<>(1);
+        service.subscribe(second);
+        assertThat(second.error).isInstanceOf(IllegalStateException.class);
+    }
+}
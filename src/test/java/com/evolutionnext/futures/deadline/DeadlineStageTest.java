@@ -0,0 +1,190 @@
+package com.evolutionnext.futures.deadline;
+
+import com.evolutionnext.futures.executor.ExecutorRegistry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DeadlineStageTest {
+
+    private final ExecutorService executorService = ExecutorRegistry.shared().io();
+
+    private CompletableFuture<Integer> sleepThenReturn(int millis, int value) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return value;
+        }, executorService);
+    }
+
+    /**
+     * Like completableCombine, except integerFuture1 never completes. With a
+     * 100ms budget every one of 100 concurrent pipelines fails at the
+     * deadline instead of waiting on the hung future.
+     */
+    @Test
+    public void testTailLatencyIsBoundedWhenOneCombinedFutureHangs()
+        throws Exception {
+        int pipelines = 100;
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> hung = new ArrayList<>();
+        CountDownLatch countDownLatch = new CountDownLatch(pipelines);
+
+        for (int i = 0; i < pipelines; i++) {
+            long start = System.nanoTime();
+            Deadline deadline = Deadline.after(100, TimeUnit.MILLISECONDS);
+            CompletableFuture<Integer> integerFuture1 = new CompletableFuture<>();
+            hung.add(integerFuture1);
+            DeadlineStage<Integer> integerFuture2 =
+                DeadlineStage.of(sleepThenReturn(10, 555), deadline);
+            DeadlineStage<Integer> stringLength =
+                DeadlineStage.of(sleepThenReturn(20, 14), deadline);
+
+            DeadlineStage.of(integerFuture1, deadline)
+                         .thenCombine(integerFuture2, Integer::sum)
+                         .thenCombine(stringLength, Integer::sum)
+                         .toCompletableFuture()
+                         .whenComplete((result, throwable) -> {
+                             failures.add(throwable instanceof CompletionException ?
+                                 throwable.getCause() : throwable);
+                             latencies.add(TimeUnit.NANOSECONDS.toMillis(
+                                 System.nanoTime() - start));
+                             countDownLatch.countDown();
+                         });
+        }
+
+        assertThat(countDownLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        long max = Collections.max(latencies);
+        System.out.println("Max latency with a hung input: " + max + "ms");
+        assertThat(max).isBetween(100L, 250L);
+        assertThat(failures).hasSize(pipelines);
+        for (Throwable failure : failures) {
+            assertThat(failure).isInstanceOf(DeadlineExceededException.class);
+        }
+        // The timer may still be failing the hung inputs when the last
+        // pipeline reports, so wait for each of them.
+        for (CompletableFuture<Integer> future : hung) {
+            assertThat(future.handle((result, throwable) -> throwable)
+                             .get(1, TimeUnit.SECONDS))
+                .isInstanceOf(DeadlineExceededException.class);
+        }
+    }
+
+    @Test
+    public void testThenComposePassesTheBudgetToTheInnerCall() {
+        Deadline deadline = Deadline.after(150, TimeUnit.MILLISECONDS);
+        List<Long> remainingSeenByInnerCall = new ArrayList<>();
+        CompletableFuture<Integer> inner = new CompletableFuture<>();
+
+        CompletableFuture<Integer> result =
+            DeadlineStage.of(sleepThenReturn(20, 5), deadline)
+                         .thenCompose((x, remaining) -> {
+                             remainingSeenByInnerCall.add(
+                                 remaining.remaining(TimeUnit.MILLISECONDS));
+                             return inner;
+                         })
+                         .thenApply(x -> x + 19)
+                         .toCompletableFuture();
+
+        assertThatThrownBy(result::join)
+            .hasCauseInstanceOf(DeadlineExceededException.class);
+        assertThat(remainingSeenByInnerCall.get(0)).isBetween(1L, 140L);
+        assertThat(inner.isCompletedExceptionally()).isTrue();
+    }
+
+    @Test
+    public void testASliceFailsItsStageAndLeavesBudgetForTheFallback() {
+        Deadline deadline = Deadline.after(400, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+
+        int result = DeadlineStage.of(sleepThenReturn(0, 1), deadline)
+                                  .thenCompose((x, remaining) -> DeadlineStage
+                                      .of(new CompletableFuture<Integer>(),
+                                          remaining.slice(0.25))
+                                      .toCompletableFuture())
+                                  .exceptionally(t -> -1)
+                                  .toCompletableFuture()
+                                  .join();
+
+        assertThat(result).isEqualTo(-1);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+            .isBetween(90L, 300L);
+    }
+
+    @Test
+    public void testAllOfReturnsTypedResultsBeforeTheDeadline() {
+        Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+        List<Integer> results = DeadlineStage.allOf(
+            DeadlineStage.of(sleepThenReturn(30, 5), deadline),
+            DeadlineStage.of(sleepThenReturn(10, 555), deadline))
+                                             .toCompletableFuture().join();
+        assertThat(results).containsExactly(5, 555);
+        assertThat(deadline.isExpired()).isFalse();
+    }
+
+    @Test
+    public void testBindingAfterExpiryFailsImmediately() throws InterruptedException {
+        Deadline deadline = Deadline.after(1, TimeUnit.MILLISECONDS);
+        Thread.sleep(5);
+        CompletableFuture<Integer> future = deadline.bind(new CompletableFuture<>());
+        assertThat(future.isCompletedExceptionally()).isTrue();
+    }
+
+    @Test
+    public void testAHugeBudgetDoesNotExpire() throws InterruptedException {
+        Deadline deadline = Deadline.after(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        CompletableFuture<Integer> future = deadline.bind(new CompletableFuture<>());
+        Thread.sleep(300);
+
+        assertThat(deadline.isExpired()).isFalse();
+        assertThat(future.isDone()).isFalse();
+        assertThat(deadline.remaining(TimeUnit.DAYS)).isGreaterThan(100 * 365L);
+    }
+
+    @Test
+    public void testExpiryInterruptsWorkStartedBySupplyAsync() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Deadline deadline = Deadline.after(50, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<Integer> result = DeadlineStage.supplyAsync(() -> {
+            try {
+                Thread.sleep(3000);
+                return 5;
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                return -1;
+            }
+        }, executorService, deadline).toCompletableFuture();
+
+        assertThatThrownBy(result::join).hasCauseInstanceOf(DeadlineExceededException.class);
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testThenCombineLeavesTheOtherPipelineOnItsOwnDeadline() {
+        CompletableFuture<Integer> slow = new CompletableFuture<>();
+        DeadlineStage<Integer> other =
+            DeadlineStage.of(slow, Deadline.after(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Integer> combined = DeadlineStage
+            .of(sleepThenReturn(0, 5), Deadline.after(50, TimeUnit.MILLISECONDS))
+            .thenCombine(other, Integer::sum)
+            .toCompletableFuture();
+
+        assertThatThrownBy(combined::join)
+            .hasCauseInstanceOf(DeadlineExceededException.class);
+        assertThat(slow.isDone()).isFalse();
+        slow.complete(555);
+        assertThat(other.toCompletableFuture().join()).isEqualTo(555);
+    }
+}
@@ -0,0 +1,182 @@
+package com.evolutionnext.futures.executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long BASE_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final int DOWNSTREAM_CAPACITY = 4;
+
+    private ExecutorService executorService;
+    private final AtomicInteger downstreamInFlight = new AtomicInteger();
+
+    @Before
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(40);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * A downstream that serves DOWNSTREAM_CAPACITY calls at once in
+     * BASE_LATENCY_NANOS each and shares itself out beyond that, so every
+     * extra concurrent call slows all of them down.
+     */
+    private void callDownstream() {
+        int concurrent = downstreamInFlight.incrementAndGet();
+        try {
+            LockSupport.parkNanos(BASE_LATENCY_NANOS *
+                Math.max(DOWNSTREAM_CAPACITY, concurrent) / DOWNSTREAM_CAPACITY);
+        } finally {
+            downstreamInFlight.decrementAndGet();
+        }
+    }
+
+    private static class LoadResult {
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        private int shed;
+
+        private long p99Millis() {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            return TimeUnit.NANOSECONDS.toMillis(
+                sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1));
+        }
+    }
+
+    /**
+     * Submits one call every {@code intervalNanos} for {@code durationMillis}
+     * and waits for the accepted ones to finish.
+     */
+    private LoadResult generateLoad(Executor executor, long intervalNanos,
+                                    long durationMillis) throws InterruptedException {
+        LoadResult result = new LoadResult();
+        int calls = (int) (TimeUnit.MILLISECONDS.toNanos(durationMillis) / intervalNanos);
+        CountDownLatch done = new CountDownLatch(calls);
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long submitted = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    callDownstream();
+                    result.latencies.add(System.nanoTime() - submitted);
+                    done.countDown();
+                });
+            } catch (RejectedExecutionException e) {
+                result.shed++;
+                done.countDown();
+            }
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        return result;
+    }
+
+    /**
+     * At twice the downstream's capacity, a fixed pool of 40 threads lets
+     * its queue grow for as long as the load lasts. Behind the limiter, the
+     * excess is shed and p99 stays near the downstream's own latency.
+     */
+    @Test
+    public void testP99StaysStableAtTwiceSaturation() throws InterruptedException {
+        long saturationIntervalNanos = BASE_LATENCY_NANOS / DOWNSTREAM_CAPACITY;
+        long twiceSaturation = saturationIntervalNanos / 2;
+
+        LoadResult fixed = generateLoad(executorService, twiceSaturation, 2000);
+
+        AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(executorService, 10, 1, 40, 2);
+        LoadResult limited = generateLoad(limiter, twiceSaturation, 2000);
+
+        System.out.println("Fixed pool of 40: p99 " + fixed.p99Millis() + "ms, " +
+            fixed.latencies.size() + " served, " + fixed.shed + " shed");
+        System.out.println("Adaptive limiter: p99 " + limited.p99Millis() + "ms, " +
+            limited.latencies.size() + " served, " + limited.shed +
+            " shed, limit settled at " + limiter.getLimit());
+
+        assertThat(fixed.p99Millis()).isGreaterThan(1000);
+        assertThat(limited.p99Millis()).isLessThan(250);
+        assertThat(limited.shed).isGreaterThan(0);
+        assertThat(limiter.getLimit()).isBetween(DOWNSTREAM_CAPACITY, 20);
+    }
+
+    @Test
+    public void testWorkOverTheLimitIsQueuedThenShed() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(executorService, 1, 1, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(2);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.countDown();
+        };
+
+        limiter.execute(blocked);
+        limiter.execute(blocked);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getQueued()).isEqualTo(1);
+        assertThatThrownBy(() -> limiter.execute(blocked))
+            .isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        assertThat(ran.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.getShedCount()).isEqualTo(1);
+    }
+
+    /**
+     * The delegate accepts the first task and then rejects; the queued
+     * supplyAsync still completes, on the thread that ran the first one.
+     */
+    @Test
+    public void testAQueuedTaskTheDelegateRejectsRunsInstead() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        Executor rejectsAfterOne = command -> {
+            if (accepted.incrementAndGet() > 1) {
+                throw new RejectedExecutionException("Delegate is full");
+            }
+            executorService.execute(command);
+        };
+        AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(rejectsAfterOne, 1, 1, 1, 1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Thread.currentThread().getName();
+        }, limiter);
+        CompletableFuture<String> queued =
+            CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), limiter);
+        assertThat(limiter.getQueued()).isEqualTo(1);
+        release.countDown();
+
+        assertThat(queued.orTimeout(2, TimeUnit.SECONDS).join()).isEqualTo(first.join());
+        assertThat(limiter.getShedCount()).isZero();
+    }
+}
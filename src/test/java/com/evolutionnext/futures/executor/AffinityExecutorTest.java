@@ -0,0 +1,190 @@
+package com.evolutionnext.futures.executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AffinityExecutorTest {
+
+    private AffinityExecutor executor;
+
+    @Before
+    public void startUp() {
+        executor = new AffinityExecutor(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDeepChainMostlyStaysOnItsWorker() {
+        CompletableFuture<Integer> start = new CompletableFuture<>();
+        CompletableFuture<Integer> chain = start;
+        for (int i = 0; i < 1000; i++) {
+            chain = chain.thenApplyAsync(x -> x + 1, executor);
+        }
+        start.completeAsync(() -> 0, executor);
+
+        assertThat(chain.join()).isEqualTo(1000);
+        assertThat(executor.tasksRunLocally() + executor.tasksStolen()).isEqualTo(1000);
+        // A woken worker can steal a stage before its owner gets to it.
+        assertThat(executor.tasksRunLocally()).isGreaterThan(executor.tasksStolen());
+    }
+
+    /**
+     * The inner task goes on the outer one's deque; an idle worker has to
+     * take it while the outer one blocks on it.
+     */
+    @Test
+    public void testANestedSubmitThatIsJoinedCompletes() throws Exception {
+        CompletableFuture<Integer> outer = CompletableFuture.supplyAsync(
+            () -> CompletableFuture.supplyAsync(() -> 1, executor).join(), executor);
+
+        assertThat(outer.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    @Test
+    public void testWideChainsAreSpreadAndAllComplete() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[1000];
+        for (int i = 0; i < futures.length; i++) {
+            int value = i;
+            futures[i] = CompletableFuture.supplyAsync(() -> value, executor)
+                                          .thenApplyAsync(x -> x * 2, executor);
+        }
+        CompletableFuture.allOf(futures).join();
+
+        int sum = 0;
+        for (CompletableFuture<?> future : futures) {
+            sum += (Integer) future.join();
+        }
+        assertThat(sum).isEqualTo(999 * 1000);
+    }
+
+    @Test
+    public void testIdleWorkersStealFromABusyOne() throws InterruptedException {
+        CountDownLatch allRunning = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            for (int i = 0; i < 4; i++) {
+                executor.execute(() -> {
+                    allRunning.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        });
+
+        assertThat(allRunning.await(1, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        assertThat(executor.tasksStolen()).isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    public void testAFailingTaskDoesNotStopItsWorker() throws Exception {
+        AffinityExecutor single = new AffinityExecutor(1);
+        try {
+            single.execute(() -> {
+                throw new IllegalStateException("Bad things");
+            });
+            assertThat(single.submit(() -> 4000).get(1, TimeUnit.SECONDS)).isEqualTo(4000);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testShutdownRunsQueuedTasksThenTerminates() throws InterruptedException {
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            executor.execute(ran::incrementAndGet);
+        }
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran.get()).isEqualTo(100);
+        assertThatThrownBy(() -> executor.execute(ran::incrementAndGet))
+            .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    public void testALeftoverInterruptDoesNotReachTheNextTask() throws Exception {
+        AffinityExecutor single = new AffinityExecutor(1);
+        try {
+            single.execute(() -> Thread.currentThread().interrupt());
+            Future<Boolean> next = single.submit(() -> Thread.currentThread().isInterrupted());
+
+            assertThat(next.get(1, TimeUnit.SECONDS)).isFalse();
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    /**
+     * Every task submitted while the executor shuts down is either run or
+     * rejected, never left in a queue no worker will drain.
+     */
+    @Test
+    public void testTasksRacingShutdownRunOrAreRejected() throws Exception {
+        ExecutorService submitters = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 200; round++) {
+                AffinityExecutor racing = new AffinityExecutor(2);
+                AtomicInteger ran = new AtomicInteger();
+                AtomicInteger rejected = new AtomicInteger();
+                CyclicBarrier start = new CyclicBarrier(2);
+                Future<?> submitting = submitters.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        try {
+                            racing.execute(ran::incrementAndGet);
+                        } catch (RejectedExecutionException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+                start.await();
+                racing.shutdown();
+                submitting.get(1, TimeUnit.SECONDS);
+
+                assertThat(racing.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+                assertThat(ran.get() + rejected.get()).isEqualTo(100);
+            }
+        } finally {
+            submitters.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testShutdownNowReturnsTasksThatDidNotStart() throws InterruptedException {
+        AffinityExecutor single = new AffinityExecutor(1);
+        CountDownLatch running = new CountDownLatch(1);
+        single.execute(() -> {
+            running.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        running.await();
+        single.execute(() -> { });
+        single.execute(() -> { });
+
+        List<Runnable> notStarted = single.shutdownNow();
+        assertThat(notStarted).hasSize(2);
+        assertThat(single.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+    }
+}
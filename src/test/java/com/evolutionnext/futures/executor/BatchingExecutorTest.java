@@ -0,0 +1,144 @@
+package com.evolutionnext.futures.executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BatchingExecutorTest {
+
+    private ExecutorService workers;
+
+    @Before
+    public void startUp() {
+        workers = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * testFutureToCompletable's () -> 4000 a hundred thousand times: every
+     * future completes with its own value, in far fewer batches than tasks.
+     */
+    @Test
+    public void testEveryFutureCompletesInFewerBatches() {
+        BatchingExecutor executor = new BatchingExecutor(workers, 256);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = i;
+            futures.add(CompletableFuture.supplyAsync(() -> 4000 + value, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).join()).isEqualTo(4000 + i);
+        }
+        System.out.println("100000 tasks ran in " + executor.batchesRun() + " batches");
+        assertThat(executor.batchesRun()).isLessThan(100_000).isGreaterThanOrEqualTo(100_000 / 256);
+        assertThat(executor.pendingTasks()).isZero();
+    }
+
+    @Test
+    public void testWindowCoalescesSubmissionsIntoOneBatch() {
+        BatchingExecutor executor = new BatchingExecutor(workers, 1_000,
+            50, TimeUnit.MILLISECONDS, ExecutorRegistry.shared().scheduled());
+        long start = System.nanoTime();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> 4000, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+            .isGreaterThanOrEqualTo(50);
+        assertThat(executor.batchesRun()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAFullBatchDoesNotWaitForTheWindow() {
+        BatchingExecutor executor = new BatchingExecutor(workers, 10,
+            1, TimeUnit.HOURS, ExecutorRegistry.shared().scheduled());
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> 4000, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                         .orTimeout(2, TimeUnit.SECONDS)
+                         .join();
+    }
+
+    @Test
+    public void testAFailingTaskDoesNotBreakItsBatch() {
+        BatchingExecutor executor = new BatchingExecutor(workers, 100,
+            20, TimeUnit.MILLISECONDS, ExecutorRegistry.shared().scheduled());
+        CompletableFuture<Integer> failing = CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("Bad things");
+        }, executor);
+        executor.execute(() -> {
+            throw new IllegalStateException("Uncaught, goes to the handler");
+        });
+        CompletableFuture<Integer> succeeding =
+            CompletableFuture.supplyAsync(() -> 4000, executor);
+
+        assertThat(succeeding.join()).isEqualTo(4000);
+        assertThat(failing.isCompletedExceptionally()).isTrue();
+    }
+
+    /**
+     * Workers that reject while {@code rejecting} is set, like the
+     * registry's ABORT pools when full.
+     */
+    private Executor rejectingWhile(AtomicBoolean rejecting) {
+        return command -> {
+            if (rejecting.get()) {
+                throw new RejectedExecutionException("Workers are full");
+            }
+            workers.execute(command);
+        };
+    }
+
+    @Test
+    public void testARejectedDrainWithdrawsTheTaskAndLaterTasksStillRun() {
+        AtomicBoolean rejecting = new AtomicBoolean(true);
+        BatchingExecutor executor = new BatchingExecutor(rejectingWhile(rejecting), 16);
+
+        assertThatThrownBy(() -> executor.execute(() -> { }))
+            .isInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.pendingTasks()).isZero();
+
+        rejecting.set(false);
+        CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> 4000, executor);
+        assertThat(future.orTimeout(2, TimeUnit.SECONDS).join()).isEqualTo(4000);
+    }
+
+    @Test
+    public void testADrainRejectedAfterTheWindowIsRetried() throws InterruptedException {
+        AtomicBoolean rejecting = new AtomicBoolean(true);
+        BatchingExecutor executor = new BatchingExecutor(rejectingWhile(rejecting), 100,
+            20, TimeUnit.MILLISECONDS, ExecutorRegistry.shared().scheduled());
+
+        CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> 4000, executor);
+        Thread.sleep(100);
+        assertThat(future.isDone()).isFalse();
+        rejecting.set(false);
+
+        assertThat(future.orTimeout(2, TimeUnit.SECONDS).join()).isEqualTo(4000);
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testCloseRejectsNewTasks() {
+        BatchingExecutor executor = new BatchingExecutor(workers, 16);
+        executor.close();
+        executor.execute(() -> { });
+    }
+}
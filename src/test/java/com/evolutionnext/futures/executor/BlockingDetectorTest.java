@@ -0,0 +1,131 @@
+package com.evolutionnext.futures.executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BlockingDetectorTest {
+
+    private ForkJoinPool pool;
+    private FutureTask<Integer> gate;
+
+    @Before
+    public void startUp() {
+        pool = new ForkJoinPool(2);
+        gate = new FutureTask<>(() -> 4000);
+    }
+
+    @After
+    public void tearDown() {
+        gate.run();
+        pool.shutdownNow();
+    }
+
+    private void waitUntilBlocked() throws InterruptedException {
+        Thread.sleep(200);
+    }
+
+    /**
+     * testFutureToCompletable's get() inside supplyAsync is found and
+     * traced back to this class.
+     */
+    @Test
+    public void testReportsAPlainGetOnAWorker() throws InterruptedException {
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return gate.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new CompletionException(e);
+            }
+        }, pool);
+        waitUntilBlocked();
+        BlockingDetector detector = new BlockingDetector(pool, call -> { });
+
+        List<BlockingDetector.BlockingCall> found = detector.scan();
+
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getState()).isEqualTo(Thread.State.WAITING);
+        assertThat(found.get(0).getCaller().getClassName())
+            .startsWith(BlockingDetectorTest.class.getName());
+        assertThat(detector.scan()).isEmpty();
+        assertThat(detector.getReported()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReportsSleepingOnAWorker() throws InterruptedException {
+        pool.execute(() -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waitUntilBlocked();
+
+        List<BlockingDetector.BlockingCall> found =
+            new BlockingDetector(pool, call -> { }).scan();
+
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getState()).isEqualTo(Thread.State.TIMED_WAITING);
+    }
+
+    @Test
+    public void testIgnoresManagedWaitsAndIdleWorkers() throws InterruptedException {
+        CompletableFuture.supplyAsync(() -> ManagedBlocking.join(gate), pool);
+        CompletableFuture<Integer> never = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(never::join, pool);
+        pool.execute(() -> { });
+        waitUntilBlocked();
+
+        assertThat(new BlockingDetector(pool, call -> { }).scan()).isEmpty();
+        never.complete(1);
+    }
+
+    @Test
+    public void testIgnoresOtherPools() throws InterruptedException {
+        ForkJoinPool other = new ForkJoinPool(1);
+        try {
+            other.execute(() -> {
+                try {
+                    gate.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            waitUntilBlocked();
+
+            assertThat(new BlockingDetector(pool, call -> { }).scan()).isEmpty();
+            assertThat(new BlockingDetector(other, call -> { }).scan()).hasSize(1);
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testScansOnATimer() throws InterruptedException {
+        LinkedBlockingQueue<BlockingDetector.BlockingCall> calls = new LinkedBlockingQueue<>();
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try (BlockingDetector detector = new BlockingDetector(pool, calls::add)
+            .start(timer, 50, TimeUnit.MILLISECONDS)) {
+            pool.execute(() -> {
+                try {
+                    gate.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            BlockingDetector.BlockingCall call = calls.poll(5, TimeUnit.SECONDS);
+            assertThat(call).isNotNull();
+            assertThat(call.toString()).contains("WAITING");
+            assertThat(detector.getReported()).isGreaterThanOrEqualTo(1);
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+}
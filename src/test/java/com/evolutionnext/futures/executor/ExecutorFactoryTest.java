@@ -0,0 +1,66 @@
+package com.evolutionnext.futures.executor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class ExecutorFactoryTest {
+
+    private final String originalMode =
+        System.getProperty(ExecutorFactory.MODE_PROPERTY);
+
+    @After
+    public void tearDown() {
+        if (originalMode == null) {
+            System.clearProperty(ExecutorFactory.MODE_PROPERTY);
+        } else {
+            System.setProperty(ExecutorFactory.MODE_PROPERTY, originalMode);
+        }
+    }
+
+    @Test
+    public void testCurrentReadsTheSystemProperty() {
+        System.setProperty(ExecutorFactory.MODE_PROPERTY, "virtual");
+        assertThat(ExecutorFactory.current()).isEqualTo(ExecutorFactory.VIRTUAL);
+        System.setProperty(ExecutorFactory.MODE_PROPERTY, "platform");
+        assertThat(ExecutorFactory.current()).isEqualTo(ExecutorFactory.PLATFORM);
+        System.clearProperty(ExecutorFactory.MODE_PROPERTY);
+        assertThat(ExecutorFactory.current()).isEqualTo(ExecutorFactory.PLATFORM);
+    }
+
+    @Test
+    public void testPlatformRunsOnPlatformThreads()
+        throws ExecutionException, InterruptedException {
+        ExecutorService executorService =
+            ExecutorFactory.PLATFORM.newFixedThreadPool(2);
+        Future<String> future =
+            executorService.submit(() -> Thread.currentThread().toString());
+        assertThat(future.get()).startsWith("Thread[");
+        executorService.shutdown();
+    }
+
+    @Test
+    public void testVirtualRunsOnVirtualThreads()
+        throws ExecutionException, InterruptedException {
+        assumeTrue(ExecutorFactory.virtualThreadsSupported());
+        ExecutorService executorService =
+            ExecutorFactory.VIRTUAL.newCachedThreadPool();
+        Future<String> future =
+            executorService.submit(() -> Thread.currentThread().toString());
+        assertThat(future.get()).startsWith("VirtualThread[");
+        executorService.shutdown();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testVirtualIsRejectedBeforeJava21() {
+        assumeFalse(ExecutorFactory.virtualThreadsSupported());
+        ExecutorFactory.VIRTUAL.newCachedThreadPool();
+    }
+}
@@ -0,0 +1,210 @@
+package com.evolutionnext.futures.executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class ExecutorRegistryTest {
+
+    private ExecutorRegistry registry;
+
+    @Before
+    public void startUp() {
+        registry = new ExecutorRegistry("test",
+            PoolConfig.of(ExecutorRegistry.CPU, 2, 100, RejectionPolicy.CALLER_RUNS),
+            PoolConfig.of(ExecutorRegistry.IO, 4, 100, RejectionPolicy.ABORT),
+            PoolConfig.of(ExecutorRegistry.SCHEDULED, 2, 10, RejectionPolicy.ABORT));
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+    }
+
+    /**
+     * Soak: 100k CompletableFuture chains hopping between the io and cpu
+     * pools, the way the demos do, never grow the JVM's thread count.
+     */
+    @Test
+    public void testThreadCountStaysFlatOver100kInvocations() {
+        ExecutorService io = registry.io();
+        ExecutorService cpu = registry.cpu();
+        for (int i = 0; i < 1_000; i++) {
+            int value = i;
+            CompletableFuture.supplyAsync(() -> value, io)
+                             .thenApplyAsync(x -> x + 1, cpu)
+                             .join();
+        }
+        int threadsAfterWarmUp = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        int maxThreads = threadsAfterWarmUp;
+        for (int i = 0; i < 100_000; i++) {
+            int value = i;
+            int result = CompletableFuture.supplyAsync(() -> value, io)
+                                          .thenApplyAsync(x -> x + 1, cpu)
+                                          .join();
+            assertThat(result).isEqualTo(value + 1);
+            if (i % 1_000 == 0) {
+                maxThreads = Math.max(maxThreads,
+                    ManagementFactory.getThreadMXBean().getThreadCount());
+            }
+        }
+
+        System.out.println("Threads after warm up: " + threadsAfterWarmUp +
+            ", max during 100k invocations: " + maxThreads);
+        assertThat(maxThreads - threadsAfterWarmUp).isLessThanOrEqualTo(2);
+        assertThat(registry.metrics(ExecutorRegistry.IO).getLargestPoolSize())
+            .isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void testFullQueueWithAbortRejects() throws InterruptedException {
+        registry.register(PoolConfig.of("tiny", 1, 1, RejectionPolicy.ABORT));
+        ExecutorService tiny = registry.executor("tiny");
+        CountDownLatch release = new CountDownLatch(1);
+        tiny.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        tiny.execute(() -> { });
+        try {
+            tiny.execute(() -> { });
+            throw new AssertionError("Expected a rejection");
+        } catch (RejectedExecutionException expected) {
+            assertThat(registry.metrics("tiny").getRejectedTaskCount()).isEqualTo(1);
+            assertThat(registry.metrics("tiny").getQueueSize()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testFullQueueWithCallerRunsRunsOnTheCaller()
+        throws InterruptedException, ExecutionException {
+        registry.register(PoolConfig.of("tiny", 1, 1, RejectionPolicy.CALLER_RUNS));
+        ExecutorService tiny = registry.executor("tiny");
+        CountDownLatch release = new CountDownLatch(1);
+        tiny.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        tiny.execute(() -> { });
+        Future<Thread> ranOn = tiny.submit(Thread::currentThread);
+        assertThat(ranOn.get()).isSameAs(Thread.currentThread());
+        release.countDown();
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testScheduledQueueDepthIsBounded() {
+        ScheduledExecutorService scheduled = registry.scheduled();
+        for (int i = 0; i <= 10; i++) {
+            scheduled.schedule(() -> { }, 1, TimeUnit.HOURS);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCallersCannotShutDownASharedPool() {
+        registry.io().shutdown();
+    }
+
+    @Test
+    public void testCloseTerminatesPoolsAndUnregistersMBeans() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName io = new ObjectName(
+            "com.evolutionnext.futures:type=ExecutorPool,registry=\"test\",name=\"io\"");
+        registry.io().submit(() -> 1).get();
+        assertThat(mBeanServer.isRegistered(io)).isTrue();
+        assertThat(awaitAttribute(io, "CompletedTaskCount", 1L)).isEqualTo(1L);
+        assertThat(mBeanServer.getAttribute(io, "RejectionPolicy")).isEqualTo("ABORT");
+
+        registry.close();
+        assertThat(registry.io().isTerminated()).isTrue();
+        assertThat(mBeanServer.isRegistered(io)).isFalse();
+    }
+
+    @Test
+    public void testTheDefaultIoPoolSlowsCallersDownRatherThanFailing() {
+        try (ExecutorRegistry defaults = new ExecutorRegistry("defaults")) {
+            assertThat(defaults.metrics(ExecutorRegistry.IO).getRejectionPolicy())
+                .isEqualTo("CALLER_RUNS");
+        }
+    }
+
+    /**
+     * In virtual mode the io pool's thread count is not a cap: 100 blocked
+     * tasks all run at once on a pool configured with 4 threads.
+     */
+    @Test
+    public void testVirtualIoStartsAThreadPerTask() throws InterruptedException {
+        assumeTrue(ExecutorFactory.virtualThreadsSupported());
+        String originalMode = System.getProperty(ExecutorFactory.MODE_PROPERTY);
+        System.setProperty(ExecutorFactory.MODE_PROPERTY, "virtual");
+        ExecutorRegistry virtual;
+        try {
+            virtual = new ExecutorRegistry("virtual",
+                PoolConfig.of(ExecutorRegistry.CPU, 2, 100, RejectionPolicy.CALLER_RUNS),
+                PoolConfig.of(ExecutorRegistry.IO, 4, 100, RejectionPolicy.ABORT),
+                PoolConfig.of(ExecutorRegistry.SCHEDULED, 2, 10, RejectionPolicy.ABORT));
+        } finally {
+            if (originalMode == null) {
+                System.clearProperty(ExecutorFactory.MODE_PROPERTY);
+            } else {
+                System.setProperty(ExecutorFactory.MODE_PROPERTY, originalMode);
+            }
+        }
+        try {
+            CountDownLatch started = new CountDownLatch(100);
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 100; i++) {
+                virtual.io().execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            release.countDown();
+        } finally {
+            virtual.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicatePoolNamesAreRejected() {
+        registry.register(PoolConfig.of(ExecutorRegistry.IO, 1, 1, RejectionPolicy.ABORT));
+    }
+
+    /**
+     * Polls an MBean attribute for up to a second: a pool's worker counts a
+     * task as completed only after the task's future has completed.
+     */
+    private static Object awaitAttribute(ObjectName name, String attribute, Object expected)
+        throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        Object value = mBeanServer.getAttribute(name, attribute);
+        while (!expected.equals(value) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            value = mBeanServer.getAttribute(name, attribute);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,156 @@
+package com.evolutionnext.futures.executor;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstrumentedExecutorServiceTest {
+
+    private InstrumentedExecutorService executorService;
+
+    @Before
+    public void startUp() {
+        executorService = new InstrumentedExecutorService("test",
+            Executors.newFixedThreadPool(1), 1);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private static Callable<Integer> sleepThenReturn(int millis, int value) {
+        return () -> {
+            Thread.sleep(millis);
+            return value;
+        };
+    }
+
+    /**
+     * Five 20ms tasks on one thread: the last one waits about 80ms in the
+     * queue, and each runs about 20ms.
+     */
+    @Test
+    public void testQueueWaitAndRunTimeAreSeparated() throws Exception {
+        List<ListenableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(executorService.submit(sleepThenReturn(20, i)));
+        }
+        for (ListenableFuture<Integer> future : futures) {
+            future.get();
+        }
+        waitForCompletedCount(5);
+
+        ExecutorMetrics metrics = executorService.metrics();
+        System.out.println(metrics);
+        assertThat(metrics.getCompletedTaskCount()).isEqualTo(5);
+        assertThat(metrics.getRunTime().count()).isEqualTo(5);
+        assertThat(metrics.getRunTime().valueAtPercentile(50))
+            .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(19));
+        assertThat(metrics.getQueueWait().max())
+            .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(75));
+        assertThat(metrics.getCallbackLatency().count()).isEqualTo(5);
+    }
+
+    @Test
+    public void testCallbackLatencyIncludesDirectListeners() throws Exception {
+        CountDownLatch listenerAdded = new CountDownLatch(1);
+        ListenableFuture<Integer> future = executorService.submit(() -> {
+            listenerAdded.await();
+            return 4000;
+        });
+        future.addListener(() -> {
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, MoreExecutors.directExecutor());
+        listenerAdded.countDown();
+        future.get();
+        waitForCompletedCount(1);
+
+        assertThat(executorService.metrics().getCallbackLatency().max())
+            .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(25));
+    }
+
+    @Test
+    public void testActiveAndQueuedCounts() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executorService.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executorService.execute(() -> { });
+        executorService.execute(() -> { });
+        Thread.sleep(50);
+
+        ExecutorMetrics metrics = executorService.metrics();
+        assertThat(metrics.getActiveCount()).isEqualTo(1);
+        assertThat(metrics.getQueuedCount()).isEqualTo(2);
+
+        release.countDown();
+        waitForCompletedCount(3);
+        assertThat(executorService.metrics().getQueuedCount()).isZero();
+        assertThat(executorService.metrics().getCallbackLatency().count()).isZero();
+    }
+
+    @Test
+    public void testSamplingStillCountsEveryTask() throws Exception {
+        InstrumentedExecutorService sampled = new InstrumentedExecutorService("sampled",
+            MoreExecutors.newDirectExecutorService(), 16);
+        for (int i = 0; i < 16_000; i++) {
+            sampled.execute(() -> { });
+        }
+        ExecutorMetrics metrics = sampled.metrics();
+        assertThat(metrics.getCompletedTaskCount()).isEqualTo(16_000);
+        assertThat(metrics.getRunTime().count()).isBetween(500L, 1500L);
+    }
+
+    @Test
+    public void testTasksAreRecordedAsJfrEvents() throws Exception {
+        Path file = Files.createTempFile("task-execution", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.evolutionnext.futures.TaskExecution")
+                     .withThreshold(Duration.ZERO);
+            recording.start();
+            executorService.submit(sleepThenReturn(5, 4000)).get();
+            waitForCompletedCount(1);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        assertThat(events).hasSize(1);
+        RecordedEvent event = events.get(0);
+        assertThat(event.getString("executor")).isEqualTo("test");
+        assertThat(event.getDuration("runTime"))
+            .isGreaterThanOrEqualTo(Duration.ofMillis(4));
+    }
+
+    private void waitForCompletedCount(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (executorService.metrics().getCompletedTaskCount() < count &&
+            System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.evolutionnext.futures.executor;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesAreWithinOneSixteenth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.count()).isEqualTo(1_000_000);
+        assertThat((double) snapshot.valueAtPercentile(50)).isCloseTo(500_000, within(500_000 / 16.0));
+        assertThat((double) snapshot.valueAtPercentile(99)).isCloseTo(990_000, within(990_000 / 16.0));
+        assertThat((double) snapshot.max()).isCloseTo(1_000_000, within(1_000_000 / 16.0));
+        assertThat(snapshot.mean()).isCloseTo(500_000, within(500_000 / 16.0));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(-5);
+        histogram.record(15);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.valueAtPercentile(0)).isEqualTo(0);
+        assertThat(snapshot.valueAtPercentile(50)).isEqualTo(3);
+        assertThat(snapshot.max()).isEqualTo(15);
+    }
+
+    @Test
+    public void testEveryBucketBoundaryRoundTrips() {
+        for (int shift = 0; shift < 63; shift++) {
+            long value = 1L << shift;
+            int index = LatencyHistogram.indexOf(value);
+            assertThat(LatencyHistogram.highestValueOf(index)).isGreaterThanOrEqualTo(value);
+            assertThat(LatencyHistogram.indexOf(value - 1)).isLessThanOrEqualTo(index);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.snapshot().max()).isEqualTo(Long.MAX_VALUE);
+    }
+}
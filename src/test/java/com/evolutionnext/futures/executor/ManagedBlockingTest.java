@@ -0,0 +1,142 @@
+package com.evolutionnext.futures.executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ManagedBlockingTest {
+
+    private interface Waiter {
+        int get(Future<Integer> future) throws Exception;
+    }
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void startUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * testFutureToCompletable nested {@code depth} deep: each level runs on
+     * the pool, hands the next level to the pool as a FutureTask and waits
+     * for it.
+     */
+    private int nested(int depth, Waiter waiter) throws Exception {
+        if (depth == 0) {
+            return 0;
+        }
+        FutureTask<Integer> inner = new FutureTask<>(() -> nested(depth - 1, waiter));
+        pool.execute(inner);
+        return waiter.get(inner) + 1;
+    }
+
+    private CompletableFuture<Integer> bridges(int depth, Waiter waiter) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return nested(depth, waiter);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, pool);
+    }
+
+    /**
+     * Four workers end up parked in get() on tasks queued behind them, and
+     * nothing is left to run those tasks. The detector finds all four.
+     */
+    @Test
+    public void testPlainGetStarvesThePool() {
+        CompletableFuture<Integer> result = bridges(100, Future::get);
+
+        assertThatThrownBy(() -> result.get(2, TimeUnit.SECONDS))
+            .isInstanceOf(TimeoutException.class);
+        assertThat(pool.getPoolSize()).isEqualTo(4);
+        assertThat(new BlockingDetector(pool, call -> { }).scan()).hasSize(4);
+    }
+
+    @Test
+    public void testManagedWaitsAreNotReported() throws InterruptedException {
+        CompletableFuture<Integer> never = new CompletableFuture<>();
+        CompletableFuture<Integer> result = bridges(10, future -> {
+            ManagedBlocking.get(never);
+            return ManagedBlocking.get(future);
+        });
+        Thread.sleep(200);
+
+        assertThat(new BlockingDetector(pool, call -> { }).scan()).isEmpty();
+        never.complete(0);
+        assertThat(result.join()).isEqualTo(10);
+    }
+
+    @Test
+    public void testManagedGetLetsThePoolCompensate()
+        throws InterruptedException, ExecutionException, TimeoutException {
+        CompletableFuture<Integer> result = bridges(100, ManagedBlocking::get);
+
+        assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(100);
+        assertThat(pool.getParallelism()).isEqualTo(4);
+    }
+
+    @Test
+    public void testManagedJoinLetsThePoolCompensate()
+        throws InterruptedException, ExecutionException, TimeoutException {
+        CompletableFuture<Integer> result = bridges(100, ManagedBlocking::join);
+
+        assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(100);
+    }
+
+    @Test
+    public void testTimedGetGivesUp() {
+        FutureTask<Integer> never = new FutureTask<>(() -> 1);
+        long start = System.nanoTime();
+
+        assertThatThrownBy(() -> ManagedBlocking.get(never, 50, TimeUnit.MILLISECONDS))
+            .isInstanceOf(TimeoutException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+            .isBetween(50L, 1000L);
+    }
+
+    @Test
+    public void testGetAndJoinReportFailuresLikeTheirOriginals() {
+        FutureTask<Integer> failed = new FutureTask<>(() -> {
+            throw new IllegalStateException("No answer");
+        });
+        failed.run();
+
+        assertThatThrownBy(() -> ManagedBlocking.get(failed))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseExactlyInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> ManagedBlocking.join(failed))
+            .isInstanceOf(CompletionException.class)
+            .hasCauseExactlyInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testJoinKeepsTheInterrupt() {
+        FutureTask<Integer> task = new FutureTask<>(() -> 4000);
+        Thread caller = Thread.currentThread();
+        pool.execute(() -> {
+            caller.interrupt();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            task.run();
+        });
+
+        assertThat(ManagedBlocking.join(task)).isEqualTo(4000);
+        assertThat(Thread.interrupted()).isTrue();
+    }
+}
@@ -0,0 +1,145 @@
+package com.evolutionnext.futures.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelWordScannerTest {
+
+    private static final String[] WORDS = {
+        "The", "Unemployment", "rate", "fell", "while", "weather", "stayed",
+        "sunny", "in", "Clearwater,", "FL", "café", "UnemploymentRate"};
+
+    private ForkJoinPool pool;
+    private Path file;
+
+    @Before
+    public void startUp() throws IOException {
+        pool = new ForkJoinPool(4);
+        file = Files.createTempFile("scanner", ".txt");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        pool.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    private static String text(int words) {
+        Random random = new Random(4000);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+            int delimiter = random.nextInt(10);
+            builder.append(delimiter == 0 ? "\n" : delimiter == 1 ? "  \t" : " ");
+        }
+        return builder.toString();
+    }
+
+    private static List<String> concat(List<String> left, List<String> right) {
+        List<String> all = new ArrayList<>(left);
+        all.addAll(right);
+        return all;
+    }
+
+    /**
+     * With 64-byte pieces the input is cut hundreds of times, and every word
+     * still comes out whole and in order.
+     */
+    @Test
+    public void testPiecesAreCutBetweenWords() {
+        String text = text(5000);
+        ParallelWordScanner scanner = new ParallelWordScanner(pool, 64);
+        WordTokenizer<List<String>> sequential = new WordTokenizer<>(WordSink.toList());
+        sequential.feed(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+
+        List<String> words = scanner.scan(
+            ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)),
+            WordSink::toList, ParallelWordScannerTest::concat).join();
+
+        assertThat(words).isEqualTo(sequential.finish());
+    }
+
+    @Test
+    public void testScansADirectBufferFromItsPosition() {
+        byte[] bytes = "skipped Clearwater, FL".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip().position(8);
+        ParallelWordScanner scanner = new ParallelWordScanner(pool, 4);
+
+        List<String> words = scanner.scan(buffer, WordSink::toList,
+            ParallelWordScannerTest::concat).join();
+
+        assertThat(words).containsExactly("Clearwater,", "FL");
+        assertThat(buffer.position()).isEqualTo(8);
+    }
+
+    /**
+     * testGuavaFutureFlatMapEquivalent's filter, on a file mapped in
+     * 1000-byte regions.
+     */
+    @Test
+    public void testFindsTheSameWordsAsLinesFlatMapSplit() throws IOException {
+        Files.write(file, text(20000).getBytes(StandardCharsets.UTF_8));
+        List<String> expected;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            expected = reader.lines()
+                             .flatMap(x -> Arrays.stream(x.split("\\s+")))
+                             .filter(x -> x.contains("Unemployment"))
+                             .collect(Collectors.toList());
+        }
+        ParallelWordScanner scanner = new ParallelWordScanner(pool, 256, 1000);
+
+        assertThat(scanner.wordsContaining(file, "Unemployment").join())
+            .isNotEmpty()
+            .isEqualTo(expected);
+    }
+
+    @Test
+    public void testCountsWords() throws IOException {
+        Files.write(file, text(12345).getBytes(StandardCharsets.UTF_8));
+        ParallelWordScanner scanner = new ParallelWordScanner(pool, 128, 4096);
+
+        assertThat(scanner.countWords(file).join()).isEqualTo(12345L);
+    }
+
+    @Test
+    public void testAnInputWithoutDelimitersIsOneWord() throws IOException {
+        byte[] word = new byte[10_000];
+        Arrays.fill(word, (byte) 'x');
+        Files.write(file, word);
+        ParallelWordScanner scanner = new ParallelWordScanner(pool, 16, 1000);
+
+        assertThat(scanner.countWords(file).join()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testAnEmptyFileHasNoWords() {
+        assertThat(new ParallelWordScanner(pool).countWords(file).join()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testAMissingFileFailsTheFuture() throws IOException {
+        Files.delete(file);
+
+        assertThatThrownBy(() -> new ParallelWordScanner(pool).countWords(file).join())
+            .hasCauseInstanceOf(NoSuchFileException.class);
+    }
+}
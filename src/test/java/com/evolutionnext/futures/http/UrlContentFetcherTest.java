@@ -0,0 +1,152 @@
+package com.evolutionnext.futures.http;
+
+import com.evolutionnext.futures.bridge.FlowBridges;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class UrlContentFetcherTest {
+
+    private static final String LINE =
+        "The Unemployment rate  fell\r\nweather report for Clearwater,\tFL\n";
+    private static final int WORDS_PER_LINE = 9;
+    private static final int BODY_SIZE = 4 * 1024 * 1024;
+
+    private HttpServer httpServer;
+    private ExecutorService serverExecutor;
+    private byte[] body;
+    private int lines;
+
+    @Before
+    public void startUp() throws IOException {
+        StringBuilder builder = new StringBuilder(BODY_SIZE + LINE.length());
+        while (builder.length() < BODY_SIZE) {
+            builder.append(LINE);
+            lines++;
+        }
+        body = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+        serverExecutor = Executors.newFixedThreadPool(2);
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/words", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                //Odd sized writes so words straddle the client's buffers
+                for (int offset = 0; offset < body.length; offset += 777) {
+                    outputStream.write(body, offset,
+                        Math.min(777, body.length - offset));
+                }
+            }
+        });
+        httpServer.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        httpServer.setExecutor(serverExecutor);
+        httpServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        httpServer.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" +
+            httpServer.getAddress().getPort() + path);
+    }
+
+    @Test
+    public void testCountsEveryWordOfAMultiMegabyteBody()
+        throws ExecutionException, InterruptedException {
+        UrlContentFetcher fetcher = new UrlContentFetcher();
+        long count = fetcher.fetch(uri("/words"), WordSink.counting()).get();
+        assertThat(count).isEqualTo((long) lines * WORDS_PER_LINE);
+    }
+
+    @Test
+    public void testOnlyMatchingWordsAreDecoded()
+        throws ExecutionException, InterruptedException {
+        UrlContentFetcher fetcher = new UrlContentFetcher();
+        List<String> matches = fetcher
+            .fetch(uri("/words"), WordSink.containing("Unemployment")).get();
+        assertThat(matches).hasSize(lines);
+        assertThat(matches.stream().distinct().collect(Collectors.toList()))
+            .containsExactly("Unemployment");
+    }
+
+    @Test
+    public void testFetchWordsMatchesLineSplitting()
+        throws ExecutionException, InterruptedException {
+        UrlContentFetcher fetcher = new UrlContentFetcher();
+        List<String> words = fetcher.fetchWords(uri("/words").toString()).get()
+                                    .limit(WORDS_PER_LINE)
+                                    .collect(Collectors.toList());
+        assertThat(words).containsExactly("The", "Unemployment", "rate",
+            "fell", "weather", "report", "for", "Clearwater,", "FL");
+    }
+
+    @Test
+    public void testPublishedWordsAreConsumedIncrementally()
+        throws ExecutionException, InterruptedException {
+        UrlContentFetcher fetcher = new UrlContentFetcher();
+        long count = FlowBridges.collect(fetcher.publishWords(uri("/words"), 1024),
+            Collectors.counting(), 64).get();
+        assertThat(count).isEqualTo((long) lines * WORDS_PER_LINE);
+    }
+
+    @Test
+    public void testPublishedWordsFailOnErrorStatus() {
+        UrlContentFetcher fetcher = new UrlContentFetcher();
+        assertThatThrownBy(() -> FlowBridges.collect(
+            fetcher.publishWords(uri("/missing"), 1024), Collectors.toList()).get())
+            .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void testListenableFutureFailsOnErrorStatus() {
+        UrlContentFetcher fetcher = new UrlContentFetcher();
+        assertThatThrownBy(() ->
+            fetcher.fetchWordsListenable(uri("/missing").toString()).get())
+            .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void testSharedFetcherDoesNotGrowThreads()
+        throws ExecutionException, InterruptedException {
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(2);
+        UrlContentFetcher fetcher = new UrlContentFetcher(clientExecutor);
+        fetcher.fetch(uri("/words"), WordSink.counting()).get();
+        int threadsAfterFirstFetch =
+            ManagementFactory.getThreadMXBean().getThreadCount();
+
+        for (int i = 0; i < 20; i++) {
+            fetcher.fetch(uri("/words"), WordSink.counting()).get();
+        }
+
+        int threadsAfterAllFetches =
+            ManagementFactory.getThreadMXBean().getThreadCount();
+        System.out.println("Threads after 1 fetch: " + threadsAfterFirstFetch +
+            ", after 21 fetches: " + threadsAfterAllFetches);
+        assertThat(threadsAfterAllFetches - threadsAfterFirstFetch)
+            .isLessThanOrEqualTo(2);
+        clientExecutor.shutdown();
+    }
+}
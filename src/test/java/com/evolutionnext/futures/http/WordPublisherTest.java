@@ -0,0 +1,142 @@
+package com.evolutionnext.futures.http;
+
+import com.evolutionnext.futures.bridge.FlowBridges;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WordPublisherTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int WORD_SIZE = 64;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * A chunk of 63-letter words, each followed by a space.
+     */
+    private static byte[] chunk() {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        Arrays.fill(chunk, (byte) 'w');
+        for (int i = WORD_SIZE - 1; i < chunk.length; i += WORD_SIZE) {
+            chunk[i] = ' ';
+        }
+        return chunk;
+    }
+
+    /**
+     * A gigabyte of words from a producer that blocks whenever it is four
+     * chunks ahead, counted as they stream past. Were the words collected
+     * as a Stream first, as testGettingUrl does, this would need gigabytes
+     * of heap; here the retained heap stays flat.
+     */
+    @Test
+    public void testAGigabyteStreamsInConstantMemory() throws Exception {
+        byte[] chunk = chunk();
+        int chunks = (1 << 30) / CHUNK_SIZE;
+        int bufferSize = 4096;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        long[] maxRetained = new long[1];
+
+        SubmissionPublisher<List<ByteBuffer>> body =
+            new SubmissionPublisher<>(executorService, 4);
+        WordPublisher words = new WordPublisher(bufferSize);
+        body.subscribe(words);
+        CompletableFuture<Long> count = FlowBridges.collect(words, Collectors.counting());
+        Future<?> producer = executorService.submit(() -> {
+            for (int i = 0; i < chunks; i++) {
+                body.submit(Collections.singletonList(ByteBuffer.wrap(chunk)));
+                if (i % 4096 == 0) {
+                    System.gc();
+                    maxRetained[0] = Math.max(maxRetained[0],
+                        memory.getHeapMemoryUsage().getUsed() - baseline);
+                }
+            }
+            body.close();
+        });
+
+        producer.get(2, TimeUnit.MINUTES);
+        assertThat(count.get(1, TimeUnit.MINUTES))
+            .isEqualTo((long) chunks * CHUNK_SIZE / WORD_SIZE);
+        System.out.println("Retained heap while streaming 1 GB: at most " +
+            maxRetained[0] / 1024 + " KB, words buffered: at most " + words.getMaxBuffered());
+        assertThat(words.getMaxBuffered()).isLessThan(bufferSize + CHUNK_SIZE / WORD_SIZE);
+        assertThat(maxRetained[0]).isLessThan(64L * 1024 * 1024);
+    }
+
+    @Test
+    public void testWordsStraddlingBuffersAndTheTrailingWord() {
+        SubmissionPublisher<List<ByteBuffer>> body = new SubmissionPublisher<>(executorService, 4);
+        WordPublisher words = new WordPublisher(2);
+        body.subscribe(words);
+        CompletableFuture<List<String>> collected =
+            FlowBridges.collect(words, Collectors.toList(), 1);
+
+        for (String part : new String[]{"The Unemp", "loyment rate\n fe", "ll"}) {
+            body.submit(Collections.singletonList(
+                ByteBuffer.wrap(part.getBytes(StandardCharsets.UTF_8))));
+        }
+        body.close();
+
+        assertThat(collected.join()).containsExactly("The", "Unemployment", "rate", "fell");
+    }
+
+    /**
+     * With no demand, one chunk is read ahead and the rest wait upstream.
+     */
+    @Test
+    public void testOnlyOneChunkIsReadAheadOfDemand() throws InterruptedException {
+        SubmissionPublisher<List<ByteBuffer>> body = new SubmissionPublisher<>(executorService, 4);
+        WordPublisher words = new WordPublisher(1);
+        body.subscribe(words);
+        words.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+            }
+
+            @Override
+            public void onNext(String item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        byte[] chunk = chunk();
+        for (int i = 0; i < 3; i++) {
+            body.submit(Collections.singletonList(ByteBuffer.wrap(chunk)));
+        }
+        Thread.sleep(100);
+
+        assertThat(body.estimateMaximumLag()).isGreaterThanOrEqualTo(2);
+        assertThat(words.getMaxBuffered()).isEqualTo(CHUNK_SIZE / WORD_SIZE);
+    }
+}
@@ -0,0 +1,49 @@
+package com.evolutionnext.futures.http;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WordTokenizerTest {
+
+    private static List<String> tokenize(String text, int chunkSize,
+                                         boolean direct) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        WordTokenizer<List<String>> tokenizer =
+            new WordTokenizer<>(WordSink.toList());
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            int length = Math.min(chunkSize, bytes.length - offset);
+            ByteBuffer buffer = direct ?
+                ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+            buffer.put(bytes, offset, length).flip();
+            tokenizer.feed(buffer);
+        }
+        return tokenizer.finish();
+    }
+
+    @Test
+    public void testWordsSplitAcrossEveryBufferBoundary() {
+        String text = "Clearwater, FL\nis   sunny\r\ntoday";
+        for (int chunkSize = 1; chunkSize <= text.length(); chunkSize++) {
+            assertThat(tokenize(text, chunkSize, false))
+                .containsExactly("Clearwater,", "FL", "is", "sunny", "today");
+            assertThat(tokenize(text, chunkSize, true))
+                .containsExactly("Clearwater,", "FL", "is", "sunny", "today");
+        }
+    }
+
+    @Test
+    public void testMultiByteCharactersSurviveBoundaries() {
+        assertThat(tokenize("señor café 東京", 1, false))
+            .containsExactly("señor", "café", "東京");
+    }
+
+    @Test
+    public void testOnlyDelimitersYieldNoWords() {
+        assertThat(tokenize(" \n\r\t ", 2, false)).isEmpty();
+    }
+}
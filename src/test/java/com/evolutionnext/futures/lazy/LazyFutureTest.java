@@ -0,0 +1,242 @@
+package com.evolutionnext.futures.lazy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LazyFutureTest {
+
+    private ExecutorService executorService;
+
+    @Before
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testNothingRunsUntilTheValueIsAskedFor()
+        throws ExecutionException, InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        LazyFuture<Integer> lazy = LazyFuture.supplyAsync(() -> {
+            runs.incrementAndGet();
+            return 100;
+        }, executorService);
+        LazyFuture<Integer> plusOne = lazy.thenApply(x -> x + 1);
+        Thread.sleep(50);
+
+        assertThat(runs.get()).isEqualTo(0);
+        assertThat(lazy.isStarted()).isFalse();
+        assertThat(plusOne.get()).isEqualTo(101);
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrentFirstCallersShareOneRun() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        LazyFuture<Integer> lazy = LazyFuture.supplyAsync(() -> {
+            runs.incrementAndGet();
+            return 100;
+        }, executorService);
+        CountDownLatch go = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            results.add(result);
+            Thread caller = new Thread(() -> {
+                try {
+                    go.await();
+                    result.complete(lazy.get());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            callers.add(caller);
+            caller.start();
+        }
+        go.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        assertThat(results).allMatch(result -> result.join() == 100);
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(lazy.getStarts()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTheResultIsKept() throws ExecutionException, InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        LazyFuture<Integer> lazy = LazyFuture.supplyAsync(runs::incrementAndGet, executorService);
+
+        assertThat(lazy.get()).isEqualTo(1);
+        assertThat(lazy.get()).isEqualTo(1);
+        assertThat(lazy.toCompletableFuture().join()).isEqualTo(1);
+        assertThat(lazy.isDone()).isTrue();
+    }
+
+    /**
+     * When the last subscriber withdraws, the running task is interrupted,
+     * and asking again starts over.
+     */
+    @Test
+    public void testWhenEverySubscriberWithdrawsTheWorkStops() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        LazyFuture<Integer> lazy = LazyFuture.supplyAsync(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return 100;
+        }, executorService);
+
+        CompletableFuture<Integer> first = lazy.toCompletableFuture();
+        CompletableFuture<Integer> second = lazy.toCompletableFuture();
+        assertThat(started.await(1, TimeUnit.SECONDS)).isTrue();
+        first.cancel(true);
+        Thread.sleep(50);
+        assertThat(interrupted.get()).isFalse();
+        second.cancel(true);
+        Thread.sleep(50);
+
+        assertThat(interrupted.get()).isTrue();
+        assertThat(lazy.isStarted()).isFalse();
+        lazy.toCompletableFuture().cancel(true);
+        assertThat(lazy.getStarts()).isEqualTo(2);
+    }
+
+    @Test
+    public void testWithdrawingFromADerivedFutureStopsItsInputs() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        LazyFuture<Integer> slow = LazyFuture.supplyAsync(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return 100;
+        }, executorService);
+        LazyFuture<String> text = slow.thenApply(x -> "Got " + x);
+
+        CompletableFuture<String> subscriber = text.toCompletableFuture();
+        assertThat(started.await(1, TimeUnit.SECONDS)).isTrue();
+        subscriber.cancel(true);
+        Thread.sleep(50);
+
+        assertThat(interrupted.get()).isTrue();
+        assertThat(slow.isStarted()).isFalse();
+    }
+
+    @Test
+    public void testComposesWithCompletableFuture() {
+        LazyFuture<Integer> integerFuture1 = LazyFuture.of(
+            () -> CompletableFuture.supplyAsync(() -> 4, executorService));
+        LazyFuture<Integer> integerFuture2 = LazyFuture.supplyAsync(() -> 10, executorService);
+
+        LazyFuture<Integer> sum = integerFuture1.thenCombine(integerFuture2, Integer::sum)
+                                                .thenCompose(x -> CompletableFuture
+                                                    .supplyAsync(() -> x * 2, executorService));
+        CompletableFuture<String> eager = sum.toCompletableFuture()
+                                             .thenCombine(CompletableFuture.completedFuture("!"),
+                                                 (x, s) -> x + s);
+
+        assertThat(eager.join()).isEqualTo("28!");
+    }
+
+    @Test
+    public void testAFailureReachesEverySubscriber() {
+        LazyFuture<Integer> lazy = LazyFuture.supplyAsync(() -> {
+            throw new IllegalStateException("No answer");
+        }, executorService);
+        LazyFuture<Integer> derived = lazy.thenApply(x -> x + 1);
+
+        assertThatThrownBy(lazy::get)
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseExactlyInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(derived::get)
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseExactlyInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Polling a 300 ms task every 100 ms gets its value from the one run.
+     */
+    @Test
+    public void testATimedOutGetKeepsTheWorkRunning()
+        throws InterruptedException, ExecutionException {
+        LazyFuture<Integer> lazy = LazyFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 100;
+        }, executorService);
+
+        Integer value = null;
+        for (int polls = 0; value == null && polls < 50; polls++) {
+            try {
+                value = lazy.get(100, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                assertThat(lazy.isStarted()).isTrue();
+            }
+        }
+
+        assertThat(value).isEqualTo(100);
+        assertThat(lazy.getStarts()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAnInterruptedGetWithdraws() throws InterruptedException {
+        LazyFuture<Integer> lazy = LazyFuture.of(CompletableFuture::new);
+        Thread waiter = new Thread(() -> {
+            try {
+                lazy.get();
+            } catch (InterruptedException | ExecutionException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!lazy.isStarted() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        waiter.interrupt();
+        waiter.join(1000);
+
+        assertThat(waiter.isAlive()).isFalse();
+        assertThat(lazy.isStarted()).isFalse();
+    }
+
+    @Test
+    public void testCancelIsForGood() {
+        AtomicInteger runs = new AtomicInteger();
+        LazyFuture<Integer> lazy = LazyFuture.supplyAsync(runs::incrementAndGet, executorService);
+
+        assertThat(lazy.cancel(true)).isTrue();
+
+        assertThat(lazy.isCancelled()).isTrue();
+        assertThatThrownBy(lazy::get).isInstanceOf(CancellationException.class);
+        assertThat(runs.get()).isEqualTo(0);
+    }
+}
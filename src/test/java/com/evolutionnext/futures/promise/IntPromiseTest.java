@@ -0,0 +1,106 @@
+package com.evolutionnext.futures.promise;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IntPromiseTest {
+
+    /**
+     * testCompletableFuturePromise, without the box.
+     */
+    @Test
+    public void testThenAcceptRunsOnComplete() {
+        IntPromise promise = new IntPromise();
+        AtomicInteger seen = new AtomicInteger();
+        promise.thenAccept(seen::set);
+        assertThat(seen.get()).isZero();
+
+        assertThat(promise.complete(42)).isTrue();
+        assertThat(seen.get()).isEqualTo(42);
+        assertThat(promise.complete(43)).isFalse();
+        assertThat(promise.join()).isEqualTo(42);
+    }
+
+    @Test
+    public void testCallbacksRunInRegistrationOrder() {
+        IntPromise promise = new IntPromise();
+        List<String> calls = new ArrayList<>();
+        promise.thenAccept(x -> calls.add("first " + x))
+               .thenAccept(x -> calls.add("second " + x))
+               .thenAccept(x -> calls.add("third " + x));
+        promise.complete(7);
+        promise.thenAccept(x -> calls.add("late " + x));
+        assertThat(calls).containsExactly("first 7", "second 7", "third 7", "late 7");
+    }
+
+    @Test
+    public void testFailureSkipsValueCallbacks() {
+        IntPromise promise = new IntPromise();
+        AtomicInteger values = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        promise.thenAccept(values::addAndGet).onFailure(failure::set);
+
+        promise.completeExceptionally(new InputMismatchException("Just for fun"));
+
+        assertThat(values.get()).isZero();
+        assertThat(failure.get()).isInstanceOf(InputMismatchException.class);
+        assertThat(promise.isCompletedExceptionally()).isTrue();
+        assertThatThrownBy(promise::join)
+            .isInstanceOf(CompletionException.class)
+            .hasCauseInstanceOf(InputMismatchException.class);
+    }
+
+    @Test
+    public void testJoinWaitsForAnotherThread() throws Exception {
+        IntPromise promise = new IntPromise();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> {
+                Thread.sleep(50);
+                return promise.complete(4000);
+            });
+            assertThat(promise.getNow(-1)).isEqualTo(-1);
+            assertThat(promise.join()).isEqualTo(4000);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInteroperatesWithCompletionStage() {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        IntPromise promise = IntPromise.from(source);
+        CompletableFuture<Integer> doubled =
+            promise.toCompletableFuture().thenApply(x -> x * 2);
+
+        source.complete(21);
+
+        assertThat(promise.join()).isEqualTo(21);
+        assertThat(doubled.join()).isEqualTo(42);
+    }
+
+    @Test
+    public void testFailureCrossesToCompletableFuture() {
+        IntPromise promise = new IntPromise();
+        CompletableFuture<Integer> future = promise.toCompletableFuture();
+        promise.cancel();
+        assertThat(future.isCompletedExceptionally()).isTrue();
+        assertThatThrownBy(promise::join).isInstanceOf(CancellationException.class);
+    }
+
+    private static class InputMismatchException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private InputMismatchException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.evolutionnext.futures.promise;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongPromiseTest {
+
+    @Test
+    public void testThenAcceptSeesTheFullLong() {
+        LongPromise promise = new LongPromise();
+        AtomicLong seen = new AtomicLong();
+        promise.thenAccept(seen::set);
+        promise.complete(Long.MAX_VALUE);
+        assertThat(seen.get()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testFromAStageOfAnotherNumberType() {
+        CompletableFuture<Integer> source = CompletableFuture.completedFuture(42);
+        LongPromise promise = LongPromise.from(source);
+        assertThat(promise.join()).isEqualTo(42L);
+        assertThat(promise.toCompletableFuture().join()).isEqualTo(42L);
+    }
+
+    @Test
+    public void testNullResultFailsThePromise() {
+        LongPromise promise = LongPromise.from(CompletableFuture.completedFuture(null));
+        assertThat(promise.isCompletedExceptionally()).isTrue();
+    }
+}
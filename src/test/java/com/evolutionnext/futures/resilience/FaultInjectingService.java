@@ -0,0 +1,81 @@
+package com.evolutionnext.futures.resilience;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A stand-in for a remote service: answers after {@code fastMillis},
+ * except that a {@code slowRate} fraction of calls take {@code slowMillis}
+ * and a {@code failureRate} fraction fail. Answers are scheduled on a
+ * timer, so no thread is held while a call is "in flight", and a
+ * cancelled call never answers.
+ */
+class FaultInjectingService {
+
+    private final ScheduledExecutorService timer;
+    private final long fastMillis;
+    private final long slowMillis;
+    private final double slowRate;
+    private final double failureRate;
+    private final Random random = new Random(4000);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private volatile int failFirst;
+
+    FaultInjectingService(ScheduledExecutorService timer, long fastMillis, long slowMillis,
+                          double slowRate, double failureRate) {
+        this.timer = timer;
+        this.fastMillis = fastMillis;
+        this.slowMillis = slowMillis;
+        this.slowRate = slowRate;
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Makes the first {@code calls} calls fail whatever the failure rate.
+     */
+    FaultInjectingService failingFirst(int calls) {
+        this.failFirst = calls;
+        return this;
+    }
+
+    CompletableFuture<String> call() {
+        int call = calls.incrementAndGet();
+        double slowDraw;
+        double failureDraw;
+        synchronized (random) {
+            slowDraw = random.nextDouble();
+            failureDraw = random.nextDouble();
+        }
+        boolean fails = call <= failFirst || failureDraw < failureRate;
+        long latency = slowDraw < slowRate ? slowMillis : fastMillis;
+
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        ScheduledFuture<?> scheduled = timer.schedule(() -> {
+            if (fails) {
+                answer.completeExceptionally(new IllegalStateException("Injected fault " + call));
+            } else {
+                answer.complete("Clearwater, FL");
+            }
+        }, latency, TimeUnit.MILLISECONDS);
+        answer.whenComplete((result, throwable) -> {
+            if (answer.isCancelled()) {
+                scheduled.cancel(false);
+                cancelled.incrementAndGet();
+            }
+        });
+        return answer;
+    }
+
+    int getCalls() {
+        return calls.get();
+    }
+
+    int getCancelled() {
+        return cancelled.get();
+    }
+}
@@ -0,0 +1,126 @@
+package com.evolutionnext.futures.resilience;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HedgerTest {
+
+    private ScheduledExecutorService timer;
+
+    @Before
+    public void startUp() {
+        timer = Executors.newScheduledThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Starts 400 calls 2 ms apart and returns the p99 of their latencies in
+     * milliseconds.
+     */
+    private long p99Millis(Supplier<CompletableFuture<String>> call) throws InterruptedException {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(400);
+        for (int i = 0; i < 400; i++) {
+            long start = System.nanoTime();
+            call.get().whenComplete((result, throwable) -> {
+                latencies.add(System.nanoTime() - start);
+                done.countDown();
+            });
+            Thread.sleep(2);
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return TimeUnit.NANOSECONDS.toMillis(sorted.get(395));
+    }
+
+    /**
+     * 3% of calls take 200 ms instead of 5 ms, so the plain p99 is the slow
+     * path. Hedging after the p95 delay duplicates those calls early.
+     */
+    @Test
+    public void testHedgingCutsTheTail() throws InterruptedException {
+        FaultInjectingService plainService = new FaultInjectingService(timer, 5, 200, 0.03, 0);
+        long plain = p99Millis(plainService::call);
+
+        FaultInjectingService hedgedService = new FaultInjectingService(timer, 5, 200, 0.03, 0);
+        Hedger hedger = new Hedger(timer, 95, 20, TimeUnit.MILLISECONDS);
+        long hedged = p99Millis(() -> hedger.call(hedgedService::call));
+
+        System.out.println("p99 plain: " + plain + "ms, hedged: " + hedged + "ms, " +
+            hedger.getHedges() + " of " + hedger.getCalls() + " calls hedged after " +
+            hedger.currentDelay(TimeUnit.MICROSECONDS) + "us, " +
+            hedgedService.getCancelled() + " losers cancelled");
+        assertThat(plain).isGreaterThanOrEqualTo(200);
+        assertThat(hedged).isLessThan(100);
+        assertThat(hedger.getHedges()).isBetween(8L, 80L);
+        assertThat(hedgedService.getCancelled()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testAFastFailureHedgesStraightAway() {
+        FaultInjectingService service =
+            new FaultInjectingService(timer, 5, 5, 0, 0).failingFirst(1);
+        Hedger hedger = new Hedger(timer, 95, 10, TimeUnit.SECONDS);
+
+        assertThat(hedger.call(service::call).join()).isEqualTo("Clearwater, FL");
+        assertThat(service.getCalls()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFailsOnlyWhenBothAttemptsFail() {
+        FaultInjectingService service =
+            new FaultInjectingService(timer, 5, 5, 0, 0).failingFirst(2);
+        Hedger hedger = new Hedger(timer, 95, 10, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> hedger.call(service::call).join())
+            .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(service.getCalls()).isEqualTo(2);
+    }
+
+    @Test
+    public void testTheAttemptsOwnExceptionsAreLeftAlone() {
+        IllegalStateException first = new IllegalStateException("Injected fault 1");
+        IllegalStateException second = new IllegalStateException("Injected fault 2");
+        Hedger hedger = new Hedger(timer, 95, 10, TimeUnit.SECONDS);
+        AtomicInteger calls = new AtomicInteger();
+
+        Throwable failure = hedger.call(() -> CompletableFuture.<String>failedFuture(
+            calls.incrementAndGet() == 1 ? first : second))
+                                  .handle((result, throwable) -> throwable)
+                                  .join();
+
+        assertThat(failure.getCause()).isSameAs(second);
+        assertThat(failure.getSuppressed()).containsExactly(first);
+        assertThat(first.getSuppressed()).isEmpty();
+        assertThat(second.getSuppressed()).isEmpty();
+    }
+
+    @Test
+    public void testCancellingTheResultCancelsBothAttempts() throws InterruptedException {
+        FaultInjectingService service = new FaultInjectingService(timer, 1000, 1000, 0, 0);
+        Hedger hedger = new Hedger(timer, 95, 10, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<String> result = hedger.call(service::call);
+        Thread.sleep(50);
+        result.cancel(true);
+
+        assertThat(service.getCalls()).isEqualTo(2);
+        assertThat(service.getCancelled()).isEqualTo(2);
+    }
+}
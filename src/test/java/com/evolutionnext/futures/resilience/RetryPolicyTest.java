@@ -0,0 +1,141 @@
+package com.evolutionnext.futures.resilience;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RetryPolicyTest {
+
+    private ScheduledExecutorService timer;
+
+    @Before
+    public void startUp() {
+        timer = Executors.newScheduledThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void testRetriesTransientFailuresWithoutBlocking() {
+        FaultInjectingService service =
+            new FaultInjectingService(timer, 5, 5, 0, 0).failingFirst(2);
+        RetryPolicy policy = RetryPolicy.of(3, 20, 100, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<String> result = policy.execute(service::call, timer);
+        assertThat(result.isDone()).isFalse();
+        assertThat(result.join()).isEqualTo("Clearwater, FL");
+        assertThat(service.getCalls()).isEqualTo(3);
+    }
+
+    @Test
+    public void testGivesUpWithTheLastFailureAndTheEarlierOnesSuppressed() {
+        FaultInjectingService service =
+            new FaultInjectingService(timer, 1, 1, 0, 0).failingFirst(10);
+        RetryPolicy policy = RetryPolicy.of(3, 1, 5, TimeUnit.MILLISECONDS);
+
+        Throwable failure = policy.execute(service::call, timer)
+                                  .handle((result, throwable) -> throwable)
+                                  .join();
+
+        assertThat(failure).isInstanceOf(CompletionException.class);
+        assertThat(failure.getCause()).hasMessage("Injected fault 3");
+        assertThat(failure.getSuppressed()).hasSize(2);
+        assertThat(failure.getSuppressed()[0]).hasMessage("Injected fault 1");
+        assertThat(failure.getSuppressed()[1]).hasMessage("Injected fault 2");
+        assertThat(service.getCalls()).isEqualTo(3);
+    }
+
+    /**
+     * A call that fails with the same exception every time, as a cached
+     * failure would, gets it back untouched however often it is retried.
+     */
+    @Test
+    public void testTheCallsOwnExceptionsAreLeftAlone() {
+        IllegalStateException shared = new IllegalStateException("Always down");
+        RetryPolicy policy = RetryPolicy.of(3, 1, 5, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 5; i++) {
+            Throwable failure = policy
+                .execute(() -> CompletableFuture.<String>failedFuture(shared), timer)
+                .handle((result, throwable) -> throwable)
+                .join();
+            assertThat(failure.getCause()).isSameAs(shared);
+        }
+
+        assertThat(shared.getSuppressed()).isEmpty();
+    }
+
+    @Test
+    public void testFailuresThatAreNotRetryableFailAtOnce() {
+        FaultInjectingService service =
+            new FaultInjectingService(timer, 1, 1, 0, 0).failingFirst(10);
+        RetryPolicy policy = RetryPolicy.of(5, 1, 5, TimeUnit.MILLISECONDS)
+                                        .retryingOn(t -> t instanceof TimeoutException);
+
+        assertThatThrownBy(() -> policy.execute(service::call, timer).join())
+            .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(service.getCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCancellingStopsTheRetries() throws InterruptedException {
+        FaultInjectingService service =
+            new FaultInjectingService(timer, 1, 1, 0, 0).failingFirst(100);
+        RetryPolicy policy = RetryPolicy.of(100, 50, 50, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<String> result = policy.execute(service::call, timer);
+        Thread.sleep(100);
+        result.cancel(true);
+        int callsAtCancel = service.getCalls();
+        Thread.sleep(200);
+
+        assertThat(service.getCalls()).isEqualTo(callsAtCancel);
+    }
+
+    @Test
+    public void testBackoffDoublesUpToTheMaximumWithFullJitter() {
+        RetryPolicy policy = RetryPolicy.of(10, 10, 50, TimeUnit.MILLISECONDS);
+        List<Long> firsts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            firsts.add(policy.backoffNanos(1));
+            assertThat(policy.backoffNanos(2))
+                .isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+            assertThat(policy.backoffNanos(8))
+                .isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertThat(firsts).allMatch(nanos -> nanos <= TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(firsts.stream().distinct().count()).isGreaterThan(900);
+    }
+
+    /**
+     * With 30% of calls failing, five attempts bring the success rate from
+     * about 70% to over 99%.
+     */
+    @Test
+    public void testRetriesMaskAFaultyService() {
+        FaultInjectingService service = new FaultInjectingService(timer, 1, 1, 0, 0.3);
+        RetryPolicy policy = RetryPolicy.of(5, 1, 10, TimeUnit.MILLISECONDS);
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(policy.execute(service::call, timer));
+        }
+        long succeeded = results.stream()
+                                .map(future -> future.handle((r, t) -> t == null).join())
+                                .filter(ok -> ok)
+                                .count();
+
+        assertThat(succeeded).isGreaterThanOrEqualTo(197);
+        assertThat(service.getCalls()).isGreaterThan(250);
+    }
+}
@@ -0,0 +1,122 @@
+package com.evolutionnext.futures.timer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FixedRateSchedulerTest {
+
+    private static final long PERIOD_MILLIS = 50;
+
+    private ScheduledExecutorService timer;
+    private ExecutorService workers;
+    private FixedRateScheduler scheduler;
+
+    @Before
+    public void startUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        workers = Executors.newCachedThreadPool();
+        scheduler = new FixedRateScheduler(timer, workers);
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private static Runnable sleeping(long millis) {
+        return () -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    /**
+     * Runs the task for 20 ticks and stops the schedule. A run that ends
+     * right on a tick may or may not free its slot in time for it, so the
+     * tests allow for either.
+     */
+    private PeriodicTask runFor20Ticks(Runnable command, OverrunPolicy policy)
+        throws InterruptedException {
+        PeriodicTask task = scheduler.scheduleAtFixedRate(
+            command, 0, PERIOD_MILLIS, TimeUnit.MILLISECONDS, policy);
+        Thread.sleep(20 * PERIOD_MILLIS - PERIOD_MILLIS / 2);
+        task.cancel();
+        return task;
+    }
+
+    @Test
+    public void testSkipRunsEveryOtherTickAtTwiceThePeriod() throws InterruptedException {
+        PeriodicTask task = runFor20Ticks(sleeping(2 * PERIOD_MILLIS), OverrunPolicy.SKIP);
+
+        assertThat(task.getRuns() + task.getSkipped()).isEqualTo(20);
+        assertThat(task.getRuns()).isBetween(6L, 10L);
+        assertThat(task.getMaxConcurrentSeen()).isEqualTo(1);
+        assertThat(task.getLateness().valueAtPercentile(50))
+            .isLessThan(TimeUnit.MILLISECONDS.toNanos(PERIOD_MILLIS / 2));
+    }
+
+    @Test
+    public void testCoalesceRunsBackToBackAtFourTimesThePeriod() throws InterruptedException {
+        PeriodicTask task = runFor20Ticks(sleeping(4 * PERIOD_MILLIS), OverrunPolicy.COALESCE);
+
+        assertThat(task.getRuns()).isBetween(4L, 5L);
+        assertThat(task.getCoalesced()).isGreaterThanOrEqualTo(10);
+        assertThat(task.getMaxConcurrentSeen()).isEqualTo(1);
+        assertThat(task.getLateness().max())
+            .isLessThan(TimeUnit.MILLISECONDS.toNanos(PERIOD_MILLIS));
+    }
+
+    @Test
+    public void testConcurrentKeepsEveryTickUpToTheLimit() throws InterruptedException {
+        PeriodicTask task = runFor20Ticks(sleeping(4 * PERIOD_MILLIS), OverrunPolicy.concurrent(4));
+
+        assertThat(task.getRuns() + task.getSkipped()).isEqualTo(20);
+        assertThat(task.getRuns()).isGreaterThanOrEqualTo(16);
+        assertThat(task.getMaxConcurrentSeen()).isEqualTo(4);
+    }
+
+    @Test
+    public void testConcurrentSkipsTicksBeyondTheLimit() throws InterruptedException {
+        PeriodicTask task = runFor20Ticks(sleeping(4 * PERIOD_MILLIS), OverrunPolicy.concurrent(2));
+
+        assertThat(task.getRuns() + task.getSkipped()).isEqualTo(20);
+        assertThat(task.getRuns()).isBetween(8L, 12L);
+        assertThat(task.getMaxConcurrentSeen()).isEqualTo(2);
+    }
+
+    /**
+     * Each run takes a third of the period. With a fixed delay the 20th run
+     * would start about 20 * 50 * 4/3 ms in; on the fixed-rate grid it
+     * still starts within its tick and jitter.
+     */
+    @Test
+    public void testTicksStayOnTheGridWithJitter() throws InterruptedException {
+        List<Long> starts = new CopyOnWriteArrayList<>();
+        long jitterMillis = 10;
+        long scheduled = System.nanoTime();
+        PeriodicTask task = scheduler.scheduleAtFixedRate(() -> {
+            starts.add(System.nanoTime());
+            sleeping(PERIOD_MILLIS / 3).run();
+        }, 0, PERIOD_MILLIS, jitterMillis, TimeUnit.MILLISECONDS, OverrunPolicy.SKIP);
+        Thread.sleep(20 * PERIOD_MILLIS - PERIOD_MILLIS / 2);
+        task.cancel();
+
+        assertThat(starts.size()).isGreaterThanOrEqualTo(19);
+        for (int k = 0; k < starts.size(); k++) {
+            long offsetMillis = TimeUnit.NANOSECONDS.toMillis(starts.get(k) - scheduled)
+                - k * PERIOD_MILLIS;
+            assertThat(offsetMillis).isBetween(0L, jitterMillis + 25);
+        }
+        assertThat(task.getSkipped()).isZero();
+    }
+}
@@ -0,0 +1,193 @@
+package com.evolutionnext.futures.timer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashedWheelScheduledExecutorServiceTest {
+
+    private HashedWheelScheduledExecutorService scheduledExecutorService;
+
+    @Before
+    public void startUp() {
+        scheduledExecutorService = new HashedWheelScheduledExecutorService(4);
+    }
+
+    @After
+    public void tearDown() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    /**
+     * Same as Demo 5, with a shorter delay.
+     */
+    @Test
+    public void testScheduledFuture() throws ExecutionException,
+        InterruptedException {
+        long start = System.nanoTime();
+        ScheduledFuture<Integer> scheduledFuture =
+            scheduledExecutorService.schedule(() -> 40 + 50,
+                300, TimeUnit.MILLISECONDS);
+        assertThat(scheduledFuture.get()).isEqualTo(90);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+            .isGreaterThanOrEqualTo(300);
+    }
+
+    /**
+     * 70k ticks of 10µs lands in the third wheel, so this crosses two
+     * cascades before it fires.
+     */
+    @Test
+    public void testDeadlineInAnUpperWheelCascadesDown() throws Exception {
+        HashedWheelScheduledExecutorService fineGrained =
+            new HashedWheelScheduledExecutorService(10, TimeUnit.MICROSECONDS,
+                Runnable::run);
+        try {
+            long start = System.nanoTime();
+            ScheduledFuture<Long> scheduledFuture = fineGrained.schedule(
+                System::nanoTime, 700, TimeUnit.MILLISECONDS);
+            long firedAfterMillis =
+                TimeUnit.NANOSECONDS.toMillis(scheduledFuture.get(5, TimeUnit.SECONDS) - start);
+            assertThat(firedAfterMillis).isBetween(700L, 1500L);
+        } finally {
+            fineGrained.shutdownNow();
+        }
+    }
+
+    /**
+     * Same as Demo 6: the next run starts a fixed delay after the previous
+     * one ended.
+     */
+    @Test
+    public void testScheduledFutureWithFixedDelay() throws InterruptedException {
+        List<Long> starts = new CopyOnWriteArrayList<>();
+        ScheduledFuture<?> scheduledFuture =
+            scheduledExecutorService.scheduleWithFixedDelay(() -> {
+                starts.add(System.nanoTime());
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 50, 100, TimeUnit.MILLISECONDS);
+        Thread.sleep(1000);
+        scheduledFuture.cancel(true);
+
+        assertThat(starts.size()).isBetween(3, 6);
+        for (int i = 1; i < starts.size(); i++) {
+            assertThat(TimeUnit.NANOSECONDS.toMillis(starts.get(i) - starts.get(i - 1)))
+                .isGreaterThanOrEqualTo(200);
+        }
+    }
+
+    /**
+     * Same as testScheduledFutureWithFixedRate: runs are a period apart
+     * measured from the first run, not from the end of the last one.
+     */
+    @Test
+    public void testScheduledFutureWithFixedRate() throws InterruptedException {
+        List<Long> starts = new CopyOnWriteArrayList<>();
+        ScheduledFuture<?> scheduledFuture =
+            scheduledExecutorService.scheduleAtFixedRate(() -> {
+                starts.add(System.nanoTime());
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 50, 100, TimeUnit.MILLISECONDS);
+        Thread.sleep(1030);
+        scheduledFuture.cancel(true);
+
+        assertThat(starts.size()).isBetween(8, 11);
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(
+            starts.get(starts.size() - 1) - starts.get(0));
+        //The first run may be up to a tick late, so allow a tick either way
+        assertThat(totalMillis).isBetween(
+            (starts.size() - 1) * 100L - 5, (starts.size() - 1) * 100L + 50);
+    }
+
+    /**
+     * ScheduledThreadPoolExecutor never runs these; an unsaturated deadline
+     * would overflow into the past and run them straight away.
+     */
+    @Test
+    public void testHugeDelaysNeverFire() throws InterruptedException {
+        AtomicBoolean ran = new AtomicBoolean();
+        List<ScheduledFuture<?>> futures = new ArrayList<>();
+        futures.add(scheduledExecutorService.schedule(() -> ran.set(true),
+            Long.MAX_VALUE, TimeUnit.NANOSECONDS));
+        futures.add(scheduledExecutorService.schedule(() -> ran.set(true),
+            Long.MAX_VALUE, TimeUnit.DAYS));
+        futures.add(scheduledExecutorService.scheduleAtFixedRate(() -> ran.set(true),
+            Long.MAX_VALUE, Long.MAX_VALUE, TimeUnit.MILLISECONDS));
+        futures.add(scheduledExecutorService.scheduleWithFixedDelay(() -> ran.set(true),
+            Long.MAX_VALUE - 1, 1, TimeUnit.SECONDS));
+        Thread.sleep(200);
+
+        assertThat(ran.get()).isFalse();
+        assertThat(futures).allMatch(future -> !future.isDone() &&
+            future.getDelay(TimeUnit.DAYS) > 100 * 365);
+    }
+
+    @Test
+    public void testCancelTrueInterruptsARunningTask() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ScheduledFuture<?> scheduledFuture =
+            scheduledExecutorService.scheduleWithFixedDelay(() -> {
+                running.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }, 0, 1, TimeUnit.SECONDS);
+        assertThat(running.await(2, TimeUnit.SECONDS)).isTrue();
+        scheduledFuture.cancel(true);
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(scheduledFuture.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void testCancelledTimersAreUnlinkedBeforeTheirDeadline()
+        throws InterruptedException {
+        List<ScheduledFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            futures.add(scheduledExecutorService.schedule(() -> { },
+                1 + i % 3600, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            if (i % 10 != 0) {
+                futures.get(i).cancel(false);
+            }
+        }
+        Thread.sleep(200);
+        assertThat(scheduledExecutorService.pendingTimers()).isEqualTo(20_000);
+    }
+
+    @Test
+    public void testShutdownRejectsNewWorkAndCancelsPendingTimers()
+        throws InterruptedException {
+        ScheduledFuture<?> pending =
+            scheduledExecutorService.schedule(() -> { }, 1, TimeUnit.HOURS);
+        scheduledExecutorService.shutdown();
+        assertThat(scheduledExecutorService.awaitTermination(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(pending.isCancelled()).isTrue();
+
+        AtomicBoolean rejected = new AtomicBoolean();
+        try {
+            scheduledExecutorService.schedule(() -> { }, 1, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            rejected.set(true);
+        }
+        assertThat(rejected.get()).isTrue();
+    }
+}
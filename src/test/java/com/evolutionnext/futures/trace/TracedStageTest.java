@@ -0,0 +1,125 @@
+package com.evolutionnext.futures.trace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TracedStageTest {
+
+    private ExecutorService executorService;
+    private final List<Trace> reported = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void startUp() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private CompletableFuture<Integer> sleepThenReturn(int millis, int value) {
+        return CompletableFuture.supplyAsync(() -> {
+            sleep(millis);
+            return value;
+        }, executorService);
+    }
+
+    private static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> names(List<Span> spans) {
+        return spans.stream().map(Span::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * completableCompose with a slow branch: the critical path goes through
+     * the compose and the slower of the two combined branches, and the
+     * report says which stage hopped threads.
+     */
+    @Test
+    public void testCriticalPathFollowsTheSlowestInput() {
+        Tracer tracer = new Tracer(1.0, reported::add);
+        TracedStage<Integer> temperature =
+            tracer.trace("completableCompose", sleepThenReturn(10, 1))
+                  .thenCompose("getTemperatureInFahrenheit", x -> sleepThenReturn(30, 80));
+        TracedStage<Integer> celsius = temperature
+            .thenApplyAsync("toCelsius", f -> {
+                sleep(40);
+                return (f - 32) * 5 / 9;
+            }, executorService);
+        TracedStage<String> label = temperature
+            .thenApply("label", f -> f + "F");
+
+        String result = celsius.thenCombine("combine", label, (c, l) -> c + "C / " + l)
+                               .finish()
+                               .join();
+
+        assertThat(result).isEqualTo("26C / 80F");
+        assertThat(reported).hasSize(1);
+        Trace trace = reported.get(0);
+        System.out.println(trace.report());
+
+        List<Span> path = trace.criticalPath();
+        assertThat(names(path)).containsExactly(
+            "source", "getTemperatureInFahrenheit", "toCelsius", "combine");
+        assertThat(path.get(2).getExecution()).isEqualTo(Span.Execution.ASYNC);
+        assertThat(path.get(2).duration(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(39);
+        assertThat(path.get(3).getExecution()).isEqualTo(Span.Execution.COMPLETING_THREAD);
+        assertThat(path.get(3).getThread()).isSameAs(path.get(2).getThread());
+        assertThat(trace.duration(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(80);
+        assertThat(trace.getSpans()).hasSize(5);
+    }
+
+    @Test
+    public void testStageOnACompletedInputRunsInTheCallerThread() {
+        Tracer tracer = new Tracer(1.0, reported::add);
+        TracedStage<Integer> stage =
+            tracer.trace("completed", CompletableFuture.completedFuture(4000))
+                  .thenApply("plus3000", x -> x + 3000);
+
+        assertThat(stage.finish().join()).isEqualTo(7000);
+        Span span = reported.get(0).criticalPath().get(1);
+        assertThat(span.getExecution()).isEqualTo(Span.Execution.CALLER_THREAD);
+        assertThat(span.getThread()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    public void testStagesAfterAFailureAreReportedAsNotRun() {
+        Tracer tracer = new Tracer(1.0, reported::add);
+        CompletableFuture<Integer> failed = new CompletableFuture<>();
+        CompletableFuture<Integer> result = tracer.trace("failing", failed)
+                                                  .thenApply("never", x -> x + 1)
+                                                  .finish();
+        failed.completeExceptionally(new IllegalStateException("Bad things"));
+
+        assertThat(result.isCompletedExceptionally()).isTrue();
+        assertThat(reported.get(0).report()).contains("never [did not run]");
+    }
+
+    @Test
+    public void testOnlyTheSampledFractionIsTraced() {
+        Tracer tracer = new Tracer(0.1, reported::add);
+        for (int i = 0; i < 2000; i++) {
+            tracer.trace("sampled", CompletableFuture.completedFuture(i))
+                  .thenApply("double", x -> x * 2)
+                  .finish();
+        }
+        assertThat(reported.size()).isBetween(100, 300);
+
+        Tracer off = new Tracer(0, reported::add);
+        assertThat(off.trace("off", CompletableFuture.completedFuture(1)).trace()).isNull();
+    }
+}
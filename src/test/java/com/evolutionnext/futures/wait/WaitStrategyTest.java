@@ -0,0 +1,156 @@
+package com.evolutionnext.futures.wait;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WaitStrategyTest {
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private ScheduledExecutorService timer;
+
+    @Before
+    public void startUp() {
+        timer = Executors.newScheduledThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    private CompletableFuture<Integer> completeAfter(int millis, int value) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        timer.schedule(() -> future.complete(value), millis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private long cpuMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(threads.getCurrentThreadCpuTime());
+    }
+
+    /**
+     * testBasicFutureAsync without the busy loop: waiting 500 ms costs the
+     * waiting thread next to no CPU time.
+     */
+    @Test
+    public void testWaitingOnACompletableFutureParksUntilItCompletes()
+        throws InterruptedException, ExecutionException {
+        CompletableFuture<Integer> future = completeAfter(500, 8);
+        long cpuBefore = cpuMillis();
+
+        assertThat(WaitStrategy.DEFAULT.get(future)).isEqualTo(8);
+
+        assertThat(cpuMillis() - cpuBefore).isLessThan(50);
+    }
+
+    @Test
+    public void testAPlainFutureIsCheckedWithBackoff()
+        throws InterruptedException, ExecutionException {
+        ScheduledFuture<Integer> future = timer.schedule(() -> 5 + 3, 300, TimeUnit.MILLISECONDS);
+        long cpuBefore = cpuMillis();
+        long start = System.nanoTime();
+
+        assertThat(WaitStrategy.DEFAULT.get(future)).isEqualTo(8);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(400);
+        assertThat(cpuMillis() - cpuBefore).isLessThan(50);
+    }
+
+    @Test
+    public void testAListenableFutureWakesTheWaiter() throws InterruptedException {
+        SettableFuture<String> future = SettableFuture.create();
+        timer.schedule(() -> future.set("done"), 50, TimeUnit.MILLISECONDS);
+
+        assertThat(WaitStrategy.DEFAULT.await(future, 5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testTimedWaitGivesUp() throws InterruptedException {
+        CompletableFuture<Integer> never = new CompletableFuture<>();
+        long start = System.nanoTime();
+
+        assertThat(WaitStrategy.DEFAULT.await(never, 100, TimeUnit.MILLISECONDS)).isFalse();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+            .isBetween(100L, 1000L);
+        assertThatThrownBy(() -> WaitStrategy.DEFAULT.get(never, 10, TimeUnit.MILLISECONDS))
+            .isInstanceOf(TimeoutException.class);
+    }
+
+    /**
+     * Timed waits in a loop share one callback rather than stacking one
+     * each on the future.
+     */
+    @Test
+    public void testRepeatedTimedWaitsRegisterOneCallback() throws InterruptedException {
+        WaitStrategy parkAtOnce = WaitStrategy.of(0, 0, 50, 100, TimeUnit.MICROSECONDS);
+        CompletableFuture<Integer> running = new CompletableFuture<>();
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(parkAtOnce.await(running, 10, TimeUnit.MICROSECONDS)).isFalse();
+        }
+        assertThat(running.getNumberOfDependents()).isEqualTo(1);
+
+        running.complete(8);
+        assertThat(parkAtOnce.await(running, 10, TimeUnit.MICROSECONDS)).isTrue();
+    }
+
+    @Test
+    public void testGetReportsTheFailure() {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        timer.schedule(() -> future.completeExceptionally(new IllegalStateException("No answer")),
+            20, TimeUnit.MILLISECONDS);
+
+        assertThatThrownBy(() -> WaitStrategy.DEFAULT.get(future))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseExactlyInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testAwaitAnyReturnsTheFirstToComplete() throws InterruptedException {
+        List<Future<?>> futures = Arrays.asList(
+            completeAfter(5000, 1),
+            timer.schedule(() -> 2, 5000, TimeUnit.MILLISECONDS),
+            completeAfter(50, 3),
+            new CompletableFuture<>());
+
+        assertThat(WaitStrategy.DEFAULT.awaitAny(futures)).isEqualTo(2);
+    }
+
+    @Test
+    public void testTimedAwaitAnyReturnsMinusOne() throws InterruptedException {
+        List<CompletableFuture<Integer>> futures =
+            Arrays.asList(new CompletableFuture<>(), new CompletableFuture<>());
+
+        assertThat(WaitStrategy.DEFAULT.awaitAny(futures, 50, TimeUnit.MILLISECONDS))
+            .isEqualTo(-1);
+    }
+
+    @Test
+    public void testInterruptingTheWaiterStopsTheWait() {
+        Thread waiter = Thread.currentThread();
+        timer.schedule(waiter::interrupt, 50, TimeUnit.MILLISECONDS);
+
+        assertThatThrownBy(() -> WaitStrategy.DEFAULT.await(new CompletableFuture<>()))
+            .isInstanceOf(InterruptedException.class);
+    }
+
+    @Test
+    public void testRejectsBadSettings() {
+        assertThatThrownBy(() -> WaitStrategy.of(-1, 0, 1, 1, TimeUnit.MILLISECONDS))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> WaitStrategy.of(0, 0, 10, 1, TimeUnit.MILLISECONDS))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}